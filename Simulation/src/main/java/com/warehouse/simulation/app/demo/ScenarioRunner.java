@@ -62,7 +62,15 @@ public class ScenarioRunner {
                     for (int j = 0; j < count; j++) {
                         o.addItem(new Item("B" + i + "-" + j, "BulkItem", 0.5 + RAND.nextDouble()));
                     }
-                    tm.createTasksFromOrders(o);
+                    // back off while the task manager is above its high watermark
+                    while (tm.isAboveHighWatermark()) {
+                        if (!warehouse.isSimulationRunning()) warehouse.startSimulation();
+                        Thread.sleep(100);
+                    }
+                    // goes through the wave planner when the warehouse has wave planning on
+                    if (!warehouse.submitOrder(o)) {
+                        System.out.println("[Scenario B] order " + o.getId() + " was not admitted");
+                    }
                     // small gap
                     Thread.sleep(50);
                 }
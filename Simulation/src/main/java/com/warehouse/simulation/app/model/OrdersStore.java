@@ -3,17 +3,38 @@ package com.warehouse.simulation.app.model;
 import com.warehouse.simulation.storage.Order;
 import com.warehouse.simulation.app.persistence.PersistenceService;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class OrdersStore {
     private static final OrdersStore INSTANCE = new OrdersStore();
 
     private final ObservableList<Order> orders = FXCollections.observableArrayList();
+    // id -> order, rebuilt lazily after the list changes (callers also edit the list directly).
+    // A rebuild fills a new map and swaps it in, so readers never see it half built.
+    private volatile Map<String, Order> byId = Map.of();
+    private volatile boolean indexDirty = true;
+
+    // saves asked for through persistLater() go out together, at most SAVE_DELAY_MS later
+    private static final long SAVE_DELAY_MS = 2_000;
+    private final AtomicBoolean savePending = new AtomicBoolean(false);
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "orders-saver");
+        t.setDaemon(true);
+        return t;
+    });
 
     private OrdersStore() {
+        orders.addListener((ListChangeListener<Order>) c -> indexDirty = true);
         // load persisted orders if available
         try {
             List<Order> loaded = PersistenceService.loadOrders();
@@ -21,22 +42,59 @@ public class OrdersStore {
         } catch (Exception e) {
             // ignore and start fresh
         }
+        // built up front: a lookup racing the first rebuild must not see an empty index
+        rebuildIndex();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "orders-flush"));
     }
 
     public static OrdersStore getInstance() { return INSTANCE; }
 
     public ObservableList<Order> getOrders() { return orders; }
 
+    /** Look up an order by id without scanning the list on every call. */
+    public Order findById(String id) {
+        if (id == null) return null;
+        if (indexDirty) rebuildIndex();
+        return byId.get(id);
+    }
+
+    private synchronized void rebuildIndex() {
+        if (!indexDirty) return;
+        indexDirty = false;
+        Map<String, Order> index = new HashMap<>();
+        for (Order o : orders) {
+            if (o != null && o.getId() != null) index.put(o.getId(), o);
+        }
+        byId = index;
+    }
+
     public synchronized void addOrder(Order o) {
         orders.add(o);
         persist();
     }
 
     public synchronized void persist() {
+        savePending.set(false);
         try {
             PersistenceService.saveOrders(orders);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /** Save soon rather than now; many calls within the delay cost one save. */
+    public void persistLater() {
+        if (!savePending.compareAndSet(false, true)) return;
+        try {
+            saver.schedule(this::flush, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (Throwable t) {
+            // the saver is gone (shutting down): save in place
+            flush();
+        }
+    }
+
+    /** Write a save still waiting from persistLater(), if any. */
+    public void flush() {
+        if (savePending.get()) persist();
+    }
 }
\ No newline at end of file
@@ -2,33 +2,71 @@ package com.warehouse.simulation.app.model;
 
 import com.warehouse.simulation.app.persistence.PersistenceService;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import com.warehouse.simulation.storage.Item;
 import com.warehouse.simulation.storage.StorageUnit;
 
 import java.awt.Point;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class StorageUnitsStore {
     private static final StorageUnitsStore INSTANCE = new StorageUnitsStore();
 
     private final ObservableList<StorageUnit> units = FXCollections.observableArrayList();
+    // unit id -> unit and item id -> unit, rebuilt lazily after the list changes or reindex()
+    // (items are edited on the units directly). A rebuild fills new maps and swaps them in, so
+    // readers never see them half built; removeItem() drops single entries in place.
+    private volatile Index index = new Index(Map.of(), new ConcurrentHashMap<>());
+    private volatile boolean indexDirty = true;
+
+    // saves asked for through persistLater() go out together, at most SAVE_DELAY_MS later
+    private static final long SAVE_DELAY_MS = 2_000;
+    private final AtomicBoolean savePending = new AtomicBoolean(false);
+    private final ScheduledExecutorService saver = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "storage-units-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final class Index {
+        final Map<String, StorageUnit> unitsById;
+        final Map<String, StorageUnit> unitByItemId;
+
+        Index(Map<String, StorageUnit> unitsById, Map<String, StorageUnit> unitByItemId) {
+            this.unitsById = unitsById;
+            this.unitByItemId = unitByItemId;
+        }
+    }
 
     private StorageUnitsStore() {
+        units.addListener((ListChangeListener<StorageUnit>) c -> indexDirty = true);
         try {
             List<StorageUnit> loaded = PersistenceService.loadStorageUnits();
             if (loaded != null && !loaded.isEmpty()) {
                 units.addAll(loaded);
-                return;
             }
         } catch (Exception e) {
             // ignore and create defaults
         }
 
-        // create 5 default storage units at fixed coordinates with capacity 10
-        units.addAll(defaultUnits());
-        persist();
+        if (units.isEmpty()) {
+            // create 5 default storage units at fixed coordinates with capacity 10
+            units.addAll(defaultUnits());
+            persist();
+        }
+        // built up front: a lookup racing the first rebuild must not see an empty index
+        rebuildIndex();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "storage-units-flush"));
     }
 
     private List<StorageUnit> defaultUnits() {
@@ -45,11 +83,84 @@ public class StorageUnitsStore {
 
     public ObservableList<StorageUnit> getUnits() { return units; }
 
+    public StorageUnit findById(String unitId) {
+        if (unitId == null) return null;
+        if (indexDirty) rebuildIndex();
+        return index.unitsById.get(unitId);
+    }
+
+    /** Storage unit currently holding the item, or null (also for an item removed since the last rebuild). */
+    public StorageUnit findUnitForItem(String itemId) {
+        if (itemId == null) return null;
+        if (indexDirty) rebuildIndex();
+        StorageUnit su = index.unitByItemId.get(itemId);
+        return su != null && containsItem(su, itemId) ? su : null;
+    }
+
+    /**
+     * Take the item out of its unit (the given one, or wherever the index has it) and drop
+     * its index entry, without touching the rest of the index. Returns false if not found.
+     */
+    public boolean removeItem(String unitId, String itemId) {
+        if (itemId == null) return false;
+        StorageUnit su = findById(unitId);
+        if (su == null || !su.removeItems(itemId)) {
+            su = findUnitForItem(itemId);
+            if (su == null || !su.removeItems(itemId)) return false;
+        }
+        index.unitByItemId.remove(itemId, su);
+        return true;
+    }
+
+    /** Items were added to or moved between units directly: rebuild the index on the next lookup. */
+    public void reindex() {
+        indexDirty = true;
+    }
+
+    private static boolean containsItem(StorageUnit su, String itemId) {
+        for (Item it : su.getItems()) {
+            if (itemId.equals(it.getId())) return true;
+        }
+        return false;
+    }
+
+    private synchronized void rebuildIndex() {
+        if (!indexDirty) return;
+        indexDirty = false;
+        Map<String, StorageUnit> byId = new HashMap<>();
+        Map<String, StorageUnit> byItem = new ConcurrentHashMap<>();
+        for (StorageUnit su : units) {
+            if (su == null) continue;
+            byId.put(su.getId(), su);
+            for (Item it : su.getItems()) {
+                if (it != null && it.getId() != null) byItem.put(it.getId(), su);
+            }
+        }
+        index = new Index(byId, byItem);
+    }
+
     public synchronized void persist() {
+        savePending.set(false);
         try {
             PersistenceService.saveStorageUnits(new ArrayList<>(units));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /** Save soon rather than now; many calls within the delay cost one save. */
+    public void persistLater() {
+        if (!savePending.compareAndSet(false, true)) return;
+        try {
+            saver.schedule(this::flush, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+        } catch (Throwable t) {
+            // the saver is gone (shutting down): save in place
+            flush();
+        }
+    }
+
+    /** Write a save still waiting from persistLater(), if any. */
+    public void flush() {
+        if (savePending.get()) persist();
+    }
 }
\ No newline at end of file
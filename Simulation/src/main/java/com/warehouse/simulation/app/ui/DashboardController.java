@@ -162,7 +162,7 @@ public class DashboardController {
 
             // tasks
             int pending = taskManager.getPendingTasks().size();
-            int completed = taskManager.getCompletedTasksList().size();
+            long completed = taskManager.getCompletedCount();
             pendingTasksLabel.setText("Pending tasks: " + pending);
             completedTasksLabel.setText("Completed tasks: " + completed);
 
@@ -135,6 +135,7 @@ public class InventoryController {
     itemNameField.clear(); itemWeightField.clear();
         addItemButton.setDisable(true);
         addItemButton.setStyle("");
+        unitsStore.reindex();
         unitsStore.persist();
         refreshAllItemsView();
     }
@@ -164,6 +165,7 @@ public class InventoryController {
                 }
             }
         }
+        unitsStore.reindex();
         unitsStore.persist();
         refreshAllItemsView();
         inventorySummary.setText("Added " + added + " sample items");
@@ -0,0 +1,263 @@
+package com.warehouse.simulation.charging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Tick model for sizing the charging side of a fleet: how many stations and bays, and how
+ * much site power, before charging stops limiting throughput. Robots work through an endless
+ * backlog of identical tasks, queue for a bay (lowest battery first) when they run low, and
+ * charge along the {@link ChargingCurve} within their share of the {@link SitePowerCap}.
+ * With {@link Config#withSwap} the bays are {@link SwapStation} lanes instead: a robot gets a
+ * charged pack after the swap time, and the packs share the site power while they recharge.
+ */
+public final class ChargingCapacityModel {
+
+    private ChargingCapacityModel() {}
+
+    /** Fleet, chargers and workload; immutable, {@code with...} makes a changed copy. */
+    public static final class Config {
+        private final int robots;
+        private final int stations;
+        private final int baysPerStation;
+        private final ChargingCurve curve;
+        private final double siteCap;
+        private final double energyPerTask;
+        private final int ticksPerTask;
+        private final double lowLevel;
+        private final double targetLevel;
+        private final int horizon;
+        // swap stations: packs per station (0 = charge in place), swap time, pack charging rate
+        private final int packsPerStation;
+        private final int swapTicks;
+        private final double packRechargeRate;
+
+        public Config(int robots, int stations, int baysPerStation, ChargingCurve curve, double siteCap,
+                      double energyPerTask, int ticksPerTask, double lowLevel, double targetLevel, int horizon) {
+            this(robots, stations, baysPerStation, curve, siteCap, energyPerTask, ticksPerTask, lowLevel, targetLevel,
+                    horizon, 0, 0, 0.0);
+        }
+
+        private Config(int robots, int stations, int baysPerStation, ChargingCurve curve, double siteCap,
+                       double energyPerTask, int ticksPerTask, double lowLevel, double targetLevel, int horizon,
+                       int packsPerStation, int swapTicks, double packRechargeRate) {
+            this.robots = Math.max(1, robots);
+            this.stations = Math.max(1, stations);
+            this.baysPerStation = Math.max(1, baysPerStation);
+            this.curve = curve != null ? curve : ChargingCurve.DEFAULT;
+            this.siteCap = siteCap <= 0 ? Double.POSITIVE_INFINITY : siteCap;
+            this.energyPerTask = Math.max(0.0, energyPerTask);
+            this.ticksPerTask = Math.max(1, ticksPerTask);
+            this.lowLevel = lowLevel;
+            this.targetLevel = Math.min(100.0, targetLevel);
+            this.horizon = Math.max(1, horizon);
+            this.packsPerStation = Math.max(0, packsPerStation);
+            this.swapTicks = Math.max(1, swapTicks);
+            this.packRechargeRate = Math.max(0.0, packRechargeRate);
+        }
+
+        /** A task costs 6% over 20 ticks; charge from 30% to 90% on a CC-CV curve, no site cap. */
+        public static Config standard(int robots, int stations, int baysPerStation) {
+            return new Config(robots, stations, baysPerStation, ChargingCurve.ccCv(4.0, 80.0, 1.0),
+                    0, 6.0, 20, 30.0, 90.0, 20_000);
+        }
+
+        public Config withSiteCap(double cap) {
+            return new Config(robots, stations, baysPerStation, curve, cap, energyPerTask, ticksPerTask,
+                    lowLevel, targetLevel, horizon, packsPerStation, swapTicks, packRechargeRate);
+        }
+
+        public Config withChargers(int stations, int baysPerStation) {
+            return new Config(robots, stations, baysPerStation, curve, siteCap, energyPerTask, ticksPerTask,
+                    lowLevel, targetLevel, horizon, packsPerStation, swapTicks, packRechargeRate);
+        }
+
+        /** Swap packs instead of charging in place; the same fleet and workload otherwise. */
+        public Config withSwap(int packsPerStation, int swapTicks, double packRechargeRate) {
+            return new Config(robots, stations, baysPerStation, curve, siteCap, energyPerTask, ticksPerTask,
+                    lowLevel, targetLevel, horizon, packsPerStation, swapTicks, packRechargeRate);
+        }
+
+        public boolean isSwap() { return packsPerStation > 0; }
+
+        public int getRobots() { return robots; }
+        public int getBays() { return stations * baysPerStation; }
+        public double getSiteCap() { return siteCap; }
+    }
+
+    /** What one configuration achieved over the horizon. */
+    public static final class Result {
+        private final Config config;
+        private final int completed;
+        private final double meanWaitTicks;
+        private final double bayUtilisation;
+        private final double peakDraw;
+        private final double meanDraw;
+
+        Result(Config config, int completed, double meanWaitTicks, double bayUtilisation, double peakDraw, double meanDraw) {
+            this.config = config;
+            this.completed = completed;
+            this.meanWaitTicks = meanWaitTicks;
+            this.bayUtilisation = bayUtilisation;
+            this.peakDraw = peakDraw;
+            this.meanDraw = meanDraw;
+        }
+
+        public Config getConfig() { return config; }
+        public int getCompleted() { return completed; }
+        /** Completed tasks per 1000 ticks. */
+        public double getThroughput() { return completed * 1000.0 / config.horizon; }
+        /** Mean ticks a robot queued for a bay per charging session. */
+        public double getMeanWaitTicks() { return meanWaitTicks; }
+        /** Share of bay time with a robot on the bay. */
+        public double getBayUtilisation() { return bayUtilisation; }
+        /** Highest total draw in one tick, percent per tick. */
+        public double getPeakDraw() { return peakDraw; }
+        public double getMeanDraw() { return meanDraw; }
+
+        @Override
+        public String toString() {
+            String cap = config.siteCap == Double.POSITIVE_INFINITY ? "none" : String.format("%.1f", config.siteCap);
+            return String.format("%-5s robots=%-3d bays=%-3d cap=%-6s done=%-6d thr=%7.2f wait=%6.1f util=%5.1f%% peak=%6.2f mean=%6.2f",
+                    config.isSwap() ? "swap" : "plug", config.robots, config.getBays(), cap, completed, getThroughput(), meanWaitTicks,
+                    bayUtilisation * 100.0, peakDraw, meanDraw);
+        }
+    }
+
+    public static Result run(Config c) {
+        int n = c.robots;
+        double[] battery = new double[n];
+        int[] taskLeft = new int[n];          // ticks left on the current task; 0 = not working
+        int[] station = new int[n];           // station of a robot on a bay, -1 = none
+        int[] swapLeft = new int[n];          // ticks left on a swap
+        long[] queuedAt = new long[n];
+        // robots waiting for a bay, lowest battery first, then first come
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> battery[a] != battery[b]
+                ? Double.compare(battery[a], battery[b]) : Long.compare(queuedAt[a], queuedAt[b]));
+        for (int r = 0; r < n; r++) {
+            // stagger the fleet so it does not all run low at once
+            battery[r] = c.targetLevel - (c.targetLevel - c.lowLevel) * r / n;
+            taskLeft[r] = c.ticksPerTask;
+            station[r] = -1;
+        }
+        int[] freeBays = new int[c.stations];
+        Arrays.fill(freeBays, c.baysPerStation);
+        double[][] packs = new double[c.stations][c.packsPerStation];
+        for (double[] p : packs) Arrays.fill(p, 100.0);
+
+        double perTick = c.energyPerTask / c.ticksPerTask;
+        int completed = 0;
+        long sessions = 0;
+        long waitSum = 0;
+        long bayTicks = 0;
+        double peakDraw = 0.0;
+        double drawSum = 0.0;
+        Map<Integer, Double> demand = new HashMap<>();
+
+        for (long tick = 0; tick < c.horizon; tick++) {
+            for (int s = 0; s < c.stations && !queue.isEmpty(); s++) {
+                while (freeBays[s] > 0 && !queue.isEmpty()) {
+                    int r = queue.poll();
+                    waitSum += tick - queuedAt[r];
+                    sessions++;
+                    station[r] = s;
+                    swapLeft[r] = c.swapTicks;
+                    freeBays[s]--;
+                }
+            }
+
+            // who draws power this tick: robots on bays, or the packs of the swap stations
+            demand.clear();
+            if (c.isSwap()) {
+                for (int s = 0; s < c.stations; s++) {
+                    for (int i = 0; i < c.packsPerStation; i++) {
+                        double want = Math.min(c.packRechargeRate, 100.0 - packs[s][i]);
+                        if (want > 0) demand.put(s * c.packsPerStation + i, want);
+                    }
+                }
+            } else {
+                for (int r = 0; r < n; r++) if (station[r] >= 0) demand.put(r, c.curve.acceptRate(battery[r]));
+            }
+            Map<Integer, Double> given = SitePowerCap.allocate(demand, c.siteCap);
+            double draw = 0.0;
+            for (Map.Entry<Integer, Double> e : given.entrySet()) {
+                int k = e.getKey();
+                draw += e.getValue();
+                if (c.isSwap()) packs[k / c.packsPerStation][k % c.packsPerStation] += e.getValue();
+                else battery[k] = Math.min(100.0, battery[k] + e.getValue());
+            }
+            peakDraw = Math.max(peakDraw, draw);
+            drawSum += draw;
+
+            for (int r = 0; r < n; r++) {
+                int s = station[r];
+                if (s < 0) continue;
+                bayTicks++;
+                if (c.isSwap()) {
+                    if (--swapLeft[r] > 0) continue;
+                    int best = fullestPack(packs[s], c.targetLevel);
+                    if (best < 0) continue;           // no pack ready: wait on the lane
+                    double fresh = packs[s][best];
+                    packs[s][best] = battery[r];
+                    battery[r] = fresh;
+                }
+                if (battery[r] >= c.targetLevel) {
+                    station[r] = -1;
+                    freeBays[s]++;
+                    taskLeft[r] = c.ticksPerTask;
+                }
+            }
+
+            for (int r = 0; r < n; r++) {
+                if (taskLeft[r] == 0) continue;
+                battery[r] = Math.max(0.0, battery[r] - perTick);
+                if (--taskLeft[r] > 0) continue;
+                completed++;
+                if (battery[r] < c.lowLevel) {
+                    queuedAt[r] = tick;
+                    queue.add(r);
+                } else {
+                    taskLeft[r] = c.ticksPerTask;
+                }
+            }
+        }
+        return new Result(c, completed, sessions == 0 ? 0.0 : (double) waitSum / sessions,
+                (double) bayTicks / ((long) c.getBays() * c.horizon), peakDraw, drawSum / c.horizon);
+    }
+
+    /** Charging in place against swapping packs, on the same fleet and workload. */
+    public static List<Result> compareSwap(Config config, int packsPerStation, int swapTicks, double packRechargeRate) {
+        return List.of(run(config), run(config.withSwap(packsPerStation, swapTicks, packRechargeRate)));
+    }
+
+    /** The same fleet and chargers under each site cap in turn (0 for none). */
+    public static List<Result> sweep(Config config, double[] caps) {
+        List<Result> results = new ArrayList<>();
+        for (double cap : caps) results.add(run(config.withSiteCap(cap)));
+        return results;
+    }
+
+    /** Index of the fullest pack at or above {@code level}, or -1. */
+    private static int fullestPack(double[] packs, double level) {
+        int best = -1;
+        for (int i = 0; i < packs.length; i++) {
+            if (packs[i] >= level && (best < 0 || packs[i] > packs[best])) best = i;
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        int robots = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int stations = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int bays = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        Config c = Config.standard(robots, stations, bays);
+        System.out.printf("%d robots, %d stations x %d bays%n", robots, stations, bays);
+        for (Result r : sweep(c, new double[] {0, 12, 8, 6, 4, 2})) System.out.println(r);
+        System.out.println("swapping 4 packs per station, 3 ticks a swap, packs charging at 1% per tick:");
+        for (Result r : compareSwap(c, 4, 3, 1.0)) System.out.println(r);
+    }
+}
@@ -0,0 +1,73 @@
+package com.warehouse.simulation.charging;
+
+/**
+ * How fast a bay can charge a battery at a given state of charge. Constant current at the
+ * rated rate up to {@code cvStart}, then constant voltage: the rate tapers linearly towards
+ * zero at 100%, but never below {@code minRate}. Rates are in battery percent per tick;
+ * {@link #toKw} converts them for a given pack size and tick length.
+ */
+public final class ChargingCurve {
+
+    private static final double FULL = 100.0;
+
+    /** The original flat 4% per tick. */
+    public static final ChargingCurve DEFAULT = flat(4.0);
+
+    private final double ratedRate;
+    private final double cvStart;
+    private final double minRate;
+
+    public ChargingCurve(double ratedRate, double cvStart, double minRate) {
+        if (ratedRate <= 0) throw new IllegalArgumentException("ratedRate must be positive");
+        this.ratedRate = ratedRate;
+        this.cvStart = Math.max(0.0, Math.min(FULL, cvStart));
+        this.minRate = Math.max(0.0, Math.min(ratedRate, minRate));
+    }
+
+    /** The same rate all the way to full. */
+    public static ChargingCurve flat(double rate) {
+        return new ChargingCurve(rate, FULL, rate);
+    }
+
+    /** Constant current to {@code cvStart}, tapering after it. */
+    public static ChargingCurve ccCv(double ratedRate, double cvStart, double minRate) {
+        return new ChargingCurve(ratedRate, cvStart, minRate);
+    }
+
+    public double getRatedRate() { return ratedRate; }
+    public double getCvStart() { return cvStart; }
+    public double getMinRate() { return minRate; }
+
+    /** Most the battery takes in one tick at {@code soc} percent. */
+    public double acceptRate(double soc) {
+        if (soc >= FULL) return 0.0;
+        if (soc < cvStart || cvStart >= FULL) return Math.min(ratedRate, FULL - soc);
+        double taper = ratedRate * (FULL - soc) / (FULL - cvStart);
+        return Math.min(Math.max(minRate, taper), FULL - soc);
+    }
+
+    /** Ticks to go from {@code from} to {@code to} percent at full rate. */
+    public int ticksToCharge(double from, double to) {
+        double soc = from;
+        double target = Math.min(FULL, to);
+        int ticks = 0;
+        while (soc < target && ticks < 100_000) {
+            double rate = acceptRate(soc);
+            if (rate <= 0) break;
+            soc += rate;
+            ticks++;
+        }
+        return ticks;
+    }
+
+    /** Power in kW of a rate in percent per tick, for a pack of {@code packKWh} and ticks of {@code tickMs}. */
+    public static double toKw(double ratePerTick, double packKWh, long tickMs) {
+        if (tickMs <= 0) return 0.0;
+        return ratePerTick / FULL * packKWh * 3_600_000.0 / tickMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("rated=%.2f cv>=%.0f%% min=%.2f", ratedRate, cvStart, minRate);
+    }
+}
@@ -0,0 +1,190 @@
+package com.warehouse.simulation.charging;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.warehouse.simulation.tasks.Tasks;
+
+/**
+ * When robots charge and for how long. Three independent knobs:
+ * <ul>
+ * <li>target level: a session ends once the battery reaches it instead of at 100%;</li>
+ * <li>opportunistic top-up: an idle robot below the top-up level drives to a free station
+ *     within the top-up radius without waiting to run low;</li>
+ * <li>preemption: a robot charged above the preempt level leaves the station when a task of
+ *     the preempt priority is waiting and no robot is idle.</li>
+ * </ul>
+ * Every robot using the policy adds to its {@link Stats}, so policies can be compared on
+ * energy charged, time spent charging and tasks completed.
+ */
+public class ChargingPolicy {
+
+    private static final double MAX_LEVEL = 100.0;
+    // a top-up must be worth at least this much charge, or robots would shuttle to the station
+    private static final double MIN_TOP_UP_GAIN = 10.0;
+
+    /** What the robots using one policy did with their time and energy. */
+    public static final class Stats {
+        private final LongAdder sessions = new LongAdder();
+        private final LongAdder topUps = new LongAdder();
+        private final LongAdder preemptions = new LongAdder();
+        private final DoubleAdder energyCharged = new DoubleAdder();
+        private final LongAdder robotTicks = new LongAdder();
+        private final LongAdder chargingTicks = new LongAdder();
+        private final LongAdder waitingTicks = new LongAdder();
+        private final LongAdder tasksCompleted = new LongAdder();
+
+        public void recordSession(boolean topUp) {
+            sessions.increment();
+            if (topUp) topUps.increment();
+        }
+
+        public void recordPreemption() { preemptions.increment(); }
+
+        public void recordCharge(double energy) {
+            if (energy > 0) energyCharged.add(energy);
+        }
+
+        /** One robot tick; {@code charging} covers driving to and waiting for a station too. */
+        public void recordTick(boolean charging, boolean waiting) {
+            robotTicks.increment();
+            if (charging) chargingTicks.increment();
+            if (waiting) waitingTicks.increment();
+        }
+
+        public void recordCompleted(int tasks) {
+            if (tasks > 0) tasksCompleted.add(tasks);
+        }
+
+        public long getSessions() { return sessions.sum(); }
+        public long getTopUps() { return topUps.sum(); }
+        public long getPreemptions() { return preemptions.sum(); }
+        public double getEnergyCharged() { return energyCharged.sum(); }
+        public long getRobotTicks() { return robotTicks.sum(); }
+        public long getChargingTicks() { return chargingTicks.sum(); }
+        public long getWaitingTicks() { return waitingTicks.sum(); }
+        public long getTasksCompleted() { return tasksCompleted.sum(); }
+
+        /** Mean charge added per session. */
+        public double getEnergyPerSession() {
+            long n = getSessions();
+            return n == 0 ? 0.0 : getEnergyCharged() / n;
+        }
+
+        /** Share of robot time not spent on or on the way to a charger. */
+        public double getAvailability() {
+            long ticks = getRobotTicks();
+            return ticks == 0 ? 1.0 : 1.0 - (double) getChargingTicks() / ticks;
+        }
+
+        /** Tasks completed per 1000 robot ticks. */
+        public double getThroughput() {
+            long ticks = getRobotTicks();
+            return ticks == 0 ? 0.0 : getTasksCompleted() * 1000.0 / ticks;
+        }
+
+        public void reset() {
+            sessions.reset();
+            topUps.reset();
+            preemptions.reset();
+            energyCharged.reset();
+            robotTicks.reset();
+            chargingTicks.reset();
+            waitingTicks.reset();
+            tasksCompleted.reset();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sessions=%d topUps=%d preempted=%d energy=%.1f perSession=%.1f available=%.1f%% thr=%.2f",
+                    getSessions(), getTopUps(), getPreemptions(), getEnergyCharged(), getEnergyPerSession(),
+                    getAvailability() * 100.0, getThroughput());
+        }
+    }
+
+    private final String name;
+    private volatile double targetLevel = MAX_LEVEL;
+    private volatile double topUpBelow = 0.0;     // 0 = no opportunistic top-up
+    private volatile int topUpRadius = 0;
+    private volatile double preemptAbove = Double.POSITIVE_INFINITY;   // never
+    private volatile Tasks.Priority preemptPriority = Tasks.Priority.EXPRESS;
+    private final Stats stats = new Stats();
+
+    public ChargingPolicy(String name) {
+        this.name = name == null ? "custom" : name;
+    }
+
+    /** Charge to full only after running low (the original behaviour). */
+    public static ChargingPolicy fullCharge() {
+        return new ChargingPolicy("full");
+    }
+
+    /** Stop charging at {@code level}. */
+    public static ChargingPolicy targetLevel(double level) {
+        ChargingPolicy p = new ChargingPolicy("target-" + (int) level);
+        p.setTargetLevel(level);
+        return p;
+    }
+
+    /** Idle robots below 70% top up at a free station within 5 cells. */
+    public static ChargingPolicy opportunistic() {
+        ChargingPolicy p = new ChargingPolicy("opportunistic");
+        p.setTopUp(70.0, 5);
+        return p;
+    }
+
+    /** Robots above 60% leave the charger for waiting express tasks. */
+    public static ChargingPolicy preemptive() {
+        ChargingPolicy p = new ChargingPolicy("preemptive");
+        p.setPreemption(60.0, Tasks.Priority.EXPRESS);
+        return p;
+    }
+
+    public String getName() { return name; }
+
+    public void setTargetLevel(double level) {
+        this.targetLevel = Math.max(0.0, Math.min(MAX_LEVEL, level));
+    }
+
+    public double getTargetLevel() { return targetLevel; }
+
+    /** Top up while idle below {@code belowLevel} at a free station at most {@code radius} cells away. */
+    public void setTopUp(double belowLevel, int radius) {
+        this.topUpBelow = Math.max(0.0, belowLevel);
+        this.topUpRadius = Math.max(0, radius);
+    }
+
+    public double getTopUpLevel() { return topUpBelow; }
+    public int getTopUpRadius() { return topUpRadius; }
+
+    /** Leave the charger above {@code aboveLevel} when a task of {@code priority} or higher waits. */
+    public void setPreemption(double aboveLevel, Tasks.Priority priority) {
+        this.preemptAbove = aboveLevel;
+        this.preemptPriority = priority == null ? Tasks.Priority.EXPRESS : priority;
+    }
+
+    public double getPreemptLevel() { return preemptAbove; }
+    public Tasks.Priority getPreemptPriority() { return preemptPriority; }
+
+    /** Whether a session at {@code battery} is done. */
+    public boolean isCharged(double battery) {
+        return battery >= targetLevel;
+    }
+
+    /** Whether an idle robot at {@code battery} should look for a nearby free station. */
+    public boolean wantsTopUp(double battery) {
+        return topUpBelow > 0 && battery < topUpBelow && battery < targetLevel - MIN_TOP_UP_GAIN;
+    }
+
+    /** Whether a charging robot at {@code battery} may be called off for urgent work. */
+    public boolean mayPreempt(double battery) {
+        return battery >= preemptAbove;
+    }
+
+    public Stats getStats() { return stats; }
+
+    @Override
+    public String toString() {
+        return name + ": " + stats;
+    }
+}
@@ -0,0 +1,253 @@
+package com.warehouse.simulation.charging;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+/**
+ * Timeline of every charging station: who charges there now and who has booked it for
+ * later. Robots that see their battery will run low book the earliest slot they can reach
+ * and set off just in time to arrive when it starts, instead of queueing at a busy station.
+ * A station with several bays takes that many overlapping slots.
+ * All times are System.currentTimeMillis().
+ */
+public class ChargingScheduler {
+
+    // a booking not taken up this long after its start is given up
+    private static final long DEFAULT_NO_SHOW_MS = 30_000;
+
+    /** A period on one station, either booked ahead or being charged in. */
+    public static final class Slot {
+        private final String robotId;
+        private final ChargingStation station;
+        private final long departAt;
+        private final long start;
+        private final long end;
+        private final boolean charging;
+
+        Slot(String robotId, ChargingStation station, long departAt, long start, long end, boolean charging) {
+            this.robotId = robotId;
+            this.station = station;
+            this.departAt = departAt;
+            this.start = start;
+            this.end = end;
+            this.charging = charging;
+        }
+
+        public String getRobotId() { return robotId; }
+        public ChargingStation getStation() { return station; }
+        /** When the robot should leave to arrive at the start of the slot. */
+        public long getDepartAt() { return departAt; }
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+        /** True once the robot is on the station. */
+        public boolean isCharging() { return charging; }
+    }
+
+    private final Map<ChargingStation, TreeMap<Long, Slot>> timelines = new IdentityHashMap<>();
+    private final Map<String, Slot> byRobot = new HashMap<>();
+    private long noShowMs = DEFAULT_NO_SHOW_MS;
+
+    public ChargingScheduler(Collection<ChargingStation> stations) {
+        if (stations != null) for (ChargingStation s : stations) addStation(s);
+    }
+
+    public synchronized void addStation(ChargingStation station) {
+        if (station != null) timelines.putIfAbsent(station, new TreeMap<>());
+    }
+
+    public synchronized void setNoShowTimeout(long ms) {
+        this.noShowMs = Math.max(0, ms);
+    }
+
+    /**
+     * Book the slot that starts soonest across all stations for a robot that is free to leave
+     * {@code from} at {@code readyAt} and needs {@code chargeMs} on the station. Replaces any
+     * booking the robot had. Returns null if there are no stations.
+     */
+    public Slot book(String robotId, Point from, long readyAt, long chargeMs, ToLongFunction<Point> travelMs) {
+        return book(robotId, from, readyAt, s -> chargeMs, travelMs);
+    }
+
+    /**
+     * Same, for stations that need different times ({@code serviceMs}, e.g. a swap against
+     * a charge): the slot that is done soonest wins.
+     */
+    public synchronized Slot book(String robotId, Point from, long readyAt, ToLongFunction<ChargingStation> serviceMs,
+                                  ToLongFunction<Point> travelMs) {
+        if (robotId == null) return null;
+        long now = System.currentTimeMillis();
+        dropExpired(now);
+        cancel(robotId);
+        ChargingStation best = null;
+        long bestStart = Long.MAX_VALUE;
+        long bestEnd = Long.MAX_VALUE;
+        long bestTravel = Long.MAX_VALUE;
+        for (Map.Entry<ChargingStation, TreeMap<Long, Slot>> e : timelines.entrySet()) {
+            long travel = travelMs == null || from == null ? 0 : Math.max(0, travelMs.applyAsLong(e.getKey().getLocation()));
+            long length = Math.max(0, serviceMs.applyAsLong(e.getKey()));
+            long start = earliestFit(e.getValue(), Math.max(readyAt, now) + travel, length, e.getKey().getBayCount());
+            long end = start + length;
+            if (end < bestEnd || (end == bestEnd && travel < bestTravel)) {
+                best = e.getKey();
+                bestStart = start;
+                bestEnd = end;
+                bestTravel = travel;
+            }
+        }
+        if (best == null) return null;
+        Slot slot = new Slot(robotId, best, bestStart - bestTravel, bestStart, bestEnd, false);
+        put(slot);
+        return slot;
+    }
+
+    /**
+     * Whether a bay of the station is left between {@code from} and {@code to} after the
+     * slots of everyone but {@code robotId} (may be null).
+     */
+    public synchronized boolean isFree(ChargingStation station, long from, long to, String robotId) {
+        TreeMap<Long, Slot> line = timelines.get(station);
+        if (line == null) return true;
+        dropExpired(System.currentTimeMillis());
+        List<Slot> others = new ArrayList<>();
+        for (Slot s : line.values()) {
+            if (s.start >= to) break;
+            if (s.end > from && !s.robotId.equals(robotId)) others.add(s);
+        }
+        return peakOverlap(others, from, to) < station.getBayCount();
+    }
+
+    /**
+     * The robot is on the station: turn its booking there into the charging period, or
+     * record one if it came without a booking.
+     */
+    public synchronized Slot startCharging(String robotId, ChargingStation station, long chargeMs) {
+        if (robotId == null || station == null) return null;
+        long now = System.currentTimeMillis();
+        Slot booked = byRobot.get(robotId);
+        if (booked != null) remove(booked);
+        Slot slot = new Slot(robotId, station, now, now, now + Math.max(0, chargeMs), true);
+        addStation(station);
+        put(slot);
+        return slot;
+    }
+
+    /** Every bay of the station was let go: their charging periods end now. */
+    public synchronized void finishCharging(ChargingStation station) {
+        finishCharging(station, null);
+    }
+
+    /** The robot let go of its bay (null: every bay): its charging period ends now. */
+    public synchronized void finishCharging(ChargingStation station, String robotId) {
+        TreeMap<Long, Slot> line = timelines.get(station);
+        if (line == null) return;
+        for (Slot s : new ArrayList<>(line.values())) {
+            if (s.charging && (robotId == null || s.robotId.equals(robotId))) remove(s);
+        }
+    }
+
+    public synchronized Slot getBooking(String robotId) {
+        if (robotId == null) return null;
+        dropExpired(System.currentTimeMillis());
+        Slot s = byRobot.get(robotId);
+        return s == null || s.charging ? null : s;
+    }
+
+    public synchronized void cancel(String robotId) {
+        Slot s = robotId == null ? null : byRobot.get(robotId);
+        if (s != null && !s.charging) remove(s);
+    }
+
+    /** Every booked and charging slot of a station, in start order. */
+    public synchronized List<Slot> getTimeline(ChargingStation station) {
+        TreeMap<Long, Slot> line = timelines.get(station);
+        return line == null ? new ArrayList<>() : new ArrayList<>(line.values());
+    }
+
+    public synchronized int getBookingCount() {
+        int n = 0;
+        for (Slot s : byRobot.values()) if (!s.charging) n++;
+        return n;
+    }
+
+    public synchronized void clear() {
+        for (TreeMap<Long, Slot> line : timelines.values()) line.clear();
+        byRobot.clear();
+    }
+
+    //-------- helpers ------------
+
+    /** First start at or after {@code t} where a bay is free for {@code length}. */
+    private static long earliestFit(TreeMap<Long, Slot> line, long t, long length, int bays) {
+        // a slot can only start at t or when another one ends
+        List<Long> candidates = new ArrayList<>();
+        candidates.add(t);
+        for (Slot s : line.values()) if (s.end > t) candidates.add(s.end);
+        candidates.sort(null);
+        for (long c : candidates) {
+            List<Slot> overlapping = new ArrayList<>();
+            for (Slot s : line.values()) {
+                if (s.start >= c + length) break;
+                if (s.end > c) overlapping.add(s);
+            }
+            if (peakOverlap(overlapping, c, c + length) < bays) return c;
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+
+    /** Most slots running at the same moment within [from, to). */
+    private static int peakOverlap(List<Slot> slots, long from, long to) {
+        if (slots.size() <= 1) return slots.size();
+        List<long[]> edges = new ArrayList<>();
+        for (Slot s : slots) {
+            edges.add(new long[] {Math.max(s.start, from), 1});
+            edges.add(new long[] {Math.min(s.end, to), -1});
+        }
+        // an end and a start at the same moment do not overlap
+        edges.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        int running = 0;
+        int peak = 0;
+        for (long[] e : edges) {
+            running += (int) e[1];
+            peak = Math.max(peak, running);
+        }
+        return peak;
+    }
+
+    private void put(Slot slot) {
+        TreeMap<Long, Slot> line = timelines.get(slot.station);
+        long start = slot.start;
+        // a late arrival can start at the same millisecond as a booked slot; keep both
+        while (line.containsKey(start)) start++;
+        line.put(start, slot);
+        byRobot.put(slot.robotId, slot);
+    }
+
+    private void remove(Slot slot) {
+        TreeMap<Long, Slot> line = timelines.get(slot.station);
+        if (line != null) line.values().remove(slot);
+        byRobot.remove(slot.robotId, slot);
+    }
+
+    private void dropExpired(long now) {
+        for (TreeMap<Long, Slot> line : timelines.values()) {
+            Iterator<Slot> it = line.values().iterator();
+            while (it.hasNext()) {
+                Slot s = it.next();
+                if (s.start > now) break;
+                // overdue charging periods stay until the station is released
+                if (!s.charging && now - s.start > noShowMs) {
+                    it.remove();
+                    byRobot.remove(s.robotId, s);
+                }
+            }
+        }
+    }
+}
@@ -9,6 +9,9 @@ import java.awt.Point;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 
@@ -17,15 +20,22 @@ public class ChargingStation implements IGridEntity {
     private static int num = 0;
     private final String id;
     private final Point location;
-    private boolean isAvailable = true;
-    private Robot occupant = null;
+    // one slot per bay, null while free; claimed with a CAS so no lock is held around the log writes
+    private final AtomicReferenceArray<Robot> bays;
+    private volatile ChargingCurve curve = ChargingCurve.DEFAULT;
     private LogManager logManager;
     private final DateTimeFormatter df = DateTimeFormatter.ISO_DATE;
 
 
     public ChargingStation(Point location) {
+        this(location, 1);
+    }
+
+    /** A station with {@code bayCount} bays that can charge robots at the same time. */
+    public ChargingStation(Point location, int bayCount) {
         
         this.location = location;
+        this.bays = new AtomicReferenceArray<>(Math.max(1, bayCount));
         this.id = "ch_st_" + num;
         num++;
         
@@ -48,11 +58,10 @@ public class ChargingStation implements IGridEntity {
     }
     
     
-    public synchronized boolean occupy(Robot robot) {
-        if (this.isAvailable) {
-            this.isAvailable = false;
-            this.occupant = robot;
-            
+    public boolean occupy(Robot robot) {
+        if (robot == null) return false;
+        for (int i = 0; i < bays.length(); i++) {
+            if (!bays.compareAndSet(i, null, robot)) continue;
             
              if (logManager != null) {
                     String date = df.format(LocalDate.now());
@@ -66,27 +75,107 @@ public class ChargingStation implements IGridEntity {
         }
         return false;
     }
+
+    /** Pass {@code from}'s bay (a free one when {@code from} is null) straight to the next robot. */
+    public boolean handOver(Robot from, Robot to) {
+        if (to == null) return false;
+        for (int i = 0; i < bays.length(); i++) {
+            if (!bays.compareAndSet(i, from, to)) continue;
+            if (logManager != null) {
+                String date = df.format(LocalDate.now());
+                String fileName = String.format("ChargingStationLogs/%s-%s.log", this.getID(), date);
+                String msg = String.format("[%s] Charging station %s is handed over to %s", LocalDateTime.now(), this.getID(), to.getID());
+                logManager.writeLog(fileName, msg);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /** Free the bay {@code robot} is on; false if it is not on this station. */
+    public boolean release(Robot robot) {
+        if (robot == null) return false;
+        for (int i = 0; i < bays.length(); i++) {
+            if (bays.compareAndSet(i, robot, null)) {
+                logRelease();
+                return true;
+            }
+        }
+        return false;
+    }
     
-    public synchronized void release() {
-        this.isAvailable = true;
-        this.occupant = null;
-        
+    /** Free every bay. */
+    public void release() {
+        for (int i = 0; i < bays.length(); i++) bays.set(i, null);
+        logRelease();
+    }
+
+    private void logRelease() {
+        log("is available again");
+    }
+
+    /** Write "Charging station <id> <event>" to the station's log. */
+    protected void log(String event) {
         if (logManager != null) {
             String date = df.format(LocalDate.now());
             String fileName = String.format("ChargingStationLogs/%s-%s.log", this.getID(), date);
-            String msg = String.format("[%s] Charging station %s is available again", LocalDateTime.now(), this.getID());
+            String msg = String.format("[%s] Charging station %s %s", LocalDateTime.now(), this.getID(), event);
             logManager.writeLog(fileName, msg);
         }
-        
-        
     }
     
     
+    /** True while at least one bay is free. */
     public boolean isAvailable() {
-        return this.isAvailable;
+        return getFreeBays() > 0;
     }
 
-    public Robot getOccupant() { return this.occupant; }
+    /** The robot on the first occupied bay, or null. */
+    public Robot getOccupant() {
+        for (int i = 0; i < bays.length(); i++) {
+            Robot r = bays.get(i);
+            if (r != null) return r;
+        }
+        return null;
+    }
+
+    public List<Robot> getOccupants() {
+        List<Robot> out = new ArrayList<>();
+        for (int i = 0; i < bays.length(); i++) {
+            Robot r = bays.get(i);
+            if (r != null) out.add(r);
+        }
+        return out;
+    }
+
+    public int getBayCount() { return bays.length(); }
+
+    public int getFreeBays() {
+        int n = 0;
+        for (int i = 0; i < bays.length(); i++) if (bays.get(i) == null) n++;
+        return n;
+    }
+
+    public ChargingCurve getCurve() { return this.curve; }
+
+    public void setCurve(ChargingCurve curve) {
+        this.curve = curve != null ? curve : ChargingCurve.DEFAULT;
+    }
+
+    /** Charge the robot on a bay takes this tick, before the site power cap. */
+    public double acceptRate(Robot robot) {
+        return curve.acceptRate(robot.getBattery());
+    }
+
+    /** Whether {@link #acceptRate} is drawn from the site power cap. */
+    public boolean drawsSitePower() {
+        return true;
+    }
+
+    /** Ticks on a bay to bring a battery from {@code from} to {@code to} percent. */
+    public int ticksToService(double from, double to) {
+        return curve.ticksToCharge(from, to);
+    }
     
     
     
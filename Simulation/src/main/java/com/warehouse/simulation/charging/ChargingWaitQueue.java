@@ -0,0 +1,102 @@
+package com.warehouse.simulation.charging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import com.warehouse.simulation.robots.Robot;
+
+/**
+ * Robots waiting for a charger, lowest battery first and first come among equals. A
+ * concurrent skip list keeps the order and a map by robot finds an entry, so joining,
+ * leaving and taking the next robot are all O(log n) and take no lock. Whoever removes a
+ * robot from the map owns that entry, so a robot is never handed out twice.
+ */
+public class ChargingWaitQueue {
+
+    private static final class Entry implements Comparable<Entry> {
+        final Robot robot;
+        final double battery;   // when it joined; entries must not move in the order
+        final long seq;
+
+        Entry(Robot robot, double battery, long seq) {
+            this.robot = robot;
+            this.battery = battery;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            int c = Double.compare(battery, o.battery);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+
+    private final ConcurrentSkipListSet<Entry> order = new ConcurrentSkipListSet<>();
+    private final ConcurrentMap<String, Entry> byRobot = new ConcurrentHashMap<>();
+    private final AtomicLong seq = new AtomicLong();
+
+    /** Join the queue; false if the robot is already waiting. */
+    public boolean add(Robot robot) {
+        if (robot == null) return false;
+        Entry e = new Entry(robot, robot.getBattery(), seq.incrementAndGet());
+        if (byRobot.putIfAbsent(robot.getID(), e) != null) return false;
+        order.add(e);
+        return true;
+    }
+
+    /** Leave the queue; false if the robot was not waiting (or was just handed a station). */
+    public boolean remove(Robot robot) {
+        if (robot == null) return false;
+        Entry e = byRobot.remove(robot.getID());
+        if (e == null) return false;
+        order.remove(e);
+        return true;
+    }
+
+    /** Take the lowest-battery robot that {@code accept} agrees to, or null. */
+    public Robot poll(Predicate<Robot> accept) {
+        for (Entry e : order) {
+            if (byRobot.get(e.robot.getID()) != e) {
+                order.remove(e);   // left the queue while being added
+                continue;
+            }
+            if (accept != null && !accept.test(e.robot)) continue;
+            if (byRobot.remove(e.robot.getID(), e)) {
+                order.remove(e);
+                return e.robot;
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(Robot robot) {
+        return robot != null && byRobot.containsKey(robot.getID());
+    }
+
+    public boolean isEmpty() {
+        return byRobot.isEmpty();
+    }
+
+    public int size() {
+        return byRobot.size();
+    }
+
+    /** Waiting robots in the order they will be served. */
+    public List<Robot> snapshot() {
+        List<Robot> out = new ArrayList<>();
+        for (Entry e : order) {
+            if (byRobot.get(e.robot.getID()) == e) out.add(e.robot);
+        }
+        return out;
+    }
+
+    public void clear() {
+        byRobot.clear();
+        order.clear();
+    }
+}
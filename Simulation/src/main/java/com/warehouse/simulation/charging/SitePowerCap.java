@@ -0,0 +1,81 @@
+package com.warehouse.simulation.charging;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Site-wide limit on charging power, shared out among the active bays. Every charging robot
+ * reports what its battery would take this tick; the cap is divided max-min fair (water
+ * filling): nobody gets more than it asks for, and what a bay does not need goes to the
+ * others. Power is in the same unit as {@link ChargingCurve} rates (percent per tick).
+ */
+public class SitePowerCap {
+
+    private volatile double cap = Double.POSITIVE_INFINITY;
+    private final ConcurrentMap<String, Double> demand = new ConcurrentHashMap<>();
+
+    public void setCap(double cap) {
+        this.cap = cap <= 0 ? Double.POSITIVE_INFINITY : cap;
+    }
+
+    public double getCap() { return cap; }
+
+    /**
+     * The robot wants {@code accept} this tick; returns what it gets given everyone else's
+     * latest demand.
+     */
+    public double draw(String robotId, double accept) {
+        if (robotId == null) return Math.max(0.0, accept);
+        demand.put(robotId, Math.max(0.0, accept));
+        double c = cap;
+        if (c == Double.POSITIVE_INFINITY) return Math.max(0.0, accept);
+        Double share = allocate(new HashMap<>(demand), c).get(robotId);
+        return share == null ? 0.0 : share;
+    }
+
+    /** The robot stopped charging. */
+    public void release(String robotId) {
+        if (robotId != null) demand.remove(robotId);
+    }
+
+    /** Sum of what the active bays ask for. */
+    public double getDemand() {
+        double sum = 0.0;
+        for (double d : demand.values()) sum += d;
+        return sum;
+    }
+
+    /** Power drawn now: the demand, or the cap when the demand is above it. */
+    public double getDraw() {
+        return Math.min(cap, getDemand());
+    }
+
+    public int getActiveCount() {
+        return demand.size();
+    }
+
+    public void clear() {
+        demand.clear();
+    }
+
+    /** Max-min fair split of {@code cap} among the demands. */
+    public static <K> Map<K, Double> allocate(Map<K, Double> demands, double cap) {
+        Map<K, Double> out = new HashMap<>();
+        List<Map.Entry<K, Double>> order = new ArrayList<>(demands.entrySet());
+        order.sort(Map.Entry.comparingByValue());
+        double left = Math.max(0.0, cap);
+        int n = order.size();
+        for (int i = 0; i < n; i++) {
+            Map.Entry<K, Double> e = order.get(i);
+            double share = left / (n - i);
+            double given = Math.min(Math.max(0.0, e.getValue()), share);
+            out.put(e.getKey(), given);
+            left -= given;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,93 @@
+package com.warehouse.simulation.charging;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import com.warehouse.simulation.utils.DistanceFields;
+import com.warehouse.simulation.utils.PathFinder;
+import com.warehouse.simulation.utils.WarehouseGrid;
+
+/**
+ * Charging stations by location, with the driving distance from anywhere on the floor to
+ * each location. For every location a {@link DistanceFields} field (one breadth-first search
+ * from the station over the free cells) is computed the first time it is needed, so
+ * afterwards a distance is one array read. Floors too large for a field per location fall
+ * back to {@link PathFinder}. The fields follow changes to the grid by themselves.
+ */
+public class StationDirectory {
+
+    public static final int UNREACHABLE = DistanceFields.UNREACHABLE;
+
+    private final PathFinder pathFinder;
+    private final Map<Point, List<ChargingStation>> byLocation = new LinkedHashMap<>();
+    private final DistanceFields fields;
+
+    public StationDirectory(WarehouseGrid grid, PathFinder pathFinder) {
+        this.pathFinder = pathFinder;
+        this.fields = new DistanceFields(grid, Integer.MAX_VALUE);
+    }
+
+    public synchronized void add(ChargingStation station) {
+        if (station == null) return;
+        List<ChargingStation> at = byLocation.computeIfAbsent(new Point(station.getLocation()), k -> new ArrayList<>());
+        if (!at.contains(station)) at.add(station);
+        // the station itself now blocks its cell for everyone else's fields
+        fields.invalidate();
+    }
+
+    public synchronized List<ChargingStation> getStationsAt(Point location) {
+        List<ChargingStation> at = location == null ? null : byLocation.get(location);
+        return at == null ? Collections.emptyList() : new ArrayList<>(at);
+    }
+
+    public synchronized List<Point> getLocations() {
+        List<Point> out = new ArrayList<>();
+        for (Point p : byLocation.keySet()) out.add(new Point(p));
+        return out;
+    }
+
+    public synchronized int size() {
+        int n = 0;
+        for (List<ChargingStation> at : byLocation.values()) n += at.size();
+        return n;
+    }
+
+    /** Forget the distance fields; they are rebuilt on the next lookup. */
+    public void invalidate() {
+        fields.invalidate();
+    }
+
+    /** Station locations that can be reached from {@code from}, nearest by driving distance first. */
+    public List<Point> locationsByDistance(Point from) {
+        List<Point> locations = getLocations();
+        if (from == null) return locations;
+        Map<Point, Integer> dist = new LinkedHashMap<>();
+        for (Point p : locations) {
+            int d = pathDistance(from, p);
+            if (d != UNREACHABLE) dist.put(p, d);
+        }
+        List<Point> out = new ArrayList<>(dist.keySet());
+        out.sort(Comparator.comparingInt(dist::get));
+        return out;
+    }
+
+    /** Cells to drive from {@code from} to the station location {@code to}, or {@link #UNREACHABLE}. */
+    public int pathDistance(Point from, Point to) {
+        int d = fields.distance(from, to);
+        return d == DistanceFields.UNKNOWN ? searchDistance(from, to) : d;
+    }
+
+    //-------- helpers ------------
+
+    private int searchDistance(Point from, Point to) {
+        if (pathFinder == null) return Math.abs(from.x - to.x) + Math.abs(from.y - to.y);
+        Queue<Point> path = pathFinder.findPath(from, to);
+        return path == null ? UNREACHABLE : Math.max(0, path.size() - 1);
+    }
+}
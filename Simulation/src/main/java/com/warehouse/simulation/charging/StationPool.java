@@ -0,0 +1,90 @@
+package com.warehouse.simulation.charging;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Free charging bays, one lock-free deque per location. A station is in the pool once for
+ * every bay nobody holds; taking one is a single removal from its deque, so robots asking for
+ * a charger at the same time never wait on each other.
+ */
+public class StationPool {
+
+    private final ConcurrentMap<Point, Deque<ChargingStation>> free = new ConcurrentHashMap<>();
+    private final Set<ChargingStation> known = ConcurrentHashMap.newKeySet();
+
+    /** Register a station; it joins the pool once per free bay. */
+    public void add(ChargingStation station) {
+        if (station == null || !known.add(station)) return;
+        for (int i = station.getFreeBays(); i > 0; i--) offer(station);
+    }
+
+    /** Start over from the stations' current bays (after they were all released by hand). */
+    public void rebuild(Collection<ChargingStation> stations) {
+        free.clear();
+        known.clear();
+        if (stations != null) for (ChargingStation s : stations) add(s);
+    }
+
+    /** Put a bay that was let go back into the pool. */
+    public void offer(ChargingStation station) {
+        if (station == null) return;
+        free.computeIfAbsent(new Point(station.getLocation()), k -> new ConcurrentLinkedDeque<>()).offerFirst(station);
+    }
+
+    /**
+     * Take a free station that {@code accept} agrees to, trying locations nearest to
+     * {@code near} first. Returns null when there is none.
+     */
+    public ChargingStation acquire(Point near, Predicate<ChargingStation> accept) {
+        List<Point> locations = new ArrayList<>(free.keySet());
+        if (near != null && locations.size() > 1) {
+            locations.sort(Comparator.comparingInt(p -> Math.abs(p.x - near.x) + Math.abs(p.y - near.y)));
+        }
+        return acquire(locations, accept);
+    }
+
+    /** Take a free station that {@code accept} agrees to, trying the locations in the given order. */
+    public ChargingStation acquire(List<Point> locations, Predicate<ChargingStation> accept) {
+        for (Point location : locations) {
+            Deque<ChargingStation> stations = free.get(location);
+            if (stations == null) continue;
+            for (ChargingStation s : stations) {
+                if ((accept == null || accept.test(s)) && stations.removeFirstOccurrence(s)) return s;
+            }
+        }
+        return null;
+    }
+
+    /** Take a bay of this particular station if one is free. */
+    public boolean remove(ChargingStation station) {
+        if (station == null) return false;
+        Deque<ChargingStation> stations = free.get(station.getLocation());
+        return stations != null && stations.removeFirstOccurrence(station);
+    }
+
+    /** Free bays over all locations. */
+    public int getFreeCount() {
+        int n = 0;
+        for (Deque<ChargingStation> stations : free.values()) n += stations.size();
+        return n;
+    }
+
+    /** Number of free bays per location. */
+    public Map<Point, Integer> getFreeByLocation() {
+        Map<Point, Integer> out = new LinkedHashMap<>();
+        for (Map.Entry<Point, Deque<ChargingStation>> e : free.entrySet()) out.put(new Point(e.getKey()), e.getValue().size());
+        return out;
+    }
+}
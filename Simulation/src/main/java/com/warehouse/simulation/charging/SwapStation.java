@@ -0,0 +1,172 @@
+package com.warehouse.simulation.charging;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.warehouse.simulation.robots.Robot;
+
+/**
+ * A station that swaps a robot's battery pack for a charged one instead of charging it in
+ * place. It keeps an inventory of packs; depleted packs recharge in the background at
+ * {@code rechargeRate} percent per tick. A swap takes {@code swapTicks} ticks on a lane and
+ * needs a pack charged to the robot's target level; without one the robot waits on the lane.
+ * The pack chargers have their own supply and are not limited by the site power cap.
+ */
+public class SwapStation extends ChargingStation {
+
+    private static final double FULL = 100.0;
+    /** Length of a tick for the background recharge, as the robots tick. */
+    public static final long DEFAULT_TICK_MS = 1000;
+
+    private final double[] packs;
+    // ticks each robot on a lane has spent on its swap so far
+    private final Map<Robot, Integer> progress = new ConcurrentHashMap<>();
+    private volatile int swapTicks;
+    private volatile double rechargeRate;
+    private final long tickMs;
+    private long rechargedAt;
+    private final LongAdder swaps = new LongAdder();
+    private final LongAdder stockouts = new LongAdder();
+
+    /** One lane, {@code packCount} full packs, 1000 ms ticks. */
+    public SwapStation(Point location, int packCount, int swapTicks, double rechargeRate) {
+        this(location, 1, packCount, swapTicks, rechargeRate, DEFAULT_TICK_MS);
+    }
+
+    public SwapStation(Point location, int lanes, int packCount, int swapTicks, double rechargeRate, long tickMs) {
+        super(location, lanes);
+        this.packs = new double[Math.max(0, packCount)];
+        Arrays.fill(this.packs, FULL);
+        this.swapTicks = Math.max(1, swapTicks);
+        this.rechargeRate = Math.max(0.0, rechargeRate);
+        this.tickMs = Math.max(1, tickMs);
+        this.rechargedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * One tick of the robot's swap: nothing until the swap is done, then the difference
+     * between the fresh pack and the robot's old one. The old pack stays to recharge.
+     */
+    @Override
+    public double acceptRate(Robot robot) {
+        int ticks = progress.merge(robot, 1, Integer::sum);
+        if (ticks < swapTicks) return 0.0;
+        double need = Math.min(FULL, Math.max(robot.getBattery(), robot.getChargingPolicy().getTargetLevel()));
+        double fresh = takePack(robot.getBattery(), need);
+        if (Double.isNaN(fresh)) {
+            // no pack ready: the robot waits on the lane for the next one
+            if (ticks == swapTicks) stockouts.increment();
+            return 0.0;
+        }
+        progress.remove(robot);
+        swaps.increment();
+        log(String.format("swapped a %.0f%% pack of %s for a %.0f%% one", robot.getBattery(), robot.getID(), fresh));
+        return fresh - robot.getBattery();
+    }
+
+    @Override
+    public boolean drawsSitePower() {
+        return false;
+    }
+
+    /** The swap, plus the wait for a pack that is not charged far enough yet. */
+    @Override
+    public int ticksToService(double from, double to) {
+        double target = Math.min(FULL, to);
+        double best = getBestPack();
+        if (best >= target) return swapTicks;
+        if (Double.isNaN(best) || rechargeRate <= 0) return Integer.MAX_VALUE / 2;
+        return swapTicks + (int) Math.ceil((target - best) / rechargeRate);
+    }
+
+    @Override
+    public boolean handOver(Robot from, Robot to) {
+        if (!super.handOver(from, to)) return false;
+        if (from != null) progress.remove(from);
+        return true;
+    }
+
+    @Override
+    public boolean release(Robot robot) {
+        if (robot != null) progress.remove(robot);
+        return super.release(robot);
+    }
+
+    @Override
+    public void release() {
+        progress.clear();
+        super.release();
+    }
+
+    /** Recharge the packs for {@code ticks} ticks now (the clock does it too). */
+    public synchronized void advance(int ticks) {
+        for (int i = 0; i < packs.length; i++) packs[i] = Math.min(FULL, packs[i] + rechargeRate * Math.max(0, ticks));
+    }
+
+    /** Charge of every pack in stock. */
+    public synchronized double[] getPacks() {
+        catchUp();
+        return packs.clone();
+    }
+
+    /** Packs charged to at least {@code level}. */
+    public synchronized int getReadyPacks(double level) {
+        catchUp();
+        int n = 0;
+        for (double p : packs) if (p >= level) n++;
+        return n;
+    }
+
+    public int getSwapTicks() { return swapTicks; }
+
+    public void setSwapTicks(int ticks) {
+        this.swapTicks = Math.max(1, ticks);
+    }
+
+    public double getRechargeRate() { return rechargeRate; }
+
+    public synchronized void setRechargeRate(double rate) {
+        catchUp();
+        this.rechargeRate = Math.max(0.0, rate);
+    }
+
+    /** Swaps done so far. */
+    public long getSwapCount() { return swaps.sum(); }
+
+    /** Swaps that found no pack ready when they were done. */
+    public long getStockoutCount() { return stockouts.sum(); }
+
+    //-------- helpers ------------
+
+    /** Fullest pack at or above {@code need}, exchanged for the robot's {@code old} one; NaN if none. */
+    private synchronized double takePack(double old, double need) {
+        catchUp();
+        int best = -1;
+        for (int i = 0; i < packs.length; i++) {
+            if (packs[i] >= need && (best < 0 || packs[i] > packs[best])) best = i;
+        }
+        if (best < 0) return Double.NaN;
+        double fresh = packs[best];
+        packs[best] = Math.max(0.0, old);
+        return fresh;
+    }
+
+    private synchronized double getBestPack() {
+        catchUp();
+        double best = Double.NaN;
+        for (double p : packs) if (Double.isNaN(best) || p > best) best = p;
+        return best;
+    }
+
+    /** Recharge for the whole ticks gone by since the last time. */
+    private void catchUp() {
+        long now = System.currentTimeMillis();
+        long ticks = (now - rechargedAt) / tickMs;
+        if (ticks <= 0) return;
+        rechargedAt += ticks * tickMs;
+        advance((int) Math.min(Integer.MAX_VALUE, ticks));
+    }
+}
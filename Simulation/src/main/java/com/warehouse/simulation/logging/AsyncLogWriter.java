@@ -0,0 +1,269 @@
+package com.warehouse.simulation.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log lines to disk off the caller's thread. Callers only append to a lock-free
+ * queue; one background thread takes the lines in batches, groups them per file and writes
+ * each group with a single call on a {@link FileChannel} it keeps open. The open channels
+ * are an LRU, so at most {@code maxOpenFiles} are open at once. Buffered lines go to disk
+ * once {@code flushBytes} have piled up or {@code flushIntervalMs} has passed, whichever
+ * comes first. {@link #shutdown()} writes everything that was queued before it returns.
+ */
+public class AsyncLogWriter {
+
+    private static final String NEWLINE = System.lineSeparator();
+
+    private static final class Record {
+        final String fileName;
+        final String line;
+
+        Record(String fileName, String line) {
+            this.fileName = fileName;
+            this.line = line;
+        }
+    }
+
+    private final Path baseDir;
+    private final int maxOpenFiles;
+    private final int flushBytes;
+    private final long flushIntervalNanos;
+
+    private final Queue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queuedBytes = new AtomicInteger(0);
+    // lines handed in and lines on disk; flush() waits for the second to catch up
+    private final AtomicLong appended = new AtomicLong(0);
+    private final AtomicLong written = new AtomicLong(0);
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+
+    // owned by the writer thread, or by whoever holds the monitor after it has stopped
+    private final Map<String, StringBuilder> pending = new LinkedHashMap<>();
+    private final LinkedHashMap<Path, FileChannel> channels = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Path> paths = new HashMap<>();
+    private final Set<Path> knownDirs = ConcurrentHashMap.newKeySet();
+    private int pendingBytes = 0;
+    private int pendingLines = 0;
+    private long lastFlush = System.nanoTime();
+
+    private final Thread worker;
+    private volatile boolean running = true;
+    private volatile boolean flushRequested = false;
+
+    public AsyncLogWriter(Path baseDir) {
+        this(baseDir, 64, 64 * 1024, 200);
+    }
+
+    public AsyncLogWriter(Path baseDir, int maxOpenFiles, int flushBytes, long flushIntervalMs) {
+        this.baseDir = baseDir;
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
+        this.flushBytes = Math.max(1, flushBytes);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMs));
+        this.worker = new Thread(this::run, "log-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /** Queue one line for {@code fileName} (relative to the base directory). */
+    public void append(String fileName, String line) {
+        if (fileName == null || line == null) return;
+        queue.add(new Record(fileName, line));
+        appended.incrementAndGet();
+        int bytes = queuedBytes.addAndGet(line.length() + 1);
+        if (!running) {
+            // the writer thread may already be gone: write it here rather than lose it
+            writeNow();
+            return;
+        }
+        if (bytes >= flushBytes) LockSupport.unpark(worker);
+    }
+
+    /** Block until every line appended before this call is on disk (or {@code timeoutMs} passed). */
+    public boolean flush(long timeoutMs) {
+        long target = appended.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMs));
+        while (written.get() < target) {
+            if (!worker.isAlive()) {
+                writeNow();
+                return written.get() >= target;
+            }
+            if (System.nanoTime() >= deadline) return false;
+            flushRequested = true;
+            LockSupport.unpark(worker);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /** Write out and close {@code fileName}'s channel, e.g. before the file is moved or deleted. */
+    public void close(String fileName) {
+        flush(5_000);
+        synchronized (this) {
+            FileChannel ch = channels.remove(resolve(fileName));
+            closeQuietly(ch);
+        }
+    }
+
+    /** Stop the writer thread after it has written everything queued; later lines are written in place. */
+    public void shutdown() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // whatever slipped in while the thread was stopping
+        writeNow();
+    }
+
+    public boolean isRunning() { return running; }
+    public long getWrittenCount() { return written.get(); }
+    public long getBatchCount() { return batches.get(); }
+    public long getFailureCount() { return failures.get(); }
+    public int getOpenFileCount() {
+        synchronized (this) {
+            return channels.size();
+        }
+    }
+
+    /** Drain and write on the calling thread, leaving no file open (used once the writer thread stopped). */
+    private synchronized void writeNow() {
+        drainQueue();
+        flushPending();
+        for (FileChannel ch : channels.values()) closeQuietly(ch);
+        channels.clear();
+    }
+
+    //-------- writer thread ------------
+
+    private void run() {
+        while (running) {
+            synchronized (this) {
+                drainQueue();
+                long now = System.nanoTime();
+                if (pendingBytes >= flushBytes || flushRequested
+                        || (pendingLines > 0 && now - lastFlush >= flushIntervalNanos)) {
+                    flushRequested = false;
+                    flushPending();
+                }
+            }
+            if (queue.isEmpty()) {
+                // a full batch or a flush() wakes us early
+                LockSupport.parkNanos(this, flushIntervalNanos / 4 + 1);
+            }
+        }
+        synchronized (this) {
+            drainQueue();
+            flushPending();
+        }
+    }
+
+    /** Move queued lines into the per-file buffers, flushing whenever they reach the size trigger. */
+    private void drainQueue() {
+        Record r;
+        while ((r = queue.poll()) != null) {
+            queuedBytes.addAndGet(-(r.line.length() + 1));
+            stage(r);
+            if (pendingBytes >= flushBytes) flushPending();
+        }
+    }
+
+    private void stage(Record r) {
+        StringBuilder sb = pending.computeIfAbsent(r.fileName, k -> new StringBuilder());
+        sb.append(r.line).append(NEWLINE);
+        pendingBytes += r.line.length() + NEWLINE.length();
+        pendingLines++;
+    }
+
+    /** One write per file for everything buffered. */
+    private void flushPending() {
+        if (pendingLines == 0) return;
+        Iterator<Map.Entry<String, StringBuilder>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, StringBuilder> e = it.next();
+            try {
+                ByteBuffer buf = ByteBuffer.wrap(e.getValue().toString().getBytes(StandardCharsets.UTF_8));
+                FileChannel ch = channelFor(resolve(e.getKey()));
+                while (buf.hasRemaining()) ch.write(buf);
+            } catch (IOException ex) {
+                failures.incrementAndGet();
+                System.err.println("[WARN] AsyncLogWriter: could not write " + e.getKey() + ": " + ex.getMessage());
+            }
+            it.remove();
+        }
+        written.addAndGet(pendingLines);
+        pendingBytes = 0;
+        pendingLines = 0;
+        lastFlush = System.nanoTime();
+        batches.incrementAndGet();
+    }
+
+    private Path resolve(String fileName) {
+        return paths.computeIfAbsent(fileName, baseDir::resolve);
+    }
+
+    /** The open channel for the file, opening it (and evicting the least recently used one) if needed. */
+    private FileChannel channelFor(Path file) throws IOException {
+        FileChannel ch = channels.get(file);
+        if (ch != null && ch.isOpen()) return ch;
+        ensureParent(file);
+        ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        channels.put(file, ch);
+        if (channels.size() > maxOpenFiles) {
+            List<Path> evict = new ArrayList<>();
+            for (Path p : channels.keySet()) {
+                if (channels.size() - evict.size() <= maxOpenFiles) break;
+                evict.add(p);
+            }
+            for (Path p : evict) closeQuietly(channels.remove(p));
+        }
+        return ch;
+    }
+
+    private void ensureParent(Path file) throws IOException {
+        Path parent = file.getParent();
+        if (parent == null || knownDirs.contains(parent)) return;
+        if (Files.exists(parent) && !Files.isDirectory(parent)) {
+            // previous code might have created a file where we now expect a directory:
+            // move it aside with a .bak suffix
+            try {
+                Path backup = parent.resolveSibling(parent.getFileName().toString() + ".bak");
+                Files.move(parent, backup, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ignored) {
+            }
+        }
+        if (!Files.exists(parent)) Files.createDirectories(parent);
+        knownDirs.add(parent);
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.warehouse.simulation.logging;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -21,6 +20,8 @@ import java.util.concurrent.CopyOnWriteArrayList;
 /**
  * Centralized LogManager singleton.
  * Keeps per-file in-memory ring buffers and allows listeners to be notified of new log lines.
+ * Lines reach the disk through an {@link AsyncLogWriter}, so callers never wait on file I/O;
+ * the writer is drained when the JVM shuts down.
  */
 public class LogManager {
 
@@ -34,10 +35,15 @@ public class LogManager {
     private final int perFileCapacity = 1000;
     private final Map<String, Deque<String>> fileBuffers = new ConcurrentHashMap<>();
     private final CopyOnWriteArrayList<LogListener> listeners = new CopyOnWriteArrayList<>();
+    private final AsyncLogWriter writer;
+    // how long reads and file operations wait for queued lines to reach the disk
+    private static final long FLUSH_TIMEOUT_MS = 5_000;
 
     private LogManager(String directory) throws IOException {
         this.logDir = Paths.get(directory);
         if (!Files.exists(logDir)) Files.createDirectories(logDir);
+        this.writer = new AsyncLogWriter(logDir);
+        Runtime.getRuntime().addShutdownHook(new Thread(writer::shutdown, "log-writer-drain"));
     }
 
     public static synchronized LogManager getInstance(String baseDir) throws IOException {
@@ -67,26 +73,9 @@ public class LogManager {
     }
 
     public void writeLog(String fileName, String logMessage) {
-        Path logFilePath = logDir.resolve(fileName);
         try {
-            Path parent = logFilePath.getParent();
-            if (parent != null) {
-                if (Files.exists(parent) && !Files.isDirectory(parent)) {
-                    // previous code might have created a file where we now expect a directory.
-                    // Move the file aside with a .bak suffix so we can create the directory.
-                    try {
-                        Path backup = parent.resolveSibling(parent.getFileName().toString() + ".bak");
-                        Files.move(parent, backup, StandardCopyOption.REPLACE_EXISTING);
-                    } catch (IOException ignored) {
-                        // ignore and attempt to create directory; will fail later if not possible
-                    }
-                }
-                if (!Files.exists(parent)) Files.createDirectories(parent);
-            }
-            try (BufferedWriter writer = Files.newBufferedWriter(logFilePath, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
-                writer.write(logMessage);
-                writer.newLine();
-            }
+            // the writer thread creates directories and appends to the file
+            writer.append(fileName, logMessage);
 
             // update in-memory buffer
             Deque<String> dq = fileBuffers.computeIfAbsent(fileName, k -> new ConcurrentLinkedDeque<>());
@@ -103,12 +92,22 @@ public class LogManager {
                 }
             }
 
-        } catch (IOException e) {
+        } catch (RuntimeException e) {
             e.printStackTrace();
             // best-effort only
         }
     }
 
+    /** Wait until every line written so far is on disk. */
+    public boolean flush() {
+        return writer.flush(FLUSH_TIMEOUT_MS);
+    }
+
+    /** Write out everything queued and stop the background writer; later lines are written directly. */
+    public void shutdown() {
+        writer.shutdown();
+    }
+
     public List<String> tail(String fileName, int maxLines) {
         Deque<String> dq = fileBuffers.get(fileName);
         if (dq != null) {
@@ -120,6 +119,7 @@ public class LogManager {
         }
 
         // fallback: read from disk
+        writer.flush(FLUSH_TIMEOUT_MS);
         try {
             LogService ls = new LogService(logDir.toString());
             return ls.readLastLines(fileName, maxLines);
@@ -130,6 +130,7 @@ public class LogManager {
 
     //move a log file
     public void moveLog(String from , String to) throws IOException {
+        writer.close(from);
         try{
             Path sourcePath = logDir.resolve(from);
             Path targetPath = logDir.resolve(to);
@@ -146,6 +147,7 @@ public class LogManager {
     // Delete log file
     public void deleteLog(String fileName) {
         Path logFilePath = logDir.resolve(fileName);
+        writer.close(fileName);
         try {
             Files.deleteIfExists(logFilePath);
             fileBuffers.remove(fileName);
@@ -159,6 +161,7 @@ public class LogManager {
         Path logFilePath = logDir.resolve(fileName);
         Path archiveFilePath = logDir.resolve("archive");
         Path dest = archiveFilePath.resolve(fileName);
+        writer.flush(FLUSH_TIMEOUT_MS);
         try {
             if (!Files.exists(archiveFilePath)) Files.createDirectories(archiveFilePath);
             try (InputStream in = Files.newInputStream(logFilePath);
@@ -4,8 +4,12 @@ package com.warehouse.simulation.robots;
 import com.warehouse.simulation.utils.IGridEntity;
 import com.warehouse.simulation.utils.PathFinder;
 import com.warehouse.simulation.tasks.TaskManager;
+import com.warehouse.simulation.storage.Item;
 import com.warehouse.simulation.tasks.Tasks;
+import com.warehouse.simulation.tasks.Trip;
 import java.awt.Point;
+import com.warehouse.simulation.charging.ChargingPolicy;
+import com.warehouse.simulation.charging.ChargingScheduler;
 import com.warehouse.simulation.charging.ChargingStation;
 import com.warehouse.simulation.warehouse.Warehouse;
 import com.warehouse.simulation.logging.LogManager;
@@ -13,8 +17,14 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class Robot implements Runnable, IGridEntity  {
@@ -25,6 +35,13 @@ public class Robot implements Runnable, IGridEntity  {
     private double batteryLevel;
     private final TaskManager taskManager;
     private Tasks currentTask;
+    // every task of the current trip (picked up or not) and the pickups still to visit
+    private final List<Tasks> tripTasks = new ArrayList<>();
+    private final Queue<Tasks> remainingStops = new LinkedList<>();
+    // trip reserved while heading to the drop-off, and the path to its first pickup
+    private Trip nextTrip;
+    private Point nextPathTarget;
+    private CompletableFuture<Queue<Point>> nextPath;
     private LogManager logManager;
     public enum RobotState{
         IDLE,
@@ -42,13 +59,24 @@ public class Robot implements Runnable, IGridEntity  {
     private RobotState state;
     private RobotState lastLoggedState = null;
     private ChargingStation currentStation;
+    // charging slot booked ahead, and the station the robot is driving to for it
+    private ChargingScheduler.Slot chargeBooking;
+    private ChargingStation bookedStation;
+    // when to charge and for how long; shared with the rest of the fleet for its stats
+    private ChargingPolicy chargingPolicy = ChargingPolicy.fullCharge();
+    private boolean topUpSession = false;
     public Warehouse warehouse;
     private final DateTimeFormatter df = DateTimeFormatter.ISO_DATE;
     private PathFinder pathFinder;
     private Queue<Point> currentPath;
     private Point dropOffLocation;
     private Point robotsCamp;
+    // parking cell the robot is heading to or waiting at
+    private Point parkingTarget;
     private WorkingState workingState;
+    // moves and battery used on the current leg of a trip, reported to the energy model
+    private int legMoves = 0;
+    private double legEnergy = 0.0;
     
     // ----------------------------------
     private int taskTimer = 0; // just a temporary solution
@@ -62,7 +90,7 @@ public class Robot implements Runnable, IGridEntity  {
     
     private static final double MAX_BATTERY = 100.0;
     private static final double LOW_BATTERY_THRESHOLD = 50.0;
-    private static final double BATTERY_COST_PER_MOVE = 3; // ------------------------------------------------
+    public static final double BATTERY_COST_PER_MOVE = 3; // ------------------------------------------------
     private static final double CHARGE_RATE_PER_TICK = 4.0;
     // Make tasks last roughly 10 seconds: with TICK_DELAY_MS=100ms, 100 ticks ≈ 10s
     private static final int TASK_DURATION_IN_TICKS = 100; // increased to show progress in UI (~10s)
@@ -71,6 +99,12 @@ public class Robot implements Runnable, IGridEntity  {
     private static final double BATTERY_COST_PER_TICK = 0.5;
     // Use 1000ms tick so movement/battery updates are visible in the UI (~1s per step)
     private static final int TICK_DELAY_MS = 1000;
+    // computes paths for reserved trips off the robot threads
+    private static final ExecutorService PATH_PREFETCH = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "path-prefetch");
+        t.setDaemon(true);
+        return t;
+    });
     
     public Robot(Warehouse warehouse, Point currentPosition, TaskManager taskManager, PathFinder pathFinder) {
         this.id = "robot_" + num;
@@ -84,6 +118,7 @@ public class Robot implements Runnable, IGridEntity  {
         this.currentPath = new LinkedList<>();
         this.dropOffLocation = warehouse.getDropOffLocation();
         this.robotsCamp = warehouse.getIdleLocation();
+        if (warehouse.getChargingPolicy() != null) this.chargingPolicy = warehouse.getChargingPolicy();
         
         try {
             this.logManager = LogManager.getInstance("logs");
@@ -120,11 +155,40 @@ public class Robot implements Runnable, IGridEntity  {
             fileName = String.format("RobotLogs/%s-%s.log", this.getID(), date);
         }
 
+        // heartbeat: keep our tasks, or let go of them if the lease already ran out
+        if (this.currentTask != null && !taskManager.renewLease(this.id)) {
+            clearTrip();
+            dropReservedTrip();
+            this.currentPath = new LinkedList<>();
+            if (state == RobotState.WORKING) this.state = RobotState.IDLE;
+            if (fileName != null) {
+                String msg = String.format("[%s] Robot %s lost its task lease, tasks were reassigned", LocalDateTime.now(), this.getID());
+                logManager.writeLog(fileName, msg);
+            }
+        }
 
         if (state == RobotState.WAITING_FOR_CHARGE){
             long waitTime = System.currentTimeMillis() - this.waitingStartTime;
 
-            if (waitTime > MAX_WAIT_TIME_MS) {
+            if (this.chargeBooking != null) {
+                // booked: leave so as to arrive when the slot starts
+                if (System.currentTimeMillis() >= this.chargeBooking.getDepartAt()) {
+                    this.bookedStation = this.chargeBooking.getStation();
+                    this.chargeBooking = null;
+                    this.currentPath = pathFinder.findPath(this.currentPosition, this.bookedStation.getLocation());
+                    if (this.currentPath == null) {
+                        this.bookedStation = null;
+                        seekCharging(fileName);
+                    } else {
+                        this.state = RobotState.MOVING_TO_CHARGE;
+                        if (fileName != null) {
+                            String msg = String.format("[%s] Robot %s leaves for its charging slot at %s", LocalDateTime.now(), this.getID(), this.bookedStation.getID());
+                            logManager.writeLog(fileName, msg);
+                        }
+                    }
+                }
+            }
+            else if (waitTime > MAX_WAIT_TIME_MS) {
                 warehouse.leaveQueue(this);
                 this.state = RobotState.IDLE;
 
@@ -141,55 +205,57 @@ public class Robot implements Runnable, IGridEntity  {
                 && state != RobotState.WAITING_FOR_CHARGE) {
 
             if (this.currentTask != null) {
-                taskManager.requeueTask(this.currentTask);
-                this.currentTask = null;
+                reportLeg();
+                for (Tasks t : carriedTasks()) taskManager.requeueTask(t);
+                clearTrip();
             }
+            dropReservedTrip();
+            taskManager.withdrawIdle(this.id);
+            warehouse.leaveParking(this);
+            this.parkingTarget = null;
 
-            ChargingStation station = warehouse.requestCharging(this);
-            if (station != null) {
-                this.currentStation = station;
-                this.state = RobotState.MOVING_TO_CHARGE;
-                this.currentPath = pathFinder.findPath(this.currentPosition, station.getLocation());
-                if (fileName != null) {
-                    String msg = String.format("[%s] Robot %s starts moving to the charging station %s", LocalDateTime.now(), this.getID(), this.currentStation.getID());
-                    logManager.writeLog(fileName, msg);
-                }
-            } else {
-                this.state = RobotState.WAITING_FOR_CHARGE;
-                if (fileName != null) {
-                    String msg = String.format("[%s] Robot %s is in the charging queue", LocalDateTime.now(), this.getID());
-                    logManager.writeLog(fileName, msg);
-                }
-                this.waitingStartTime = System.currentTimeMillis();
-            }
+            seekCharging(fileName);
         }
 
         else if (state == RobotState.MOVING_TO_CHARGE && (currentPath == null || currentPath.isEmpty())){
         	
+            if (this.currentStation == null && this.bookedStation != null) {
+                // arrived for a booked slot: take the station now
+                this.bookedStation = null;
+                seekCharging(fileName);
+                return;
+            }
             this.state = RobotState.CHARGING;
             this.chargeTimer = 0;
+            chargingPolicy.getStats().recordSession(this.topUpSession);
             
             
         }
 
-        else if (state == RobotState.CHARGING && this.batteryLevel >= MAX_BATTERY) {
+        else if (state == RobotState.CHARGING && isCharged()) {
         	
-            this.batteryLevel = MAX_BATTERY;
-            this.chargeTimer = 0;
-            
-            if (this.currentStation != null) {
-                warehouse.releaseStation(this.currentStation);
-                this.currentStation = null;
+            if (this.batteryLevel > MAX_BATTERY) this.batteryLevel = MAX_BATTERY;
+            leaveStation();
+            headToParking();
+        }
+
+        else if (state == RobotState.CHARGING
+                && chargingPolicy.mayPreempt(this.batteryLevel)
+                && this.batteryLevel >= LOW_BATTERY_THRESHOLD
+                && taskManager.claimUnservedWork(this.id, chargingPolicy.getPreemptPriority())) {
+            // urgent work and nobody free to take it: stop here and ask for it
+            leaveStation();
+            chargingPolicy.getStats().recordPreemption();
+            this.state = RobotState.IDLE;
+            if (fileName != null) {
+                String msg = String.format("[%s] Robot %s stops charging early for urgent work (battery=%.1f)", LocalDateTime.now(), this.getID(), this.batteryLevel);
+                logManager.writeLog(fileName, msg);
             }
-            
-            this.state = RobotState.MOVING_TO_IDLE_POINT;
-            this.currentPath = pathFinder.findPath(this.currentPosition, warehouse.getIdleLocation());
-            System.out.println(warehouse.getIdleLocation());
         }
 
         else if (state == RobotState.MOVING_TO_IDLE_POINT && (currentPath == null || currentPath.isEmpty())){
             this.state = RobotState.IDLE;
-            try { this.currentPosition = warehouse.getIdleLocation(); } catch (Throwable ignore) {}
+            try { this.currentPosition = this.parkingTarget != null ? this.parkingTarget : warehouse.getIdleLocation(); } catch (Throwable ignore) {}
             if (fileName != null) {
                 String msg = String.format("[%s] Robot %s is at IDLE point and ready to get new tasks (battery=%.1f)", LocalDateTime.now(), this.getID(), this.batteryLevel);
                 logManager.writeLog(fileName, msg);
@@ -197,25 +263,35 @@ public class Robot implements Runnable, IGridEntity  {
         }
 
         else if (state == RobotState.WORKING && (currentPath == null || currentPath.isEmpty())) {
+            reportLeg();
+            if (this.workingState == WorkingState.GOING_TO_PICKUP && headToNextStop()) {
+                return;
+            }
             if (this.workingState == WorkingState.GOING_TO_PICKUP) {
                 this.workingState = WorkingState.GOING_TO_DROPOFF;
                 this.currentPath = pathFinder.findPath(this.currentPosition, this.dropOffLocation);
                 if (this.currentPath == null) {
                     // cannot reach drop-off — requeue task and go idle
                     System.out.println("PATH NOT FOUND for drop-off of task " + (this.currentTask != null ? this.currentTask.getId() : "-"));
-                    try { taskManager.requeueTask(this.currentTask); } catch (Throwable ignore) {}
-                    this.currentTask = null;
+                    for (Tasks t : carriedTasks()) {
+                        try { taskManager.requeueTask(t); } catch (Throwable ignore) {}
+                    }
+                    clearTrip();
                     this.state = RobotState.IDLE;
                     return;
                 }
+                reserveNextTrip();
             } else {
                 if (this.currentTask != null) {
                     try { this.currentPosition = this.dropOffLocation; } catch (Throwable ignore) {}
-                    taskManager.completeTask(this.currentTask);
-                    this.currentTask = null;
+                    List<Tasks> delivered = carriedTasks();
+                    for (Tasks t : delivered) taskManager.completeTask(t);
+                    chargingPolicy.getStats().recordCompleted(delivered.size());
+                    clearTrip();
                 }
-                this.state = RobotState.MOVING_TO_IDLE_POINT;
-                this.currentPath = pathFinder.findPath(this.currentPosition, warehouse.getIdleLocation());
+                // straight on to the next pickup if a trip was reserved on the way here
+                if (startReservedTrip()) return;
+                headToParking();
             }
         }
         
@@ -230,6 +306,10 @@ public class Robot implements Runnable, IGridEntity  {
             String date = df.format(LocalDate.now());
             fileName = String.format("RobotLogs/%s-%s.log", this.getID(), date);
         }
+
+        chargingPolicy.getStats().recordTick(
+                state == RobotState.CHARGING || state == RobotState.MOVING_TO_CHARGE || state == RobotState.WAITING_FOR_CHARGE,
+                state == RobotState.WAITING_FOR_CHARGE);
         
     switch (this.state) {
         case IDLE:
@@ -242,7 +322,12 @@ public class Robot implements Runnable, IGridEntity  {
                     logManager.writeLog(fileName, msg);
                 }
                 lastLoggedState = RobotState.WORKING;
-            } else {
+            } else if (topUp()) {
+                if (fileName != null) {
+                    String msg = String.format("[%s] Robot %s tops up at %s while idle (battery=%.1f)", LocalDateTime.now(), this.getID(), this.currentStation.getID(), this.batteryLevel);
+                    logManager.writeLog(fileName, msg);
+                }
+            } else if (!repark()) {
                 if (fileName != null && lastLoggedState != RobotState.IDLE) {
                     String msg = String.format("[%s] Robot %s is IDLE (battery=%.1f)", LocalDateTime.now(), this.getID(), this.batteryLevel);
                     logManager.writeLog(fileName, msg);
@@ -303,8 +388,13 @@ public class Robot implements Runnable, IGridEntity  {
         // step along current path if available
         if (currentPath != null && !currentPath.isEmpty()) {
             this.currentPosition = currentPath.poll();
+            double before = this.batteryLevel;
             this.batteryLevel -= BATTERY_COST_PER_MOVE;
             if (this.batteryLevel < 0) this.batteryLevel = 0;
+            if (this.state == RobotState.WORKING) {
+                this.legMoves++;
+                this.legEnergy += before - this.batteryLevel;
+            }
             if (logManager != null) {
                 String date = df.format(LocalDate.now());
                 String fileName = String.format("RobotLogs/%s-%s.log", this.getID(), date);
@@ -314,31 +404,300 @@ public class Robot implements Runnable, IGridEntity  {
         }
     }
     
+    /**
+     * Ask the warehouse for a station: go there if one is free, otherwise wait for the booked
+     * slot (or in the queue when none could be booked).
+     */
+    private void seekCharging(String fileName) {
+        ChargingStation station = warehouse.requestCharging(this);
+        if (station != null) {
+            this.currentStation = station;
+            this.state = RobotState.MOVING_TO_CHARGE;
+            this.currentPath = pathFinder.findPath(this.currentPosition, station.getLocation());
+            if (fileName != null) {
+                String msg = String.format("[%s] Robot %s starts moving to the charging station %s", LocalDateTime.now(), this.getID(), this.currentStation.getID());
+                logManager.writeLog(fileName, msg);
+            }
+        } else {
+            this.state = RobotState.WAITING_FOR_CHARGE;
+            this.chargeBooking = warehouse.getChargingBooking(this);
+            if (fileName != null) {
+                String msg = this.chargeBooking != null
+                        ? String.format("[%s] Robot %s booked charging station %s, leaves in %d ms", LocalDateTime.now(), this.getID(),
+                                this.chargeBooking.getStation().getID(), Math.max(0, this.chargeBooking.getDepartAt() - System.currentTimeMillis()))
+                        : String.format("[%s] Robot %s is in the charging queue", LocalDateTime.now(), this.getID());
+                logManager.writeLog(fileName, msg);
+            }
+            this.waitingStartTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Right after taking a trip: work out when the battery will drop below the charging
+     * threshold and, if that happens during the trip, book a charging slot for then.
+     */
+    private void forecastCharging() {
+        if (this.currentPath == null || this.currentTask == null) return;
+        int moves = this.currentPath.size();
+        Point at = this.currentTask.getDestination();
+        for (Tasks t : this.remainingStops) {
+            moves += distance(at, t.getDestination());
+            at = t.getDestination();
+        }
+        moves += distance(at, this.dropOffLocation);
+        if (this.batteryLevel - moves * BATTERY_COST_PER_MOVE >= LOW_BATTERY_THRESHOLD) return;
+
+        // moves until the threshold is crossed, and where the robot will be roughly
+        int untilLow = Math.max(0, (int) Math.floor((this.batteryLevel - LOW_BATTERY_THRESHOLD) / BATTERY_COST_PER_MOVE) + 1);
+        Point from = this.dropOffLocation;
+        if (untilLow < this.currentPath.size()) {
+            int i = 0;
+            for (Point p : this.currentPath) {
+                if (i++ == untilLow) { from = p; break; }
+            }
+        }
+        long readyAt = System.currentTimeMillis() + untilLow * (long) TICK_DELAY_MS;
+        double left = Math.max(0.0, this.batteryLevel - untilLow * BATTERY_COST_PER_MOVE);
+        try { warehouse.bookCharging(this, from, readyAt, left); } catch (Throwable ignore) {}
+    }
+
+    /** Time to charge from {@code battery} to the policy's target level. */
+    public long estimateChargeMs(double battery) {
+        double missing = Math.max(0.0, chargeTarget() - battery);
+        if (warehouse != null) {
+            return (long) warehouse.getChargingCurve().ticksToCharge(battery, battery + missing) * TICK_DELAY_MS;
+        }
+        return (long) Math.ceil(missing / CHARGE_RATE_PER_TICK) * TICK_DELAY_MS;
+    }
+
+    /** Time the station needs to bring this robot to the policy's target level (charge or swap). */
+    public long estimateServiceMs(ChargingStation station) {
+        return estimateServiceMs(station, this.batteryLevel);
+    }
+
+    /** Same, for a robot that will be down to {@code battery} by then. */
+    public long estimateServiceMs(ChargingStation station, double battery) {
+        if (station == null) return estimateChargeMs(battery);
+        return (long) station.ticksToService(battery, Math.max(battery, chargeTarget())) * TICK_DELAY_MS;
+    }
+
+    private double chargeTarget() {
+        return Math.min(Math.max(chargingPolicy.getTargetLevel(), LOW_BATTERY_THRESHOLD), MAX_BATTERY);
+    }
+
+    /** Time to drive from one cell to another, one cell per tick. */
+    public long estimateTravelMs(Point from, Point to) {
+        return (long) distance(from, to) * TICK_DELAY_MS;
+    }
+
+    /** Time to drive {@code cells} cells. */
+    public long estimateTravelMs(int cells) {
+        return (long) Math.max(0, cells) * TICK_DELAY_MS;
+    }
+
+    private static int distance(Point a, Point b) {
+        if (a == null || b == null) return 0;
+        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    }
+
     private void chargeBattery() {
         this.chargeTimer++;
-        this.batteryLevel += CHARGE_RATE_PER_TICK;
+        double before = this.batteryLevel;
+        this.batteryLevel += (warehouse != null && currentStation != null)
+                ? warehouse.chargeRate(this, currentStation) : CHARGE_RATE_PER_TICK;
         if (this.batteryLevel > MAX_BATTERY)
             this.batteryLevel = MAX_BATTERY;
+        chargingPolicy.getStats().recordCharge(this.batteryLevel - before);
+    }
+
+    /** Session done: the policy's target is reached (never below the low-battery threshold). */
+    private boolean isCharged() {
+        return this.batteryLevel >= MAX_BATTERY
+                || (chargingPolicy.isCharged(this.batteryLevel) && this.batteryLevel >= LOW_BATTERY_THRESHOLD);
+    }
+
+    private void leaveStation() {
+        this.chargeTimer = 0;
+        this.topUpSession = false;
+        if (this.currentStation != null) {
+            warehouse.releaseStation(this.currentStation, this);
+            this.currentStation = null;
+        }
+    }
+
+    /** While idle with nothing to do: charge a bit at a free station close by, if the policy says so. */
+    private boolean topUp() {
+        if (warehouse == null || !chargingPolicy.wantsTopUp(this.batteryLevel)) return false;
+        ChargingStation station = warehouse.requestTopUp(this, chargingPolicy.getTopUpRadius());
+        if (station == null) return false;
+        taskManager.withdrawIdle(this.id);
+        warehouse.leaveParking(this);
+        this.parkingTarget = null;
+        this.currentStation = station;
+        this.topUpSession = true;
+        this.state = RobotState.MOVING_TO_CHARGE;
+        this.currentPath = pathFinder.findPath(this.currentPosition, station.getLocation());
+        if (this.currentPath == null) this.currentPath = new LinkedList<>();
+        return true;
     }
     
     private void tryToGetNewTask() {
-        Tasks newTask = taskManager.robotGetTask(this.id, this.currentPosition, this.batteryLevel);
-        if (newTask != null) {
-            this.currentTask = newTask;
-            this.state = RobotState.WORKING;
-            this.workingState = WorkingState.GOING_TO_PICKUP;
-            this.currentPath = pathFinder.findPath(this.currentPosition, newTask.getDestination());
-            if (this.currentPath == null) {
-                // requeue the task so others can try; avoid leaving it in active/picked state
-                System.out.println("PATH NOT FOUND for task " + newTask.getId());
-                try {
-                    taskManager.requeueTask(newTask);
-                } catch (Throwable ignore) {}
-                this.currentTask = null;
-                this.state = RobotState.IDLE;
+        // waits in the task manager's idle registry; work shows up in our mailbox
+        Trip trip = taskManager.pollTrip(this.id, this.currentPosition, this.batteryLevel, this.dropOffLocation);
+        if (trip == null || trip.getStops().isEmpty()) return;
+        startTrip(trip, null);
+    }
+
+    /** Set off to the first pickup of a trip; {@code path} may be null to compute it here. */
+    private boolean startTrip(Trip trip, Queue<Point> path) {
+        warehouse.leaveParking(this);
+        this.parkingTarget = null;
+        clearTrip();
+        this.tripTasks.addAll(trip.getStops());
+        this.remainingStops.addAll(trip.getStops());
+        Tasks newTask = this.remainingStops.poll();
+        this.currentTask = newTask;
+        this.state = RobotState.WORKING;
+        this.workingState = WorkingState.GOING_TO_PICKUP;
+        this.currentPath = path != null ? path : pathFinder.findPath(this.currentPosition, newTask.getDestination());
+        if (this.currentPath == null) {
+            // requeue the trip so others can try; avoid leaving it in active/picked state
+            System.out.println("PATH NOT FOUND for task " + newTask.getId());
+            for (Tasks t : trip.getStops()) {
+                try { taskManager.requeueTask(t); } catch (Throwable ignore) {}
             }
+            clearTrip();
+            this.state = RobotState.IDLE;
+            return false;
+        }
+        forecastCharging();
+        return true;
+    }
+
+    /**
+     * On the way to the drop-off: ask for the next trip now, planned from the drop-off with
+     * the battery left on arrival, and compute the path to its first pickup in the background.
+     */
+    private void reserveNextTrip() {
+        if (this.nextTrip != null || this.currentPath == null) return;
+        double atDropOff = this.batteryLevel - this.currentPath.size() * BATTERY_COST_PER_MOVE;
+        // the robot will go charging after this trip anyway
+        if (atDropOff < LOW_BATTERY_THRESHOLD) return;
+        Trip trip = taskManager.reserveNextTrip(this.id, this.dropOffLocation, atDropOff, this.dropOffLocation);
+        if (trip == null || trip.getStops().isEmpty()) return;
+        this.nextTrip = trip;
+        final Point from = new Point(this.dropOffLocation);
+        final Point to = trip.getStops().get(0).getDestination();
+        this.nextPathTarget = to;
+        if (to != null) {
+            this.nextPath = CompletableFuture.supplyAsync(() -> pathFinder.findPath(from, to), PATH_PREFETCH);
         }
+    }
+
+    /** At the drop-off: start the reserved trip, if any. */
+    private boolean startReservedTrip() {
+        if (this.nextTrip == null) return false;
+        CompletableFuture<Queue<Point>> prefetched = this.nextPath;
+        Point target = this.nextPathTarget;
+        this.nextTrip = null;
+        this.nextPath = null;
+        this.nextPathTarget = null;
+        Trip trip = taskManager.claimReservedTrip(this.id);
+        if (trip == null || trip.getStops().isEmpty()) return false;
+        Queue<Point> path = null;
+        Point first = trip.getStops().get(0).getDestination();
+        if (prefetched != null && first != null && first.equals(target) && this.currentPosition.equals(this.dropOffLocation)) {
+            try { path = prefetched.join(); } catch (Throwable ignore) {}
+        }
+        return startTrip(trip, path);
+    }
 
+    /** Go and wait for work at the parking cell the warehouse gives us. */
+    private void headToParking() {
+        this.parkingTarget = warehouse.getParkingLocation(this);
+        this.state = RobotState.MOVING_TO_IDLE_POINT;
+        this.currentPath = pathFinder.findPath(this.currentPosition, this.parkingTarget);
+    }
+
+    /** While idle: move if rebalancing gave our parking cell's place to another one. */
+    private boolean repark() {
+        Point spot = warehouse.getParkingLocation(this);
+        if (spot == null || spot.equals(this.currentPosition)) return false;
+        this.parkingTarget = spot;
+        Queue<Point> path = pathFinder.findPath(this.currentPosition, spot);
+        if (path == null || path.isEmpty()) return false;
+        taskManager.withdrawIdle(this.id);
+        this.state = RobotState.MOVING_TO_IDLE_POINT;
+        this.currentPath = path;
+        return true;
+    }
+
+    /** Give a reserved trip back to the task manager. */
+    private void dropReservedTrip() {
+        if (this.nextTrip == null) return;
+        if (this.nextPath != null) this.nextPath.cancel(false);
+        this.nextTrip = null;
+        this.nextPath = null;
+        this.nextPathTarget = null;
+        try { taskManager.cancelReservation(this.id); } catch (Throwable ignore) {}
+    }
+
+    /**
+     * At a pickup: set course for the next stop of the trip. Returns false when there is
+     * no further reachable stop and the robot should go to the drop-off.
+     */
+    private boolean headToNextStop() {
+        Tasks next;
+        while ((next = this.remainingStops.poll()) != null) {
+            Queue<Point> path = pathFinder.findPath(this.currentPosition, next.getDestination());
+            if (path != null) {
+                this.currentTask = next;
+                this.currentPath = path;
+                return true;
+            }
+            System.out.println("PATH NOT FOUND for task " + next.getId());
+            try { taskManager.requeueTask(next); } catch (Throwable ignore) {}
+            this.tripTasks.remove(next);
+        }
+        return false;
+    }
+
+    /** Tasks the robot is responsible for: the whole trip, or just the current task. */
+    private List<Tasks> carriedTasks() {
+        if (!this.tripTasks.isEmpty()) return new ArrayList<>(this.tripTasks);
+        return this.currentTask == null ? Collections.emptyList() : Collections.singletonList(this.currentTask);
+    }
+
+    /** Tell the task manager what the leg just driven cost, with the load carried on it. */
+    private void reportLeg() {
+        if (this.legMoves > 0) {
+            try { taskManager.recordEnergy(this.legMoves, this.legEnergy, legLoad()); } catch (Throwable ignore) {}
+        }
+        this.legMoves = 0;
+        this.legEnergy = 0.0;
+    }
+
+    /** Weight carried on the current leg: everything towards the drop-off, what was picked so far before. */
+    private double legLoad() {
+        double kg = 0.0;
+        for (Tasks t : carriedTasks()) {
+            if (this.workingState == WorkingState.GOING_TO_PICKUP
+                    && (t == this.currentTask || this.remainingStops.contains(t))) continue;
+            Item item = t.getItems();
+            if (item != null) kg += item.getWeight();
+        }
+        return kg;
+    }
+
+    private void clearTrip() {
+        this.tripTasks.clear();
+        this.remainingStops.clear();
+        this.currentTask = null;
+    }
+
+    /** Tasks of the current trip in visiting order (empty when idle). */
+    public List<Tasks> getTripTasks() {
+        return new ArrayList<>(this.tripTasks);
     }
 
     public boolean assignStation(ChargingStation station) {
@@ -347,6 +706,7 @@ public class Robot implements Runnable, IGridEntity  {
             this.state = RobotState.CHARGING;
             this.chargeTimer = 0;
             this.currentPosition = station.getLocation();
+            chargingPolicy.getStats().recordSession(false);
 
             // logs in the future
             return true;
@@ -367,6 +727,14 @@ public class Robot implements Runnable, IGridEntity  {
     public Tasks getCurrentTask() {
         return this.currentTask;
     }
+
+    public ChargingPolicy getChargingPolicy() {
+        return this.chargingPolicy;
+    }
+
+    public void setChargingPolicy(ChargingPolicy policy) {
+        this.chargingPolicy = policy != null ? policy : ChargingPolicy.fullCharge();
+    }
     
     
     
@@ -435,9 +803,14 @@ public class Robot implements Runnable, IGridEntity  {
      */
     public void resetToIdle(java.awt.Point idle) {
         try {
-            this.currentTask = null;
+            clearTrip();
+            dropReservedTrip();
+            try { taskManager.withdrawIdle(this.id); } catch (Throwable ignore) {}
             this.currentPath.clear();
             this.currentStation = null;
+            this.chargeBooking = null;
+            this.bookedStation = null;
+            this.topUpSession = false;
             this.chargeTimer = 0;
             this.state = RobotState.IDLE;
             this.batteryLevel = MAX_BATTERY;
@@ -5,6 +5,7 @@ import java.io.Serializable;
 import java.util.List;
 import java.util.ArrayList;
 import com.warehouse.simulation.tasks.TaskManager;
+import com.warehouse.simulation.tasks.Tasks;
 import com.warehouse.simulation.logging.LogManager;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -23,6 +24,8 @@ public class Order implements Serializable{
     private Status status;
     private List<Item> items;
     private long timestamp;
+    private Tasks.Priority priority = Tasks.Priority.STANDARD;
+    private long deadline = 0; // SLA cutoff in epoch millis, 0 = none
     private transient LogManager logManager;
     private static final DateTimeFormatter DF = DateTimeFormatter.ISO_DATE;
 
@@ -61,6 +64,24 @@ public class Order implements Serializable{
         return timestamp;
     }
 
+    public Tasks.Priority getPriority() {
+        // orders persisted before priorities existed deserialize with null
+        return priority == null ? Tasks.Priority.STANDARD : priority;
+    }
+
+    public void setPriority(Tasks.Priority priority) {
+        this.priority = priority == null ? Tasks.Priority.STANDARD : priority;
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /** SLA cutoff in epoch millis (0 = none); copied to the tasks created from this order. */
+    public void setDeadline(long deadline) {
+        this.deadline = Math.max(0, deadline);
+    }
+
     public void addItem(Item item) {
         try {
             items.add(item);
@@ -0,0 +1,234 @@
+package com.warehouse.simulation.tasks;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Min-cost assignment of robots (rows) to tasks (columns).
+ *
+ * Entries that are {@link Double#POSITIVE_INFINITY} are infeasible and never assigned.
+ * Small windows are solved exactly with the Hungarian algorithm; large windows use a
+ * Jacobi auction whose bidding phase runs in parallel. With integer costs (grid
+ * distances) the auction result is optimal as well, because epsilon is below 1/n.
+ */
+public final class AssignmentSolver {
+
+    /** Above this many rows the auction is used instead of the O(n^2 m) Hungarian method. */
+    public static final int HUNGARIAN_MAX_ROWS = 200;
+    /** Matrices with more cells than this are built / bid on in parallel. */
+    public static final int PARALLEL_THRESHOLD = 20_000;
+
+    private AssignmentSolver() {}
+
+    /**
+     * Solve the assignment problem.
+     * @return for every row the assigned column, or -1 if the row stays unassigned
+     */
+    public static int[] solve(double[][] cost) {
+        int rows = cost.length;
+        if (rows == 0) return new int[0];
+        int cols = cost[0].length;
+        if (cols == 0) {
+            int[] none = new int[rows];
+            Arrays.fill(none, -1);
+            return none;
+        }
+        if (rows <= HUNGARIAN_MAX_ROWS && cols <= HUNGARIAN_MAX_ROWS * 8) {
+            return hungarian(cost);
+        }
+        return auction(cost);
+    }
+
+    /** Exact Hungarian algorithm (potentials / shortest augmenting path form). */
+    public static int[] hungarian(double[][] cost) {
+        int rows = cost.length;
+        int cols = rows == 0 ? 0 : cost[0].length;
+        if (rows > cols) {
+            // solve the transposed problem so that rows <= cols
+            int[] colToRow = hungarian(transpose(cost));
+            int[] rowToCol = new int[rows];
+            Arrays.fill(rowToCol, -1);
+            for (int c = 0; c < colToRow.length; c++) {
+                if (colToRow[c] >= 0) rowToCol[colToRow[c]] = c;
+            }
+            return rowToCol;
+        }
+
+        double big = bigValue(cost);
+        int n = rows;
+        int m = cols;
+        double[] u = new double[n + 1];
+        double[] v = new double[m + 1];
+        int[] p = new int[m + 1];   // p[j] = row matched to column j (1-based), 0 = none
+        int[] way = new int[m + 1];
+
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            double[] minv = new double[m + 1];
+            Arrays.fill(minv, Double.POSITIVE_INFINITY);
+            boolean[] used = new boolean[m + 1];
+            do {
+                used[j0] = true;
+                int i0 = p[j0];
+                double delta = Double.POSITIVE_INFINITY;
+                int j1 = 0;
+                for (int j = 1; j <= m; j++) {
+                    if (used[j]) continue;
+                    double c = cost[i0 - 1][j - 1];
+                    if (c == Double.POSITIVE_INFINITY) c = big;
+                    double cur = c - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= m; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+
+        int[] result = new int[n];
+        Arrays.fill(result, -1);
+        for (int j = 1; j <= m; j++) {
+            if (p[j] != 0 && cost[p[j] - 1][j - 1] != Double.POSITIVE_INFINITY) {
+                result[p[j] - 1] = j - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Jacobi forward auction. Every row also has a "stay idle" option worth slightly less
+     * than its worst feasible task, so rows that are priced out drop out and the loop ends.
+     */
+    public static int[] auction(double[][] cost) {
+        int n = cost.length;
+        int m = n == 0 ? 0 : cost[0].length;
+        int[] rowToCol = new int[n];
+        Arrays.fill(rowToCol, -1);
+        if (n == 0 || m == 0) return rowToCol;
+
+        double maxCost = 0;
+        for (double[] row : cost) {
+            for (double c : row) {
+                if (c != Double.POSITIVE_INFINITY && c > maxCost) maxCost = c;
+            }
+        }
+        final double idleValue = -(maxCost + 1);
+        final double eps = 1.0 / (n + 1);
+        final double[] price = new double[m];
+        final int[] colToRow = new int[m];
+        Arrays.fill(colToRow, -1);
+        final boolean[] dropped = new boolean[n];
+        final int[] bidCol = new int[n];
+        final double[] bidAmount = new double[n];
+        boolean parallel = (long) n * m > PARALLEL_THRESHOLD;
+
+        while (true) {
+            int[] bidders = IntStream.range(0, n)
+                    .filter(i -> rowToCol[i] < 0 && !dropped[i])
+                    .toArray();
+            if (bidders.length == 0) break;
+
+            IntStream stream = IntStream.of(bidders);
+            if (parallel) stream = stream.parallel();
+            stream.forEach(i -> {
+                double best = idleValue;
+                double second = idleValue;
+                int bestCol = -1;
+                double[] row = cost[i];
+                for (int j = 0; j < m; j++) {
+                    if (row[j] == Double.POSITIVE_INFINITY) continue;
+                    double value = -row[j] - price[j];
+                    if (value > best) {
+                        second = best;
+                        best = value;
+                        bestCol = j;
+                    } else if (value > second) {
+                        second = value;
+                    }
+                }
+                bidCol[i] = bestCol;
+                bidAmount[i] = bestCol < 0 ? 0 : price[bestCol] + (best - second) + eps;
+            });
+
+            // resolve bids: the highest bid per column wins, the previous holder is evicted
+            int[] winner = new int[m];
+            Arrays.fill(winner, -1);
+            for (int i : bidders) {
+                int j = bidCol[i];
+                if (j < 0) {
+                    dropped[i] = true;
+                } else if (winner[j] < 0 || bidAmount[i] > bidAmount[winner[j]]) {
+                    winner[j] = i;
+                }
+            }
+            for (int i : bidders) {
+                int j = bidCol[i];
+                if (j < 0 || winner[j] != i) continue;
+                int holder = colToRow[j];
+                if (holder >= 0) rowToCol[holder] = -1;
+                colToRow[j] = i;
+                rowToCol[i] = j;
+                price[j] = bidAmount[i];
+            }
+        }
+        return rowToCol;
+    }
+
+    /** Build a cost matrix, in parallel for large windows. */
+    public static double[][] buildCostMatrix(int rows, int cols, CostFunction fn) {
+        double[][] cost = new double[rows][cols];
+        IntStream range = IntStream.range(0, rows);
+        if ((long) rows * cols > PARALLEL_THRESHOLD) range = range.parallel();
+        range.forEach(i -> {
+            for (int j = 0; j < cols; j++) cost[i][j] = fn.cost(i, j);
+        });
+        return cost;
+    }
+
+    public interface CostFunction {
+        /** Cost of giving column {@code col} to row {@code row}; POSITIVE_INFINITY if infeasible. */
+        double cost(int row, int col);
+    }
+
+    //-------- helpers ------------
+
+    private static double[][] transpose(double[][] a) {
+        int rows = a.length;
+        int cols = a[0].length;
+        double[][] t = new double[cols][rows];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) t[j][i] = a[i][j];
+        }
+        return t;
+    }
+
+    /** Stand-in for infinity that still keeps the potentials finite. */
+    private static double bigValue(double[][] cost) {
+        double max = 0;
+        for (double[] row : cost) {
+            for (double c : row) {
+                if (c != Double.POSITIVE_INFINITY && Math.abs(c) > max) max = Math.abs(c);
+            }
+        }
+        return (max + 1) * (cost.length + 1) * 4;
+    }
+}
@@ -0,0 +1,25 @@
+package com.warehouse.simulation.tasks;
+
+/**
+ * The default policy. Tasks that are due soon (deadline or aged priority) go first in EDF
+ * order, otherwise the nearest task; either way only tasks within the robot's battery reach.
+ */
+public class BatteryAwareDispatchPolicy implements DispatchPolicy {
+
+    // tasks due within this horizon are served before nearer, less urgent ones
+    private static final long URGENT_HORIZON_MS = 30_000;
+    private static final int URGENT_SCAN_LIMIT = 64;
+
+    @Override
+    public String getName() {
+        return "battery-aware";
+    }
+
+    @Override
+    public Tasks select(ZonedTaskPool pending, Request robot) {
+        long urgentBefore = robot.getNow() + URGENT_HORIZON_MS;
+        Tasks t = pending.pollUrgent(urgentBefore, robot.getPosition(), robot.getReach(), null, URGENT_SCAN_LIMIT);
+        if (t == null) t = pending.pollNearest(robot.getPosition(), robot.getHomeZoneId(), robot.getReach(), null);
+        return t;
+    }
+}
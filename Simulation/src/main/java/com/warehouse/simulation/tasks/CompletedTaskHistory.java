@@ -0,0 +1,206 @@
+package com.warehouse.simulation.tasks;
+
+import java.awt.Point;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.warehouse.simulation.exceptions.ExceptionHandler;
+
+/**
+ * Bounded history of finished tasks. The most recent {@code capacity} tasks live in a
+ * fixed ring buffer; older ones are evicted to an append-only archive file, one line per
+ * task, while running totals cover everything ever recorded. All counts are O(1).
+ */
+public class CompletedTaskHistory {
+
+    /** Evicted lines are written to the archive in batches of this size. */
+    private static final int SPILL_BATCH = 64;
+    private static final DateTimeFormatter TS = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    /** Running totals over the whole history, ring and archive together. */
+    public static final class Summary {
+        private final long total;
+        private final long completed;
+        private final long failed;
+        private final long archived;
+        private final double totalWeight;
+
+        Summary(long total, long completed, long failed, long archived, double totalWeight) {
+            this.total = total;
+            this.completed = completed;
+            this.failed = failed;
+            this.archived = archived;
+            this.totalWeight = totalWeight;
+        }
+
+        public long getTotal() { return total; }
+        public long getCompleted() { return completed; }
+        public long getFailed() { return failed; }
+        public long getArchived() { return archived; }
+        public double getTotalWeight() { return totalWeight; }
+
+        @Override
+        public String toString() {
+            return String.format("total=%d completed=%d failed=%d archived=%d weight=%.1f",
+                    total, completed, failed, archived, totalWeight);
+        }
+    }
+
+    private final Tasks[] ring;
+    private final Path archiveFile;   // null = evicted tasks are only counted
+    private final Object archiveLock = new Object();
+
+    private int head;     // index of the oldest entry
+    private int size;
+    private long total;
+    private long completed;
+    private long failed;
+    private long archived;
+    private double totalWeight;
+    private List<String> spill = new ArrayList<>();
+
+    public CompletedTaskHistory(int capacity, Path archiveFile) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.ring = new Tasks[capacity];
+        this.archiveFile = archiveFile;
+    }
+
+    /** Record a finished task; returns the total number recorded so far. */
+    public long record(Tasks task) {
+        if (task == null) return getTotalCount();
+        List<String> toWrite = null;
+        long now;
+        synchronized (this) {
+            if (size == ring.length) {
+                Tasks evicted = ring[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+                size--;
+                archived++;
+                if (archiveFile != null) {
+                    spill.add(format(evicted));
+                    if (spill.size() >= SPILL_BATCH) {
+                        toWrite = spill;
+                        spill = new ArrayList<>();
+                    }
+                }
+            }
+            ring[(head + size) % ring.length] = task;
+            size++;
+            total++;
+            if (task.getStatus() == Tasks.TaskStatus.FAILED) failed++; else completed++;
+            try { totalWeight += task.getItems().getWeight(); } catch (Throwable ignore) {}
+            now = total;
+        }
+        if (toWrite != null) writeArchive(toWrite);
+        return now;
+    }
+
+    /** Number of tasks currently held in memory. */
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Number of tasks ever recorded, including archived ones. */
+    public synchronized long getTotalCount() {
+        return total;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public synchronized Summary getSummary() {
+        return new Summary(total, completed, failed, archived, totalWeight);
+    }
+
+    /** In-memory tasks, oldest first. */
+    public synchronized List<Tasks> snapshot() {
+        return recent(size);
+    }
+
+    /** The newest {@code n} tasks held in memory, oldest first. */
+    public synchronized List<Tasks> recent(int n) {
+        int count = Math.max(0, Math.min(n, size));
+        List<Tasks> out = new ArrayList<>(count);
+        for (int i = size - count; i < size; i++) out.add(ring[(head + i) % ring.length]);
+        return out;
+    }
+
+    /** Archived records, oldest first, one line per evicted task. */
+    public List<String> readArchive() {
+        flush();
+        if (archiveFile == null) return Collections.emptyList();
+        synchronized (archiveLock) {
+            try {
+                if (!Files.exists(archiveFile)) return Collections.emptyList();
+                return Files.readAllLines(archiveFile);
+            } catch (IOException e) {
+                ExceptionHandler.handle(e, "tasks.CompletedTaskHistory.readArchive");
+                return Collections.emptyList();
+            }
+        }
+    }
+
+    /** Write out evicted records still buffered in memory. */
+    public void flush() {
+        List<String> toWrite;
+        synchronized (this) {
+            if (spill.isEmpty()) return;
+            toWrite = spill;
+            spill = new ArrayList<>();
+        }
+        writeArchive(toWrite);
+    }
+
+    /** Forget everything in memory and reset the totals; the archive file is left as is. */
+    public void clear() {
+        flush();
+        synchronized (this) {
+            java.util.Arrays.fill(ring, null);
+            head = 0;
+            size = 0;
+            total = 0;
+            completed = 0;
+            failed = 0;
+            archived = 0;
+            totalWeight = 0.0;
+        }
+    }
+
+    //-------- helpers ------------
+
+    private void writeArchive(List<String> lines) {
+        synchronized (archiveLock) {
+            try {
+                Path parent = archiveFile.getParent();
+                if (parent != null && !Files.exists(parent)) Files.createDirectories(parent);
+                try (BufferedWriter w = Files.newBufferedWriter(archiveFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (String line : lines) {
+                        w.write(line);
+                        w.newLine();
+                    }
+                }
+            } catch (IOException e) {
+                ExceptionHandler.handle(e, "tasks.CompletedTaskHistory.writeArchive");
+            }
+        }
+    }
+
+    private static String format(Tasks t) {
+        Point d = t.getDestination();
+        double weight = 0.0;
+        try { weight = t.getItems().getWeight(); } catch (Throwable ignore) {}
+        return String.format("%s;%d;%s;%s;%s;%s;%s;%.2f",
+                LocalDateTime.now().format(TS), t.getKey(), t.getId(), t.getStatus(),
+                t.getOrderId(), t.getRobotId(), d == null ? "-" : d.x + "," + d.y, weight);
+    }
+}
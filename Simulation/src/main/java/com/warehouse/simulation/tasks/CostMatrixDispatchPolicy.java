@@ -0,0 +1,71 @@
+package com.warehouse.simulation.tasks;
+
+import java.util.List;
+
+/**
+ * Scores the first pending tasks in schedule order on travel distance plus a penalty for
+ * the time they still have until they are due (capped), and gives the robot the cheapest one it can reach. Used with the dispatch
+ * window, the same cost fills the robot x task matrix solved by {@link AssignmentSolver}.
+ */
+public class CostMatrixDispatchPolicy implements DispatchPolicy {
+
+    private static final int DEFAULT_CANDIDATES = 64;
+    // cells of travel one minute of slack before the due time is worth
+    private static final double DEFAULT_SLACK_WEIGHT = 2.0;
+    // slack beyond this makes no further difference
+    private static final double SLACK_CAP_MINUTES = 5.0;
+
+    private final int candidates;
+    private final double slackWeight;
+
+    public CostMatrixDispatchPolicy() {
+        this(DEFAULT_CANDIDATES, DEFAULT_SLACK_WEIGHT);
+    }
+
+    /**
+     * @param candidates          pending tasks (schedule order) scored per request
+     * @param slackWeightPerMinute cells of travel one minute of slack is worth
+     */
+    public CostMatrixDispatchPolicy(int candidates, double slackWeightPerMinute) {
+        this.candidates = Math.max(1, candidates);
+        this.slackWeight = Math.max(0.0, slackWeightPerMinute);
+    }
+
+    @Override
+    public String getName() {
+        return "cost-matrix";
+    }
+
+    @Override
+    public Tasks select(ZonedTaskPool pending, Request robot) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            List<Tasks> row = pending.peekFirst(candidates);
+            if (row.isEmpty()) return null;
+            Tasks best = null;
+            double bestCost = Double.POSITIVE_INFINITY;
+            for (Tasks t : row) {
+                double c = cost(robot, t);
+                if (c < bestCost) {
+                    best = t;
+                    bestCost = c;
+                }
+            }
+            if (best == null) return null;
+            Tasks removed = pending.remove(best);
+            if (removed != null) return removed;
+            // another robot took it in the meantime: score again
+        }
+        return null;
+    }
+
+    @Override
+    public double cost(Request robot, Tasks task) {
+        double dist = DispatchPolicy.distance(robot.getPosition(), task.getDestination());
+        if (dist > robot.getReach()) return Double.POSITIVE_INFINITY;
+        long rank = task.getScheduleRank();
+        if (rank == Long.MAX_VALUE) return dist + slackWeight * SLACK_CAP_MINUTES;
+        // tasks close to (or past) their due time cost less, so they win over slightly closer ones
+        double minutesLeft = (rank - robot.getNow()) / 60_000.0;
+        return dist + slackWeight * Math.max(0.0, Math.min(SLACK_CAP_MINUTES, minutesLeft));
+    }
+}
@@ -0,0 +1,66 @@
+package com.warehouse.simulation.tasks;
+
+import java.awt.Point;
+
+/**
+ * Decides which pending task a robot asking for work gets. {@link TaskManager} calls
+ * {@link #select} with the robot's state; the policy removes its choice from the pending
+ * pool and returns it. {@link #cost} is what the dispatch window minimises over all idle
+ * robots at once. Implementations must be thread-safe; the built-in ones are stateless.
+ */
+public interface DispatchPolicy {
+
+    /** The robot asking for work, as seen by a policy. */
+    final class Request {
+        private final String robotId;
+        private final Point position;
+        private final double batteryLevel;
+        private final String homeZoneId;
+        private final double reach;
+        private final long now;
+
+        /**
+         * @param reach grid moves the robot can still make and keep its safety reserve,
+         *              as estimated by the task manager's energy model
+         */
+        public Request(String robotId, Point position, double batteryLevel, String homeZoneId, double reach) {
+            this(robotId, position, batteryLevel, homeZoneId, reach, System.currentTimeMillis());
+        }
+
+        /** @param now time of the decision in epoch millis, compared with schedule ranks */
+        public Request(String robotId, Point position, double batteryLevel, String homeZoneId, double reach, long now) {
+            this.robotId = robotId;
+            this.position = position == null ? null : new Point(position);
+            this.batteryLevel = batteryLevel;
+            this.homeZoneId = homeZoneId;
+            this.reach = reach;
+            this.now = now;
+        }
+
+        public String getRobotId() { return robotId; }
+        public Point getPosition() { return position; }
+        public double getBatteryLevel() { return batteryLevel; }
+        /** Zone the robot prefers to work in, or null for the zone it stands in. */
+        public String getHomeZoneId() { return homeZoneId; }
+        public double getReach() { return reach; }
+        /** When the decision is made; policies use it rather than the wall clock. */
+        public long getNow() { return now; }
+    }
+
+    String getName();
+
+    /** Remove the task this robot should do next from {@code pending} and return it, or null. */
+    Tasks select(ZonedTaskPool pending, Request robot);
+
+    /** Cost of giving {@code task} to the robot; infinity if it must not get it. */
+    default double cost(Request robot, Tasks task) {
+        double dist = distance(robot.getPosition(), task.getDestination());
+        return dist > robot.getReach() ? Double.POSITIVE_INFINITY : dist;
+    }
+
+    /** Manhattan distance, 0 when either point is unknown. */
+    static double distance(Point a, Point b) {
+        if (a == null || b == null) return 0.0;
+        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    }
+}
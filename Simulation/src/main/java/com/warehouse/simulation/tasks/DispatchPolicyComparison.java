@@ -0,0 +1,242 @@
+package com.warehouse.simulation.tasks;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.warehouse.simulation.robots.Robot;
+import com.warehouse.simulation.storage.Item;
+
+/**
+ * Replays one workload against several dispatch policies on a simple tick model and
+ * reports throughput, empty travel (robot to pickup) and the time each policy needs per
+ * decision. Robots move one cell per tick, deliver to a single drop-off and recharge
+ * there when their battery runs low. Battery use and reach come from an {@link EnergyModel},
+ * by default one at what a {@link Robot} spends per move. The clock is the tick: schedule
+ * ranks and the policies' idea of "now" are derived from it, so a replay is reproducible.
+ */
+public final class DispatchPolicyComparison {
+
+    /** Length of a tick, as the robots tick; converts ticks to the millis ranks are kept in. */
+    private static final long TICK_MS = 1000;
+    private static final double LOAD_KG = 1.0;
+    private static final double SAFETY_MARGIN = 8.0;
+    private static final double LOW_BATTERY = 30.0;
+    private static final int CHARGE_TICKS = 40;
+    private static final int HANDLING_TICKS = 2;
+
+    private DispatchPolicyComparison() {}
+
+    /** Tasks with their arrival tick and pickup cell, replayed identically for every policy. */
+    public static final class Workload {
+        private final int robots;
+        private final Point dropOff;
+        private final int[] arrival;
+        private final Point[] pickup;
+
+        public Workload(int robots, Point dropOff, int[] arrival, Point[] pickup) {
+            if (arrival.length != pickup.length) throw new IllegalArgumentException("arrival and pickup differ in length");
+            this.robots = Math.max(1, robots);
+            this.dropOff = new Point(dropOff);
+            this.arrival = arrival.clone();
+            this.pickup = pickup.clone();
+        }
+
+        /**
+         * {@code tasks} uniformly spread pickups arriving about every {@code meanGapTicks} ticks,
+         * delivered to the middle of the grid.
+         */
+        public static Workload random(long seed, int tasks, int robots, int gridSize, double meanGapTicks) {
+            Random rnd = new Random(seed);
+            int[] arrival = new int[tasks];
+            Point[] pickup = new Point[tasks];
+            double t = 0;
+            for (int i = 0; i < tasks; i++) {
+                t += -Math.log(1.0 - rnd.nextDouble()) * meanGapTicks;
+                arrival[i] = (int) t;
+                pickup[i] = new Point(rnd.nextInt(gridSize), rnd.nextInt(gridSize));
+            }
+            return new Workload(robots, new Point(gridSize / 2, gridSize / 2), arrival, pickup);
+        }
+
+        public int size() { return arrival.length; }
+    }
+
+    /** Outcome of one policy on one workload. */
+    public static final class Result {
+        private final String policy;
+        private final int completed;
+        private final long ticks;
+        private final long emptyTravel;
+        private final long loadedTravel;
+        private final long meanCycleTicks;
+        private final int batteryShortfalls;
+        private final double meanDecisionMicros;
+        private final double p99DecisionMicros;
+
+        Result(String policy, int completed, long ticks, long emptyTravel, long loadedTravel, long meanCycleTicks,
+               int batteryShortfalls, double meanDecisionMicros, double p99DecisionMicros) {
+            this.policy = policy;
+            this.completed = completed;
+            this.ticks = ticks;
+            this.emptyTravel = emptyTravel;
+            this.loadedTravel = loadedTravel;
+            this.meanCycleTicks = meanCycleTicks;
+            this.batteryShortfalls = batteryShortfalls;
+            this.meanDecisionMicros = meanDecisionMicros;
+            this.p99DecisionMicros = p99DecisionMicros;
+        }
+
+        public String getPolicy() { return policy; }
+        public int getCompleted() { return completed; }
+        /** Ticks until the last task was delivered. */
+        public long getTicks() { return ticks; }
+        /** Completed tasks per 1000 ticks. */
+        public double getThroughput() { return ticks == 0 ? 0.0 : completed * 1000.0 / ticks; }
+        /** Cells driven without a load, from where a robot was to the pickup. */
+        public long getEmptyTravel() { return emptyTravel; }
+        public long getLoadedTravel() { return loadedTravel; }
+        /** Mean ticks from a task's arrival to its delivery. */
+        public long getMeanCycleTicks() { return meanCycleTicks; }
+        /** Assignments the robot's battery could not cover. */
+        public int getBatteryShortfalls() { return batteryShortfalls; }
+        public double getMeanDecisionMicros() { return meanDecisionMicros; }
+        public double getP99DecisionMicros() { return p99DecisionMicros; }
+
+        @Override
+        public String toString() {
+            return String.format("%-14s done=%-5d ticks=%-6d thr=%7.2f empty=%-7d loaded=%-7d cycle=%-5d short=%-4d dec=%.1fus p99=%.1fus",
+                    policy, completed, ticks, getThroughput(), emptyTravel, loadedTravel, meanCycleTicks,
+                    batteryShortfalls, meanDecisionMicros, p99DecisionMicros);
+        }
+    }
+
+    /** Run every policy on the same workload, at a robot's cost per move. */
+    public static List<Result> compare(Workload workload, List<DispatchPolicy> policies) {
+        return compare(workload, policies, robotEnergy());
+    }
+
+    public static List<Result> compare(Workload workload, List<DispatchPolicy> policies, EnergyModel energy) {
+        List<Result> results = new ArrayList<>();
+        for (DispatchPolicy p : policies) results.add(run(p, workload, energy));
+        return results;
+    }
+
+    public static Result run(DispatchPolicy policy, Workload w) {
+        return run(policy, w, robotEnergy());
+    }
+
+    /** @param energy battery cost of a move, e.g. a task manager's calibrated model */
+    public static Result run(DispatchPolicy policy, Workload w, EnergyModel energy) {
+        int n = w.size();
+        ZonedTaskPool pool = new ZonedTaskPool();
+        Tasks[] tasks = new Tasks[n];
+        java.util.Map<Tasks, Integer> index = new java.util.IdentityHashMap<>();
+        for (int i = 0; i < n; i++) {
+            tasks[i] = new Tasks("W" + i, w.pickup[i], new Item("WI" + i, "Item", LOAD_KG));
+            // rank and order fixed on the tick clock, so the pool does not read the wall clock
+            tasks[i].setQueueSeq(i);
+            tasks[i].fixScheduleRank(w.arrival[i] * TICK_MS);
+            index.put(tasks[i], i);
+        }
+        double moveCost = energy.moveCost(0.0);
+
+        Point[] pos = new Point[w.robots];
+        double[] battery = new double[w.robots];
+        long[] busyUntil = new long[w.robots];
+        for (int r = 0; r < w.robots; r++) {
+            pos[r] = new Point(w.dropOff);
+            battery[r] = 100.0;
+        }
+
+        long[] decisions = new long[n * 2 + 16];
+        int decisionCount = 0;
+        long emptyTravel = 0;
+        long loadedTravel = 0;
+        long cycleSum = 0;
+        int completed = 0;
+        int shortfalls = 0;
+        int next = 0;
+        long tick = 0;
+        long lastDelivery = 0;
+        long maxTicks = (n == 0 ? 0 : w.arrival[n - 1]) + (long) n * 200 + 1000;
+
+        while (completed < n && tick < maxTicks) {
+            List<Tasks> arrived = new ArrayList<>();
+            while (next < n && w.arrival[next] <= tick) arrived.add(tasks[next++]);
+            if (!arrived.isEmpty()) pool.addAll(arrived);
+
+            for (int k = 0; k < w.robots && !pool.isEmpty(); k++) {
+                int r = (int) ((k + tick) % w.robots);   // rotate who asks first
+                if (busyUntil[r] > tick) continue;
+                if (battery[r] < LOW_BATTERY) {
+                    battery[r] = 100.0;
+                    busyUntil[r] = tick + CHARGE_TICKS;
+                    continue;
+                }
+                DispatchPolicy.Request req = new DispatchPolicy.Request("R" + r, pos[r], battery[r], null,
+                        moveCost <= 0 ? Double.POSITIVE_INFINITY : (battery[r] - SAFETY_MARGIN) / moveCost, tick * TICK_MS);
+                long t0 = System.nanoTime();
+                Tasks t = policy.select(pool, req);
+                long spent = System.nanoTime() - t0;
+                if (decisionCount == decisions.length) decisions = Arrays.copyOf(decisions, decisionCount * 2);
+                decisions[decisionCount++] = spent;
+                if (t == null) {
+                    // work left but none within reach: recharge first
+                    if (!pool.isEmpty() && battery[r] < 100.0) {
+                        battery[r] = 100.0;
+                        busyUntil[r] = tick + CHARGE_TICKS;
+                    }
+                    continue;
+                }
+
+                Point p = t.getDestination();
+                long empty = (long) DispatchPolicy.distance(pos[r], p);
+                long loaded = (long) DispatchPolicy.distance(p, w.dropOff);
+                double need = energy.tripCost((int) empty, (int) loaded, LOAD_KG);
+                if (need > battery[r]) shortfalls++;
+                battery[r] = Math.max(0.0, battery[r] - need);
+                emptyTravel += empty;
+                loadedTravel += loaded;
+                busyUntil[r] = tick + empty + loaded + HANDLING_TICKS;
+                pos[r] = new Point(w.dropOff);
+                cycleSum += busyUntil[r] - w.arrival[index.get(t)];
+                lastDelivery = Math.max(lastDelivery, busyUntil[r]);
+                completed++;
+            }
+            tick++;
+        }
+
+        long[] spent = Arrays.copyOf(decisions, decisionCount);
+        Arrays.sort(spent);
+        double mean = 0.0;
+        for (long s : spent) mean += s;
+        mean = spent.length == 0 ? 0.0 : mean / spent.length / 1000.0;
+        double p99 = spent.length == 0 ? 0.0 : spent[Math.min(spent.length - 1, (int) Math.ceil(spent.length * 0.99) - 1)] / 1000.0;
+        return new Result(policy.getName(), completed, lastDelivery, emptyTravel, loadedTravel,
+                completed == 0 ? 0 : cycleSum / completed, shortfalls, mean, p99);
+    }
+
+    /** What a robot spends per move, with nothing learned on top. */
+    public static EnergyModel robotEnergy() {
+        return new EnergyModel(Robot.BATTERY_COST_PER_MOVE);
+    }
+
+    /** Default policies, in the order they are reported. */
+    public static List<DispatchPolicy> builtInPolicies() {
+        return List.of(new FifoDispatchPolicy(), new NearestDispatchPolicy(),
+                new BatteryAwareDispatchPolicy(), new CostMatrixDispatchPolicy());
+    }
+
+    public static void main(String[] args) {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int robots = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        // a full battery reaches about 30 cells, so a pickup is at most 20 from the middle
+        int grid = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        Workload w = Workload.random(42L, tasks, robots, grid, 1.5);
+        System.out.printf("%d tasks, %d robots, %dx%d grid%n", tasks, robots, grid, grid);
+        for (Result r : compare(w, builtInPolicies())) System.out.println(r);
+    }
+}
@@ -0,0 +1,76 @@
+package com.warehouse.simulation.tasks;
+
+/**
+ * Battery cost of driving, learned from what robots actually use. Robots report every leg
+ * they drive (moves, battery used, load carried); the cost of an empty move and the extra
+ * cost per kg of load are exponentially weighted moving averages of those reports, so the
+ * estimate follows the fleet when consumption changes. Until the first report the prior
+ * from {@link TaskManager#setEnergyEstimate} is used.
+ */
+public class EnergyModel {
+
+    // loads below this count as driving empty
+    private static final double EMPTY_LOAD_KG = 1e-6;
+
+    private double alpha = 0.2;
+    private double costPerMove;
+    private double costPerKgMove = 0.0;
+    private long emptySamples = 0;
+    private long loadedSamples = 0;
+
+    public EnergyModel(double priorCostPerMove) {
+        this.costPerMove = Math.max(0.0, priorCostPerMove);
+    }
+
+    /** Weight of the newest report, in (0, 1]. */
+    public synchronized void setAlpha(double alpha) {
+        if (alpha > 0 && alpha <= 1) this.alpha = alpha;
+    }
+
+    public synchronized double getAlpha() { return alpha; }
+
+    /** Forget what was learned and start from this cost per move. */
+    public synchronized void reset(double priorCostPerMove) {
+        this.costPerMove = Math.max(0.0, priorCostPerMove);
+        this.costPerKgMove = 0.0;
+        this.emptySamples = 0;
+        this.loadedSamples = 0;
+    }
+
+    /** A robot drove {@code moves} cells carrying {@code loadKg} and used {@code energy} battery. */
+    public synchronized void observe(int moves, double energy, double loadKg) {
+        if (moves <= 0 || energy < 0) return;
+        double perMove = energy / moves;
+        if (loadKg <= EMPTY_LOAD_KG) {
+            // the first report replaces the prior outright
+            costPerMove = emptySamples == 0 ? perMove : costPerMove + alpha * (perMove - costPerMove);
+            emptySamples++;
+        } else if (emptySamples > 0) {
+            // the load share only means something once the empty cost is known
+            double perKg = Math.max(0.0, (perMove - costPerMove) / loadKg);
+            costPerKgMove = loadedSamples == 0 ? perKg : costPerKgMove + alpha * (perKg - costPerKgMove);
+            loadedSamples++;
+        }
+    }
+
+    /** Battery one move costs carrying {@code loadKg}. */
+    public synchronized double moveCost(double loadKg) {
+        return costPerMove + costPerKgMove * Math.max(0.0, loadKg);
+    }
+
+    /** Battery for {@code emptyMoves} without load and {@code loadedMoves} carrying {@code loadKg}. */
+    public synchronized double tripCost(int emptyMoves, int loadedMoves, double loadKg) {
+        return Math.max(0, emptyMoves) * moveCost(0.0) + Math.max(0, loadedMoves) * moveCost(loadKg);
+    }
+
+    public synchronized double getCostPerMove() { return costPerMove; }
+    public synchronized double getCostPerKgMove() { return costPerKgMove; }
+
+    /** Legs reported so far. */
+    public synchronized long getSamples() { return emptySamples + loadedSamples; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("move=%.3f perKg=%.4f samples=%d", costPerMove, costPerKgMove, getSamples());
+    }
+}
@@ -0,0 +1,31 @@
+package com.warehouse.simulation.tasks;
+
+/** First task in schedule order, wherever it is and whatever the robot's battery. */
+public class FifoDispatchPolicy implements DispatchPolicy {
+
+    // small enough that distance only decides between tasks due in the same millisecond
+    private static final double DISTANCE_WEIGHT = 1e-9;
+
+    @Override
+    public String getName() {
+        return "fifo";
+    }
+
+    @Override
+    public Tasks select(ZonedTaskPool pending, Request robot) {
+        return pending.pollFirst();
+    }
+
+    /**
+     * In the dispatch window: the sooner a task is due the cheaper, overdue ones all cost
+     * the same; ties go to the nearer robot, and tasks out of the robot's reach are excluded.
+     */
+    @Override
+    public double cost(Request robot, Tasks task) {
+        double dist = DispatchPolicy.distance(robot.getPosition(), task.getDestination());
+        if (dist > robot.getReach()) return Double.POSITIVE_INFINITY;
+        long rank = task.getScheduleRank();
+        double wait = rank == Long.MAX_VALUE ? 1e6 : Math.max(0.0, (rank - robot.getNow()) / 1000.0);
+        return wait + dist * DISTANCE_WEIGHT;
+    }
+}
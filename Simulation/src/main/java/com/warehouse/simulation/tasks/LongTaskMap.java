@@ -0,0 +1,137 @@
+package com.warehouse.simulation.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Open-addressing hash map from a task's {@code long} key to the task, without boxing.
+ * Linear probing with backward-shift deletion, so there are no tombstones and lookups
+ * stay O(1) however many tasks come and go. Not thread-safe; callers synchronize.
+ */
+final class LongTaskMap {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Tasks[] values;   // null = free slot
+    private int size;
+    private int mask;
+
+    LongTaskMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongTaskMap(int expected) {
+        int cap = MIN_CAPACITY;
+        while (cap < expected * 2) cap <<= 1;
+        allocate(cap);
+    }
+
+    Tasks get(long key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /** Insert unless the key is present; returns the task already stored, or null if inserted. */
+    Tasks putIfAbsent(long key, Tasks value) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) return values[i];
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > values.length) allocateAndRehash(values.length << 1);
+        return null;
+    }
+
+    Tasks remove(long key) {
+        int i = slot(key);
+        while (values[i] != null) {
+            if (keys[i] == key) {
+                Tasks old = values[i];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        if (values.length > MIN_CAPACITY * 4) {
+            allocate(MIN_CAPACITY);
+        } else {
+            java.util.Arrays.fill(values, null);
+        }
+        size = 0;
+    }
+
+    List<Tasks> values() {
+        List<Tasks> out = new ArrayList<>(size);
+        for (Tasks t : values) {
+            if (t != null) out.add(t);
+        }
+        return out;
+    }
+
+    //-------- helpers ------------
+
+    private int slot(long key) {
+        // fibonacci hashing spreads sequential ids over the table
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+    }
+
+    /** Close the gap at {@code gap} by moving later entries of the same probe run back. */
+    private void shiftBack(int gap) {
+        int i = (gap + 1) & mask;
+        while (values[i] != null) {
+            int home = slot(keys[i]);
+            // the entry may move into the gap if its home is not inside (gap, i]
+            boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (movable) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+            i = (i + 1) & mask;
+        }
+        values[gap] = null;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Tasks[capacity];
+        mask = capacity - 1;
+    }
+
+    private void allocateAndRehash(int capacity) {
+        long[] oldKeys = keys;
+        Tasks[] oldValues = values;
+        allocate(capacity);
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = slot(oldKeys[j]);
+            while (values[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.warehouse.simulation.tasks;
+
+/** Nearest pending task (home zone first), ignoring deadlines and battery. */
+public class NearestDispatchPolicy implements DispatchPolicy {
+
+    @Override
+    public String getName() {
+        return "nearest";
+    }
+
+    @Override
+    public Tasks select(ZonedTaskPool pending, Request robot) {
+        return pending.pollNearest(robot.getPosition(), robot.getHomeZoneId(), Double.POSITIVE_INFINITY, null);
+    }
+
+    @Override
+    public double cost(Request robot, Tasks task) {
+        return DispatchPolicy.distance(robot.getPosition(), task.getDestination());
+    }
+}
@@ -0,0 +1,321 @@
+package com.warehouse.simulation.tasks;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Pending tasks indexed by destination and ordered by schedule rank.
+ *
+ * Every destination cell has its own queue, and the non-empty cells are grouped into
+ * square buckets of {@code bucketSize} cells. A global view in the same order is kept
+ * next to it for the plain {@code robotGetTask()}, the urgent-first lookup and the UI
+ * listings. Finding the nearest task for a robot looks at buckets ring by ring around
+ * the robot and only at the head of each cell queue, and stops as soon as no closer
+ * bucket can exist or the battery radius is exceeded, so the cost depends on the number
+ * of distinct destinations nearby and not on the size of the backlog. Once the rings
+ * have probed more buckets than exist, the remaining non-empty buckets are walked
+ * directly, so a sparse pool never costs more than about twice the ring search.
+ *
+ * The order is earliest schedule rank first (see {@link Tasks#getScheduleRank()}), then
+ * insertion order. Both are fixed on first insertion, so a requeued task goes back to
+ * its original place and every add/remove is O(log n).
+ */
+public class PendingTaskPool {
+
+    public static final int DEFAULT_BUCKET_SIZE = 8;
+
+    private final int bucketSize;
+    /** Earliest schedule rank first, then insertion order. */
+    public static final java.util.Comparator<Tasks> SCHEDULE_ORDER = (a, b) -> {
+        int c = Long.compare(a.getScheduleRank(), b.getScheduleRank());
+        return c != 0 ? c : Long.compare(a.getQueueSeq(), b.getQueueSeq());
+    };
+
+    private final TreeSet<Tasks> ordered = new TreeSet<>(SCHEDULE_ORDER);
+    private final Map<Long, TreeSet<Tasks>> cells = new HashMap<>();
+    private final Map<Long, Map<Long, Point>> buckets = new HashMap<>();
+    // tasks without a destination can be done from anywhere
+    private final TreeSet<Tasks> anywhere = new TreeSet<>(SCHEDULE_ORDER);
+    private final LongTaskMap byKey = new LongTaskMap();
+    // shared by all pools so that tasks kept in different pools (zones) stay comparable
+    private static final AtomicLong NEXT_SEQ = new AtomicLong();
+
+    public PendingTaskPool() {
+        this(DEFAULT_BUCKET_SIZE);
+    }
+
+    public PendingTaskPool(int bucketSize) {
+        if (bucketSize <= 0) throw new IllegalArgumentException("bucketSize must be positive: " + bucketSize);
+        this.bucketSize = bucketSize;
+    }
+
+    /** Add a task; returns false if it is already pending. */
+    public synchronized boolean add(Tasks task) {
+        if (task == null || byKey.putIfAbsent(task.getKey(), task) != null) return false;
+        if (task.getQueueSeq() < 0) {
+            task.setQueueSeq(NEXT_SEQ.getAndIncrement());
+            task.fixScheduleRank(System.currentTimeMillis());
+        }
+        ordered.add(task);
+        queueFor(task.getDestination(), true).add(task);
+        return true;
+    }
+
+    /** Add several tasks under one lock; returns the ones that were not duplicates. */
+    public synchronized List<Tasks> addAll(java.util.Collection<Tasks> tasks) {
+        List<Tasks> added = new ArrayList<>(tasks.size());
+        for (Tasks t : tasks) {
+            if (add(t)) added.add(t);
+        }
+        return added;
+    }
+
+    public synchronized boolean contains(long taskKey) {
+        return byKey.containsKey(taskKey);
+    }
+
+    public synchronized Tasks get(long taskKey) {
+        return byKey.get(taskKey);
+    }
+
+    /** Remove a pending task by key; returns the removed task or null. */
+    public synchronized Tasks remove(long taskKey) {
+        Tasks t = byKey.remove(taskKey);
+        if (t == null) return null;
+        ordered.remove(t);
+        Point dest = t.getDestination();
+        TreeSet<Tasks> queue = queueFor(dest, false);
+        if (queue != null) {
+            queue.remove(t);
+            if (queue.isEmpty() && dest != null) {
+                long cell = cellKey(dest.x, dest.y);
+                cells.remove(cell);
+                long bk = bucketKey(dest);
+                Map<Long, Point> bucket = buckets.get(bk);
+                if (bucket != null) {
+                    bucket.remove(cell);
+                    if (bucket.isEmpty()) buckets.remove(bk);
+                }
+            }
+        }
+        return t;
+    }
+
+    /** Remove and return the first pending task in schedule order. */
+    public synchronized Tasks pollFirst() {
+        if (ordered.isEmpty()) return null;
+        return remove(ordered.first().getKey());
+    }
+
+    /**
+     * Remove and return the first task in schedule order whose rank is at most
+     * {@code rankLimit} and whose destination is within {@code maxDistance} of {@code from}.
+     * At most {@code scanLimit} urgent tasks are looked at.
+     */
+    public synchronized Tasks pollUrgent(long rankLimit, Point from, double maxDistance, Predicate<Tasks> filter, int scanLimit) {
+        Tasks t = findUrgent(rankLimit, from, maxDistance, filter, scanLimit);
+        return t == null ? null : remove(t.getKey());
+    }
+
+    synchronized Tasks findUrgent(long rankLimit, Point from, double maxDistance, Predicate<Tasks> filter, int scanLimit) {
+        int scanned = 0;
+        for (Tasks t : ordered) {
+            if (t.getScheduleRank() > rankLimit || scanned++ >= scanLimit) break;
+            if (from != null && distance(from, t.getDestination()) > maxDistance) continue;
+            if (filter != null && !filter.test(t)) continue;
+            return t;
+        }
+        return null;
+    }
+
+    /**
+     * Remove and return the pending task closest to {@code from} (Manhattan distance)
+     * that is at most {@code maxDistance} away and passes {@code filter}. Ties go to the
+     * task that comes first in schedule order. With an unknown robot position the first
+     * acceptable task in schedule order is taken.
+     */
+    public synchronized Tasks pollNearest(Point from, double maxDistance, Predicate<Tasks> filter) {
+        Tasks best = findNearest(from, maxDistance, filter);
+        return best == null ? null : remove(best.getKey());
+    }
+
+    synchronized Tasks findNearest(Point from, double maxDistance, Predicate<Tasks> filter) {
+        if (ordered.isEmpty() || maxDistance < 0) return null;
+        if (from == null) return firstMatching(ordered, filter);
+
+        Tasks any = firstMatching(anywhere, filter);
+        if (any != null) return any;
+
+        Nearest near = new Nearest(from, maxDistance, filter);
+        int bx = Math.floorDiv(from.x, bucketSize);
+        int by = Math.floorDiv(from.y, bucketSize);
+        // capped so an unlimited distance cannot overflow the ring arithmetic
+        long maxRing = (long) Math.min(Math.floor(maxDistance / bucketSize) + 1, 1 << 20);
+
+        long probes = 0;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // every cell in this ring is at least this far away
+            long ringMin = ring == 0 ? 0 : (long) (ring - 1) * bucketSize + 1;
+            if (ringMin > maxDistance || ringMin > near.bestDist) break;
+            if (probes >= buckets.size()) {
+                // the rings already cost more than all non-empty buckets: walk those instead
+                for (Map<Long, Point> bucket : buckets.values()) near.offer(bucket);
+                return near.best;
+            }
+            if (ring == 0) {
+                near.offer(buckets.get(cellKey(bx, by)));
+                probes++;
+                continue;
+            }
+            // only the perimeter: the top and bottom rows, then the sides between them
+            for (int dx = -ring; dx <= ring; dx++) {
+                near.offer(buckets.get(cellKey(bx + dx, by - ring)));
+                near.offer(buckets.get(cellKey(bx + dx, by + ring)));
+            }
+            for (int dy = -ring + 1; dy < ring; dy++) {
+                near.offer(buckets.get(cellKey(bx - ring, by + dy)));
+                near.offer(buckets.get(cellKey(bx + ring, by + dy)));
+            }
+            probes += 8L * ring;
+        }
+        return near.best;
+    }
+
+    /** Best task found so far by {@link #findNearest}; closer wins, then schedule order. */
+    private final class Nearest {
+        private final Point from;
+        private final double maxDistance;
+        private final Predicate<Tasks> filter;
+        Tasks best;
+        long bestDist = Long.MAX_VALUE;
+
+        Nearest(Point from, double maxDistance, Predicate<Tasks> filter) {
+            this.from = from;
+            this.maxDistance = maxDistance;
+            this.filter = filter;
+        }
+
+        void offer(Map<Long, Point> bucket) {
+            if (bucket == null) return;
+            for (Point cell : bucket.values()) {
+                long d = distance(from, cell);
+                if (d > maxDistance || d > bestDist) continue;
+                Tasks t = firstMatching(cells.get(cellKey(cell.x, cell.y)), filter);
+                if (t == null) continue;
+                if (d == bestDist && best != null && SCHEDULE_ORDER.compare(t, best) > 0) continue;
+                best = t;
+                bestDist = d;
+            }
+        }
+    }
+
+    /** Remove every pending task matching the predicate and return them in schedule order. */
+    public synchronized List<Tasks> removeIf(Predicate<Tasks> predicate) {
+        List<Tasks> removed = new ArrayList<>();
+        Iterator<Tasks> it = new ArrayList<>(ordered).iterator();
+        while (it.hasNext()) {
+            Tasks t = it.next();
+            if (predicate.test(t)) {
+                remove(t.getKey());
+                removed.add(t);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * The last task in schedule order (the one that would be served last) that passes
+     * {@code filter}, looking at no more than {@code scanLimit} tasks; left in the pool.
+     */
+    synchronized Tasks findLast(Predicate<Tasks> filter, int scanLimit) {
+        int scanned = 0;
+        for (Tasks t : ordered.descendingSet()) {
+            if (scanned++ >= scanLimit) break;
+            if (filter == null || filter.test(t)) return t;
+        }
+        return null;
+    }
+
+    /** The first pending task in schedule order, left in the pool. */
+    synchronized Tasks peekFirst() {
+        return ordered.isEmpty() ? null : ordered.first();
+    }
+
+    /** The first {@code limit} pending tasks in schedule order, left in the pool. */
+    public synchronized List<Tasks> peekFirst(int limit) {
+        List<Tasks> out = new ArrayList<>(Math.min(Math.max(limit, 0), ordered.size()));
+        for (Tasks t : ordered) {
+            if (out.size() >= limit) break;
+            out.add(t);
+        }
+        return out;
+    }
+
+    /** Snapshot in schedule order. */
+    public synchronized List<Tasks> snapshot() {
+        return new ArrayList<>(ordered);
+    }
+
+    public synchronized int size() {
+        return ordered.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return ordered.isEmpty();
+    }
+
+    public synchronized void clear() {
+        ordered.clear();
+        cells.clear();
+        buckets.clear();
+        anywhere.clear();
+        byKey.clear();
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    //-------- helpers ------------
+
+    private TreeSet<Tasks> queueFor(Point dest, boolean create) {
+        if (dest == null) return anywhere;
+        long cell = cellKey(dest.x, dest.y);
+        TreeSet<Tasks> queue = cells.get(cell);
+        if (queue == null && create) {
+            queue = new TreeSet<>(SCHEDULE_ORDER);
+            cells.put(cell, queue);
+            buckets.computeIfAbsent(bucketKey(dest), k -> new HashMap<>()).put(cell, new Point(dest));
+        }
+        return queue;
+    }
+
+    private long bucketKey(Point p) {
+        return cellKey(Math.floorDiv(p.x, bucketSize), Math.floorDiv(p.y, bucketSize));
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) ^ (y & 0xffffffffL);
+    }
+
+    static long distance(Point a, Point b) {
+        if (b == null) return 0;
+        return Math.abs((long) a.x - b.x) + Math.abs((long) a.y - b.y);
+    }
+
+    private static Tasks firstMatching(NavigableSet<Tasks> set, Predicate<Tasks> filter) {
+        if (set == null) return null;
+        for (Tasks t : set) {
+            if (filter == null || filter.test(t)) return t;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+package com.warehouse.simulation.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases on the tasks a robot holds. A robot has one lease covering all its active tasks;
+ * renewing only moves the lease's expiry forward, which is O(1). Each lease has a single
+ * timer in a {@link DelayQueue}; when a timer fires for a lease that was renewed in the
+ * meantime it is re-armed at the new expiry, otherwise the lease has expired.
+ * Not used when the timeout is 0.
+ */
+final class TaskLeases {
+
+    /** The tasks one robot holds and when its claim on them runs out. */
+    static final class Lease {
+        final String robotId;
+        final List<Tasks> tasks = new ArrayList<>();
+        volatile long expiresAt;   // System.nanoTime()
+
+        Lease(String robotId) {
+            this.robotId = robotId;
+        }
+
+        synchronized List<Tasks> tasks() {
+            return new ArrayList<>(tasks);
+        }
+    }
+
+    private static final class Timer implements Delayed {
+        final Lease lease;
+        final long deadline;
+
+        Timer(Lease lease, long deadline) {
+            this.lease = lease;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(deadline, ((Timer) o).deadline);
+        }
+    }
+
+    private final ConcurrentMap<String, Lease> byRobot = new ConcurrentHashMap<>();
+    private final DelayQueue<Timer> timers = new DelayQueue<>();
+    // robots whose lease expired and that have not noticed yet
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    private volatile long timeoutNanos;
+
+    TaskLeases(long timeoutMs) {
+        setTimeout(timeoutMs);
+    }
+
+    void setTimeout(long timeoutMs) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, timeoutMs));
+    }
+
+    long getTimeoutMs() {
+        return TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+    }
+
+    boolean isEnabled() {
+        return timeoutNanos > 0;
+    }
+
+    /** Add a task to the robot's lease, starting the lease if it has none. */
+    void grant(String robotId, Tasks task) {
+        if (robotId == null || task == null || !isEnabled()) return;
+        revoked.remove(robotId);
+        long expiresAt = System.nanoTime() + timeoutNanos;
+        byRobot.compute(robotId, (k, lease) -> {
+            if (lease == null) {
+                lease = new Lease(robotId);
+                timers.add(new Timer(lease, expiresAt));
+            }
+            synchronized (lease) {
+                if (!lease.tasks.contains(task)) lease.tasks.add(task);
+            }
+            lease.expiresAt = expiresAt;
+            return lease;
+        });
+    }
+
+    /**
+     * Extend the robot's lease. Returns false if the robot's lease expired since its last
+     * assignment, i.e. its tasks were taken back; that is reported once.
+     */
+    boolean renew(String robotId) {
+        if (robotId == null) return true;
+        if (revoked.remove(robotId)) return false;
+        Lease lease = byRobot.get(robotId);
+        if (lease != null) lease.expiresAt = System.nanoTime() + timeoutNanos;
+        return true;
+    }
+
+    /** Drop a task from the robot's lease; the lease ends with its last task. */
+    void release(String robotId, Tasks task) {
+        if (robotId == null || task == null) return;
+        byRobot.computeIfPresent(robotId, (k, lease) -> {
+            synchronized (lease) {
+                lease.tasks.remove(task);
+                return lease.tasks.isEmpty() ? null : lease;
+            }
+        });
+    }
+
+    /** Remove and return every lease that has run out. */
+    List<Lease> expire() {
+        List<Lease> expired = new ArrayList<>();
+        Timer timer;
+        while ((timer = timers.poll()) != null) {
+            Lease lease = timer.lease;
+            long now = System.nanoTime();
+            boolean[] gone = {false};
+            byRobot.computeIfPresent(lease.robotId, (k, current) -> {
+                if (current != lease) return current;   // timer of an ended lease
+                if (lease.expiresAt - now > 0) {
+                    timers.add(new Timer(lease, lease.expiresAt));
+                    return current;
+                }
+                gone[0] = true;
+                return null;
+            });
+            if (gone[0]) {
+                revoked.add(lease.robotId);
+                expired.add(lease);
+            }
+        }
+        return expired;
+    }
+
+    int size() {
+        return byRobot.size();
+    }
+
+    void clear() {
+        byRobot.clear();
+        timers.clear();
+        revoked.clear();
+    }
+}
@@ -1,20 +1,24 @@
 package com.warehouse.simulation.tasks;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.ArrayList;
 import java.util.Queue;
 import java.util.Map;
 import java.util.LinkedList;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntBiFunction;
 import com.warehouse.simulation.storage.Order;
 import com.warehouse.simulation.logging.LogManager;
 import com.warehouse.simulation.storage.Item;
@@ -24,21 +28,97 @@ import com.warehouse.simulation.app.model.StorageUnitsStore;
 import com.warehouse.simulation.storage.Order;
 import com.warehouse.simulation.storage.StorageUnit;
 import com.warehouse.simulation.logging.LogManager;
+import com.warehouse.simulation.utils.GridZone;
+import com.warehouse.simulation.utils.WarehouseGrid;
 import java.awt.Point;
 
 public class TaskManager{
 
     private String taskmanagerId;
-    private final ConcurrentLinkedDeque<Tasks> taskQueue = new ConcurrentLinkedDeque<>();
-    private final ConcurrentMap<String, Tasks> activeTasks = new ConcurrentHashMap<>();
+    // pending tasks, sharded by zone and indexed by destination so robots can pick the nearest feasible one
+    private final ZonedTaskPool taskQueue = new ZonedTaskPool();
+    // optional fixed home zone per robot id; otherwise the zone the robot is standing in
+    private final ConcurrentMap<String, String> homeZones = new ConcurrentHashMap<>();
+    // tasks handed to robots, and every live (pending or active) task, by long key
+    private final TaskRegistry activeTasks = new TaskRegistry();
+    private final TaskRegistry liveTasks = new TaskRegistry();
     private LogManager logManager;
-    private final ConcurrentLinkedDeque<Tasks> completedTasksList = new ConcurrentLinkedDeque<>();
+    private final CompletedTaskHistory completedTasks;
     private final CopyOnWriteArrayList<TaskListener> listeners = new CopyOnWriteArrayList<>();
     private final AtomicInteger pendingCount = new AtomicInteger(0);
     private final java.util.concurrent.ConcurrentMap<String, Boolean> busyRobots = new java.util.concurrent.ConcurrentHashMap<>();
     private final static int MAX_COMPLETED_TASKS = 1000; // larger buffer for tests
     private final DateTimeFormatter df = DateTimeFormatter.ISO_DATE;
     private final int MAX_ASSIGN_ATTEMPTS = 3;
+    // battery cost per grid move, calibrated from what robots report
+    private final EnergyModel energyModel = new EnergyModel(0.5);
+    private volatile double safetyMargin = 8.0; // reserve battery for safety / return/charging
+    // moves between two cells along real paths; null = Manhattan distance
+    private volatile ToIntBiFunction<Point, Point> pathLengths;
+    // tasks a policy picked that a real path would not let the robot finish on its battery
+    private static final int MAX_ENERGY_REJECTS = 4;
+    private final AtomicLong energyRejectedCount = new AtomicLong(0);
+    // which pending task a robot asking for work gets
+    private volatile DispatchPolicy dispatchPolicy = new BatteryAwareDispatchPolicy();
+
+    // ----- multi-pick trips -----
+    private volatile double tripCapacity = 20.0;   // kg a robot can carry per trip, 0 = one item per trip
+    private volatile int maxTripStops = 5;
+    // pickups of other orders are only added if they are this close to the first one
+    private static final int TRIP_RADIUS = 6;
+
+    // ----- dispatch-window mode (0 = greedy, first robot to ask gets the nearest task) -----
+    private volatile long dispatchWindowMs = 0;
+    private volatile int windowTaskLimit = 512;
+    private volatile long lastWindowAt = 0;
+    private final ReentrantLock windowLock = new ReentrantLock();
+    // robots that asked for work since the last window, by robot id
+    private final ConcurrentMap<String, IdleRobot> idleRobots = new ConcurrentHashMap<>();
+    // tasks matched by the last window, waiting for their robot to pick them up
+    private final ConcurrentMap<String, Tasks> windowAssignments = new ConcurrentHashMap<>();
+
+    // ----- task leases: robots renew every tick, silent robots lose their tasks -----
+    private static final long DEFAULT_LEASE_MS = 30_000;
+    private final TaskLeases leases = new TaskLeases(DEFAULT_LEASE_MS);
+
+    // ----- event-driven dispatch: idle robots wait in a registry, work is pushed to their mailbox -----
+    private final ConcurrentMap<String, IdleRobot> idleRegistry = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Trip> mailboxes = new ConcurrentHashMap<>();
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+    private final AtomicBoolean dispatchRequested = new AtomicBoolean(false);
+    // an idle robot that has not checked its mailbox for this long is left out
+    private static final long IDLE_STALE_MS = 5_000;
+    // pending tasks looked at when a charging robot asks whether it is needed
+    private static final int URGENT_PEEK = 16;
+    // robots that left a charger for unserved work and have not asked for it yet
+    private final ConcurrentMap<String, Long> preemptClaims = new ConcurrentHashMap<>();
+    private static final long PREEMPT_CLAIM_MS = 5_000;
+
+    // ----- next trips reserved for robots still on their way to the drop-off -----
+    private final ConcurrentMap<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    // ----- bounded intake (unbounded by default) -----
+    public enum AdmissionPolicy {
+        BLOCK,                  // wait for room, up to the block timeout, then reject
+        REJECT,                 // refuse new work while full
+        SHED_LOWEST_PRIORITY    // drop pending work of lower priority to make room
+    }
+    private volatile int intakeCapacity = Integer.MAX_VALUE;
+    private volatile AdmissionPolicy admissionPolicy = AdmissionPolicy.REJECT;
+    private volatile long blockTimeoutMs = 30_000;
+    private volatile int highWatermark = Integer.MAX_VALUE;
+    private volatile int lowWatermark = 0;
+    private final AtomicBoolean aboveHighWatermark = new AtomicBoolean(false);
+    // producers admit under this monitor; BLOCK waits on it
+    private final Object intakeMonitor = new Object();
+    private final AtomicInteger blockedProducers = new AtomicInteger(0);
+    private final AtomicLong rejectedCount = new AtomicLong(0);
+    private final AtomicLong shedCount = new AtomicLong(0);
+    private final CopyOnWriteArrayList<IntakeListener> intakeListeners = new CopyOnWriteArrayList<>();
+    private static final int SHED_SCAN_LIMIT = 64;
+
+    // per-order countdown of unfinished tasks, so completion never scans the queues
+    private final ConcurrentMap<String, OrderProgress> orderProgress = new ConcurrentHashMap<>();
 
     public TaskManager(String id) throws IOException{
         this.taskmanagerId = id;
@@ -49,6 +129,10 @@ public class TaskManager{
             this.logManager = null;
             ExceptionHandler.handle(e, "tasks.TaskManager.<init>");
         }
+        // finished tasks beyond the in-memory window spill to a per-manager archive
+        Path archive = logManager == null ? null
+                : logManager.getLogsDir().resolve(String.format("TaskManagerLogs/Completed-%s.archive", id));
+        this.completedTasks = new CompletedTaskHistory(MAX_COMPLETED_TASKS, archive);
     }
 
     public interface TaskListener {
@@ -56,8 +140,60 @@ public class TaskManager{
         void onCompletedCountChanged(int newCompleted);
     }
 
+    /** Queue-depth watermarks, so producers such as order ingestion can slow down. */
+    public interface IntakeListener {
+        /** Pending tasks reached the high watermark: producers should hold back. */
+        void onHighWatermark(int pending);
+        /** Pending tasks drained to the low watermark: producers may resume. */
+        void onLowWatermark(int pending);
+    }
+
+    /** Snapshot of a robot that asked for work, used by the dispatch window and the idle registry. */
+    private static final class IdleRobot {
+        final String id;
+        final Point position;
+        final double battery;
+        final Point dropOff;
+        final long since;
+        volatile long seenAt;
+
+        IdleRobot(String id, Point position, double battery, long seenAt) {
+            this(id, position, battery, null, seenAt);
+        }
+
+        IdleRobot(String id, Point position, double battery, Point dropOff, long seenAt) {
+            this.id = id;
+            this.position = position == null ? null : new Point(position);
+            this.battery = battery;
+            this.dropOff = dropOff == null ? null : new Point(dropOff);
+            this.since = seenAt;
+            this.seenAt = seenAt;
+        }
+    }
+
+    /** A trip held for a robot, planned from where the robot will be when it finishes. */
+    private static final class Reservation {
+        final Trip trip;
+        final Point from;
+        final Point dropOff;
+
+        Reservation(Trip trip, Point from, Point dropOff) {
+            this.trip = trip;
+            this.from = from == null ? null : new Point(from);
+            this.dropOff = dropOff == null ? null : new Point(dropOff);
+        }
+    }
+
+    /** Outstanding task count of one order, plus the order itself when it is known. */
+    private static final class OrderProgress {
+        final AtomicInteger outstanding = new AtomicInteger(0);
+        volatile Order order;
+    }
+
     public void addListener(TaskListener l) { listeners.addIfAbsent(l); }
     public void removeListener(TaskListener l) { listeners.remove(l); }
+    public void addIntakeListener(IntakeListener l) { intakeListeners.addIfAbsent(l); }
+    public void removeIntakeListener(IntakeListener l) { intakeListeners.remove(l); }
     
     //------------------- GETTERS ------------------------------
     public String getTaskManagerId(){
@@ -65,11 +201,18 @@ public class TaskManager{
     }
 
     public List<Tasks> getTaskQueue() {
-        return new ArrayList<>(taskQueue);
+        return taskQueue.snapshot();
     }
     // get active tasks
     public Map<String, Tasks> getActiveTasks() {
-        return new ConcurrentHashMap<>(activeTasks);
+        Map<String, Tasks> out = new ConcurrentHashMap<>();
+        for (Tasks t : activeTasks.values()) out.put(t.getId(), t);
+        return out;
+    }
+
+    /** Any pending or active task by its key, or null. O(1). */
+    public Tasks findTask(long key) {
+        return liveTasks.get(key);
     }
 
     public LogManager getLogManager() {
@@ -78,75 +221,202 @@ public class TaskManager{
 
     public LinkedList<Tasks> getCompletedTasksList() {
         // return a copy to avoid concurrent modification issues in callers
-        return new LinkedList<>(completedTasksList);
+        return new LinkedList<>(completedTasks.snapshot());
+    }
+
+    /** Number of tasks finished so far, including those already archived. O(1). */
+    public long getCompletedCount() {
+        return completedTasks.getTotalCount();
+    }
+
+    public CompletedTaskHistory getCompletedHistory() {
+        return completedTasks;
     }
 
 
     //------------------- METHODS ------------------------------
 
     public List<Tasks> getPendingTasks() {
-        return new ArrayList<>(taskQueue);
+        return taskQueue.snapshot();
     }
 
-    public void createTasksFromOrders(Order order) throws IOException{
+    /**
+     * Create one task per item of the order. With a bounded intake the whole order is
+     * admitted or refused; returns false if it was refused.
+     */
+    public boolean createTasksFromOrders(Order order) throws IOException{
         //funktio saa parametrinä order objektin jonka se sitten jakaa itemeiksi ja itemeistä tehdään taskeja
-        
-        try {
-            List<Item> items = order.getItems();
-            // StorageUnit storageUnit = new StorageUnit(null, MAX_COMPLETED_TASKS, null);
+        if (order == null) return false;
+        return createTasksFromOrders(java.util.Collections.singletonList(order)) == 1;
+    }
 
-            for (Item item : items) {
-                Tasks t = null;
-                try {
-                    String suId = item.getStorageUnitId();
-                    if (suId != null && !suId.isBlank()) {
-                        // lookup storage unit and use its position as destination
-                        StorageUnitsStore sus = StorageUnitsStore.getInstance();
-                        StorageUnit su = sus.getUnits().stream().filter(x -> x.getId().equals(suId)).findFirst().orElse(null);
-                        if (su != null) {
-                            t = new Tasks(LocalDateTime.now().toString(), su.getPosition(), item);
+    /**
+     * Bulk import: tasks of all orders are queued in one batch, with one log record and
+     * one listener event. Each order is admitted or refused as a whole; returns the
+     * number of orders that were admitted.
+     */
+    public int createTasksFromOrders(List<Order> orders) throws IOException {
+        return createTasksFromOrders(orders, null);
+    }
+
+    /** Bulk import as above; orders the bounded intake refused are added to {@code refused}. */
+    public int createTasksFromOrders(List<Order> orders, List<Order> refused) throws IOException {
+        if (orders == null || orders.isEmpty()) return 0;
+        int admitted = 0;
+        try {
+            if (intakeCapacity == Integer.MAX_VALUE) {
+                List<Tasks> batch = new ArrayList<>();
+                for (Order o : orders) {
+                    if (o == null) continue;
+                    batch.addAll(buildTasks(o));
+                    admitted++;
+                }
+                enqueueAll(batch, false);
+                return admitted;
+            }
+            synchronized (intakeMonitor) {
+                List<Tasks> batch = new ArrayList<>();
+                for (Order o : orders) {
+                    if (o == null) continue;
+                    int n = o.getItems().size();
+                    if (pendingCount.get() + batch.size() + n > intakeCapacity) {
+                        // queue what we have so it counts, then wait for room for this order once
+                        enqueueAll(batch, false);
+                        batch.clear();
+                        if (!admit(n, o.getPriority())) {
+                            logRejected("order " + o.getId(), n);
+                            if (refused != null) refused.add(o);
+                            continue;
                         }
                     }
-                } catch (Throwable ignore) {}
-                if (t == null) t = new Tasks(LocalDateTime.now().toString(), item);
-                // associate this task with the originating order
-                try { t.setOrderId(order.getId()); } catch (Throwable ignore) {}
-                this.addTask(t);
+                    batch.addAll(buildTasks(o));
+                    admitted++;
+                }
+                enqueueAll(batch, false);
             }
-        }
-        catch (Exception e){
+        } catch (Exception e) {
             ExceptionHandler.handle(e, "tasks.TaskManager.createTasksFromOrders");
         }
+        return admitted;
+    }
+
+    /** Tasks for every item of the order, counted for the order but not queued yet. */
+    private List<Tasks> buildTasks(Order order) {
+        List<Item> items = order.getItems();
+        List<Tasks> tasks = new ArrayList<>(items.size());
+        // count all tasks up front so a fast robot cannot ship the order half-way through
+        OrderProgress progress = orderProgress.computeIfAbsent(order.getId(), k -> new OrderProgress());
+        progress.order = order;
+        progress.outstanding.addAndGet(items.size());
+
+        StorageUnitsStore units = StorageUnitsStore.getInstance();
+        for (Item item : items) {
+            Tasks t = null;
+            try {
+                String suId = item.getStorageUnitId();
+                if (suId != null && !suId.isBlank()) {
+                    // lookup storage unit and use its position as destination
+                    StorageUnit su = units.findById(suId);
+                    if (su != null) {
+                        t = new Tasks(su.getPosition(), item);
+                    }
+                }
+            } catch (Throwable ignore) {}
+            if (t == null) t = new Tasks((Point) null, item);
+            // associate this task with the originating order and inherit its SLA
+            try { t.setOrderId(order.getId()); } catch (Throwable ignore) {}
+            t.setPriority(order.getPriority());
+            t.setDeadline(order.getDeadline());
+            tasks.add(t);
+        }
+        return tasks;
+    }
+
+    /** Queue a task; returns false if it is a duplicate or the intake refused it. */
+    public boolean addTask(Tasks task) {
+        if (task == null) return false;
+        return addTasks(java.util.Collections.singletonList(task)) == 1;
     }
 
-    public void addTask(Tasks task) {
-        taskQueue.offer(task);
-        int p = pendingCount.incrementAndGet();
+    /**
+     * Queue several tasks in one batch: one log record and one listener event. With a
+     * bounded intake the batch is admitted or refused as a whole. Returns the number of
+     * tasks queued (duplicates are skipped).
+     */
+    public int addTasks(java.util.Collection<Tasks> tasks) {
+        if (tasks == null || tasks.isEmpty()) return 0;
+        if (intakeCapacity == Integer.MAX_VALUE) return enqueueAll(tasks, true);
+        synchronized (intakeMonitor) {
+            Tasks.Priority lowest = Tasks.Priority.EXPRESS;
+            for (Tasks t : tasks) {
+                if (t != null && t.getPriority().ordinal() > lowest.ordinal()) lowest = t.getPriority();
+            }
+            if (!admit(tasks.size(), lowest)) {
+                logRejected(tasks.size() == 1 ? "task " + tasks.iterator().next().getId() : "batch", tasks.size());
+                return 0;
+            }
+            return enqueueAll(tasks, true);
+        }
+    }
+
+    /** Queue new tasks; {@code countForOrder} is false when their orders were already counted. */
+    private int enqueueAll(java.util.Collection<Tasks> tasks, boolean countForOrder) {
+        if (tasks.isEmpty()) return 0;
+        // O(1) dedupe against every live (pending or active) task
+        List<Tasks> fresh = new ArrayList<>(tasks.size());
+        for (Tasks t : tasks) {
+            if (liveTasks.register(t)) {
+                fresh.add(t);
+            } else if (t != null && !countForOrder && t.getOrderId() != null) {
+                // duplicates were counted for their order up front, take them off again
+                OrderProgress progress = orderProgress.get(t.getOrderId());
+                if (progress != null) progress.outstanding.decrementAndGet();
+            }
+        }
+        List<Tasks> added = fresh.isEmpty() ? fresh : taskQueue.addAll(fresh);
+        if (added.isEmpty()) return 0;
+        if (countForOrder) {
+            for (Tasks t : added) {
+                if (t.getOrderId() != null) {
+                    orderProgress.computeIfAbsent(t.getOrderId(), k -> new OrderProgress()).outstanding.incrementAndGet();
+                }
+            }
+        }
+        int p = addPending(added.size());
         for (TaskListener l : listeners) {
             try { l.onPendingCountChanged(p); } catch (Throwable ignore) {}
         }
-        // log task addition
+        // log task addition, one record per batch
         try {
             if (logManager != null) {
                 String date = LocalDate.now().toString();
                 String fileName = String.format("TaskManagerLogs/Tasks-%s.log", date);
                 String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
-                String msg = String.format("%s - ADDED task %s status=PENDING order=%s dest=%s",
-                        timestamp, task.getId(), task.getOrderId(), task.getDestination());
-                logManager.writeLog(fileName, msg);
+                StringBuilder msg = new StringBuilder();
+                if (added.size() > 1) {
+                    msg.append(String.format("%s - ADDED %d tasks pending=%d", timestamp, added.size(), p));
+                }
+                for (Tasks task : added) {
+                    if (msg.length() > 0) msg.append(System.lineSeparator());
+                    msg.append(String.format("%s - ADDED task %s status=PENDING order=%s dest=%s",
+                            timestamp, task.getId(), task.getOrderId(), task.getDestination()));
+                }
+                logManager.writeLog(fileName, msg.toString());
             }
         } catch (Exception e) {
             ExceptionHandler.handle(e, "tasks.TaskManager.addTask.logWrite");
         }
+        dispatchIdle();
+        return added.size();
     }
 
     public Tasks robotGetTask() {
-        Tasks t = taskQueue.poll();
+        Tasks t = taskQueue.pollFirst();
         if (t != null) {
-            int p = pendingCount.decrementAndGet();
+            int p = decrementPending();
             // mark as active
             try { t.setStatus(Tasks.TaskStatus.IN_PROGRESS); } catch (Throwable ignore) {}
-            try { activeTasks.put(t.getId(), t); } catch (Throwable ignore) {}
+            try { activeTasks.register(t); } catch (Throwable ignore) {}
             for (TaskListener l : listeners) {
                 try { l.onPendingCountChanged(p); } catch (Throwable ignore) {}
             }
@@ -155,9 +425,20 @@ public class TaskManager{
     }
 
     // Battery-aware assignment: robot provides id, position and current battery level.
-    // We pick the first pending task that the robot can reasonably execute based on
+    // Tasks that are due soon (deadline or aged priority) go first in EDF order, otherwise
+    // we pick the nearest pending task the robot can reasonably execute based on
     // a simple Manhattan-distance battery estimate.
     public Tasks robotGetTask(String robotId, Point robotPos, double batteryLevel) {
+        return claimTask(robotId, robotPos, batteryLevel, null);
+    }
+
+    /** {@link #robotGetTask(String, Point, double)}, checking the way on to {@code dropOff} too when known. */
+    private Tasks claimTask(String robotId, Point robotPos, double batteryLevel, Point dropOff) {
+        reclaimExpiredLeases();
+        dropPreemptClaim(robotId);
+        if (dispatchWindowMs > 0 && robotId != null) {
+            return windowedGetTask(robotId, robotPos, batteryLevel);
+        }
         try {
             // Attempt to claim the robot as busy to avoid races where the same robot
             // receives multiple assignments concurrently.
@@ -172,85 +453,666 @@ public class TaskManager{
                 return null;
             }
 
-            final double MOVE_COST_PER_BLOCK = 0.5; // estimate of battery cost per grid move
-            final double SAFETY_MARGIN = 8.0; // reserve battery for safety / return/charging
+            Tasks chosen = pollTaskFor(robotId, robotPos, batteryLevel, dropOff);
+
+            if (chosen != null) {
+                // mark robot as busy so it won't receive another assignment
+                // if we didn't already claim it, mark busy now
+                if (robotId != null && !claimed) busyRobots.put(robotId, Boolean.TRUE);
+                assignToRobot(chosen, robotId);
+                return chosen;
+            }
 
-            Tasks chosen = null;
-            for (Tasks t : taskQueue) {
-                // if destination is unknown accept (short task)
-                Point dest = t.getDestination();
-                double estCost = 0.0;
-                if (dest != null && robotPos != null) {
-                    estCost = (Math.abs(dest.x - robotPos.x) + Math.abs(dest.y - robotPos.y)) * MOVE_COST_PER_BLOCK;
+            // if we claimed busy earlier but didn't manage to assign a task, release claim
+            if (claimed && robotId != null) busyRobots.remove(robotId);
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.robotGetTask");
+        }
+        return null;
+    }
+
+    /**
+     * Take the task a robot at {@code robotPos} should do next out of the pending pool, as
+     * chosen by the dispatch policy. Tasks that failed too often are marked FAILED on the way;
+     * tasks the robot could not finish on its battery along real paths stay in the pool.
+     */
+    private Tasks pollTaskFor(String robotId, Point robotPos, double batteryLevel, Point dropOff) {
+        DispatchPolicy.Request request = dispatchRequest(robotId, robotPos, batteryLevel);
+        DispatchPolicy policy = dispatchPolicy;
+        List<Tasks> tooFar = null;
+
+        try {
+            while (true) {
+                Tasks t = policy.select(taskQueue, request);
+                if (t == null) return null;
+                // skip tasks that already failed too many times
+                if (t.getAttempts() >= MAX_ASSIGN_ATTEMPTS) {
+                    decrementPending();
+                    System.out.println("[TaskManager] Task " + t.getId() + " exceeded max attempts -> marking FAILED");
+                    markTaskFailed(t);
+                    continue;
                 }
-                if (batteryLevel >= estCost + SAFETY_MARGIN) {
-                    // skip tasks that already failed too many times
-                    if (t.getAttempts() >= MAX_ASSIGN_ATTEMPTS) {
-                        // mark failed and continue
-                        System.out.println("[TaskManager] Task " + t.getId() + " exceeded max attempts -> marking FAILED");
-                        markTaskFailed(t);
-                        continue;
-                    }
-                    chosen = t;
+                if (!fitsBattery(robotPos, t, batteryLevel, dropOff)) {
+                    energyRejectedCount.incrementAndGet();
+                    if (tooFar == null) tooFar = new ArrayList<>();
+                    tooFar.add(t);
+                    if (tooFar.size() >= MAX_ENERGY_REJECTS) return null;
+                    continue;
+                }
+                return t;
+            }
+        } finally {
+            if (tooFar != null) for (Tasks t : tooFar) taskQueue.add(t);
+        }
+    }
+
+    /** Whether the robot can drive to the pickup, and on to the drop-off when known, and keep its reserve. */
+    private boolean fitsBattery(Point from, Tasks t, double batteryLevel, Point dropOff) {
+        Point pickup = t.getDestination();
+        if (from == null || pickup == null) return true;
+        int loaded = dropOff == null ? 0 : moves(pickup, dropOff);
+        return energyModel.tripCost(moves(from, pickup), loaded, weightOf(t)) + safetyMargin <= batteryLevel;
+    }
+
+    /** Battery for robot -> stops -> drop-off along real paths, each leg at the load picked up so far. */
+    private double routeEnergy(Point start, List<Tasks> stops, Point dropOff) {
+        double energy = 0.0;
+        double load = 0.0;
+        Point at = start;
+        for (Tasks t : stops) {
+            Point p = t.getDestination();
+            if (p != null) {
+                if (at != null) energy += moves(at, p) * energyModel.moveCost(load);
+                at = p;
+            }
+            load += weightOf(t);
+        }
+        if (at != null && dropOff != null) energy += moves(at, dropOff) * energyModel.moveCost(load);
+        return energy;
+    }
+
+    /** Moves from one cell to another by path, or by Manhattan distance without one. */
+    private int moves(Point a, Point b) {
+        ToIntBiFunction<Point, Point> lengths = pathLengths;
+        if (lengths != null) {
+            try {
+                int n = lengths.applyAsInt(a, b);
+                if (n >= 0) return n;
+            } catch (Throwable ignore) {}
+        }
+        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    }
+
+    /**
+     * Assign a multi-stop trip: the task {@link #robotGetTask(String, Point, double)} would
+     * give, plus pending tasks of the same order or with pickups near it, as long as the
+     * total item weight stays within the trip capacity and the whole route (robot -> stops
+     * -> drop-off) fits the battery. Stops are ordered with {@link TripPlanner}.
+     * Returns null if no task was available.
+     */
+    public Trip robotGetTrip(String robotId, Point robotPos, double batteryLevel, Point dropOff) {
+        Tasks seed = claimTask(robotId, robotPos, batteryLevel, dropOff);
+        if (seed == null) return null;
+        return buildTrip(seed, robotId, robotPos, batteryLevel, dropOff);
+    }
+
+    /** Grow a trip around a task already assigned to the robot. */
+    private Trip buildTrip(Tasks seed, String robotId, Point robotPos, double batteryLevel, Point dropOff) {
+        List<Tasks> stops = new ArrayList<>();
+        stops.add(seed);
+        double load = weightOf(seed);
+        try {
+            double capacity = tripCapacity;
+            double maxDistance = reach(batteryLevel);
+            Point anchor = seed.getDestination();
+            String home = robotId == null ? null : homeZones.get(robotId);
+            while (capacity > 0 && stops.size() < maxTripStops) {
+                final double room = capacity - load;
+                Tasks extra = taskQueue.pollNearest(anchor, home, maxDistance,
+                        t -> t.getAttempts() < MAX_ASSIGN_ATTEMPTS
+                                && weightOf(t) <= room
+                                && (sameOrder(seed, t) || closeTo(anchor, t.getDestination())));
+                if (extra == null) break;
+
+                List<Tasks> candidate = new ArrayList<>(stops);
+                candidate.add(extra);
+                candidate = TripPlanner.orderStops(robotPos, candidate, dropOff);
+                if (routeEnergy(robotPos, candidate, dropOff) + safetyMargin > batteryLevel) {
+                    // does not fit the battery: leave it where it was in the queue
+                    taskQueue.add(extra);
                     break;
                 }
+                stops = candidate;
+                load += weightOf(extra);
+                assignToRobot(extra, robotId);
             }
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.robotGetTrip");
+        }
+        stops = TripPlanner.orderStops(robotPos, stops, dropOff);
+        return new Trip(robotId, stops, load, TripPlanner.routeLength(robotPos, stops, dropOff));
+    }
 
-            if (chosen != null) {
-                boolean removed = taskQueue.remove(chosen);
-                if (removed) {
-                    chosen.incrementAttempts();
-                    int p = pendingCount.decrementAndGet();
-                    try { chosen.setStatus(Tasks.TaskStatus.IN_PROGRESS); } catch (Throwable ignore) {}
-                    try { chosen.setRobotId(robotId); } catch (Throwable ignore) {}
-                    try { activeTasks.put(chosen.getId(), chosen); } catch (Throwable ignore) {}
-                    // mark robot as busy so it won't receive another assignment
-                    // if we didn't already claim it, mark busy now
-                    if (robotId != null && !claimed) busyRobots.put(robotId, Boolean.TRUE);
-                    for (TaskListener l : listeners) {
-                        try { l.onPendingCountChanged(p); } catch (Throwable ignore) {}
+    /**
+     * Reserve the next trip for a robot that is still busy, typically on its way to the
+     * drop-off: the trip is planned from {@code from} with the battery the robot expects to
+     * have there, and its tasks are assigned to the robot right away so nobody else takes
+     * them. The robot picks it up with {@link #claimReservedTrip(String)} or gives it back
+     * with {@link #cancelReservation(String)}. Returns the existing reservation if there is
+     * one, and null if nothing fits or the dispatch window is in use.
+     */
+    public Trip reserveNextTrip(String robotId, Point from, double batteryLevel, Point dropOff) {
+        if (robotId == null || dispatchWindowMs > 0) return null;
+        reclaimExpiredLeases();
+        Reservation existing = reservations.get(robotId);
+        if (existing != null) return existing.trip;
+        try {
+            if (taskQueue.isEmpty()) return null;
+            Tasks seed = pollTaskFor(robotId, from, batteryLevel, dropOff);
+            if (seed == null) return null;
+            assignToRobot(seed, robotId);
+            Trip trip = buildTrip(seed, robotId, from, batteryLevel, dropOff);
+            reservations.put(robotId, new Reservation(trip, from, dropOff));
+            try {
+                if (logManager != null) {
+                    String date = LocalDate.now().toString();
+                    String fileName = String.format("TaskManagerLogs/Tasks-%s.log", date);
+                    String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
+                    String msg = String.format("%s - RESERVED %s from %s", timestamp, trip, from);
+                    logManager.writeLog(fileName, msg);
+                }
+            } catch (Exception e) {
+                ExceptionHandler.handle(e, "tasks.TaskManager.reserveNextTrip.logWrite");
+            }
+            return trip;
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.reserveNextTrip");
+            return null;
+        }
+    }
+
+    /**
+     * Hand a reserved trip to its robot, which becomes busy with it. Tasks the robot no
+     * longer holds (e.g. reclaimed after its lease ran out) are left out; returns null if
+     * there is no reservation or none of its tasks is left.
+     */
+    public Trip claimReservedTrip(String robotId) {
+        if (robotId == null) return null;
+        Reservation r = reservations.remove(robotId);
+        if (r == null) return null;
+        List<Tasks> kept = new ArrayList<>();
+        double load = 0.0;
+        for (Tasks t : r.trip.getStops()) {
+            if (activeTasks.get(t.getKey()) == t && robotId.equals(t.getRobotId())) {
+                kept.add(t);
+                load += weightOf(t);
+            }
+        }
+        if (kept.isEmpty()) return null;
+        busyRobots.put(robotId, Boolean.TRUE);
+        if (kept.size() == r.trip.size()) return r.trip;
+        return new Trip(robotId, kept, load, TripPlanner.routeLength(r.from, kept, r.dropOff));
+    }
+
+    /** Give a reserved trip back: its tasks return to the pending queue. */
+    public void cancelReservation(String robotId) {
+        if (robotId == null) return;
+        Reservation r = reservations.remove(robotId);
+        if (r == null) return;
+        for (Tasks t : r.trip.getStops()) {
+            if (activeTasks.get(t.getKey()) == t && robotId.equals(t.getRobotId())) requeueTask(t);
+        }
+    }
+
+    public boolean hasReservation(String robotId) {
+        return robotId != null && reservations.containsKey(robotId);
+    }
+
+    /** Item weight a robot can carry per trip (kg); 0 disables batching. */
+    public void setTripCapacity(double kg) {
+        this.tripCapacity = Math.max(0, kg);
+    }
+
+    public double getTripCapacity() {
+        return tripCapacity;
+    }
+
+    public void setMaxTripStops(int stops) {
+        this.maxTripStops = Math.max(1, stops);
+    }
+
+    public int getMaxTripStops() {
+        return maxTripStops;
+    }
+
+    private static double weightOf(Tasks t) {
+        Item item = t.getItems();
+        return item == null ? 0.0 : item.getWeight();
+    }
+
+    private static boolean sameOrder(Tasks a, Tasks b) {
+        return a.getOrderId() != null && a.getOrderId().equals(b.getOrderId());
+    }
+
+    private static boolean closeTo(Point anchor, Point p) {
+        if (anchor == null || p == null) return true;
+        return Math.abs(anchor.x - p.x) + Math.abs(anchor.y - p.y) <= TRIP_RADIUS;
+    }
+
+    /** Move a task that was already taken out of the pending pool to the robot. */
+    private void assignToRobot(Tasks chosen, String robotId) {
+        chosen.incrementAttempts();
+        int p = decrementPending();
+        try { chosen.setStatus(Tasks.TaskStatus.IN_PROGRESS); } catch (Throwable ignore) {}
+        try { chosen.setRobotId(robotId); } catch (Throwable ignore) {}
+        try { activeTasks.register(chosen); } catch (Throwable ignore) {}
+        leases.grant(robotId, chosen);
+        for (TaskListener l : listeners) {
+            try { l.onPendingCountChanged(p); } catch (Throwable ignore) {}
+        }
+        // write assignment log
+        try {
+            if (logManager != null) {
+                String date = LocalDate.now().toString();
+                String fileName = String.format("TaskManagerLogs/Tasks-%s.log", date);
+                String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
+                String msg = String.format("%s - ASSIGNED task %s to robot %s status=IN_PROGRESS attempts=%d order=%s dest=%s",
+                        timestamp, chosen.getId(), robotId, chosen.getAttempts(), chosen.getOrderId(), chosen.getDestination());
+                logManager.writeLog(fileName, msg);
+            }
+        } catch (Exception e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.robotGetTask.logWrite");
+        }
+    }
+
+    //------------------- DISPATCH POLICY ------------------------------
+
+    /** Choose how pending tasks are matched to robots (battery-aware nearest by default). */
+    public void setDispatchPolicy(DispatchPolicy policy) {
+        this.dispatchPolicy = policy == null ? new BatteryAwareDispatchPolicy() : policy;
+    }
+
+    public DispatchPolicy getDispatchPolicy() {
+        return dispatchPolicy;
+    }
+
+    /**
+     * Battery estimate used to decide what a robot can reach: {@code moveCost} per grid
+     * move, keeping {@code safetyMargin} in reserve for the way to a charger. The move cost
+     * is only the starting point; reports from {@link #recordEnergy} take over from it.
+     */
+    public void setEnergyEstimate(double moveCost, double safetyMargin) {
+        if (moveCost > 0) energyModel.reset(moveCost);
+        this.safetyMargin = Math.max(0.0, safetyMargin);
+    }
+
+    /** Current estimate of the battery an empty move costs. */
+    public double getMoveCostPerBlock() {
+        return energyModel.getCostPerMove();
+    }
+
+    /** A robot drove {@code moves} cells carrying {@code loadKg} and used {@code energy} battery. */
+    public void recordEnergy(int moves, double energy, double loadKg) {
+        energyModel.observe(moves, energy, loadKg);
+    }
+
+    public EnergyModel getEnergyModel() {
+        return energyModel;
+    }
+
+    /** Moves between two cells along real paths (negative when there is no path); null for Manhattan distance. */
+    public void setPathLengths(ToIntBiFunction<Point, Point> pathLengths) {
+        this.pathLengths = pathLengths;
+    }
+
+    /** Tasks a robot was not given because its battery would not have covered the real route. */
+    public long getEnergyRejectedCount() {
+        return energyRejectedCount.get();
+    }
+
+    public double getSafetyMargin() {
+        return safetyMargin;
+    }
+
+    /** Grid moves a robot can make on this battery and keep its safety reserve. */
+    private double reach(double batteryLevel) {
+        double cost = energyModel.moveCost(0.0);
+        return cost <= 0 ? Double.POSITIVE_INFINITY : (batteryLevel - safetyMargin) / cost;
+    }
+
+    private DispatchPolicy.Request dispatchRequest(String robotId, Point robotPos, double batteryLevel) {
+        String home = robotId == null ? null : homeZones.get(robotId);
+        return new DispatchPolicy.Request(robotId, robotPos, batteryLevel, home, reach(batteryLevel));
+    }
+
+    //------------------- LEASES ------------------------------
+
+    /** How long a robot may go without renewing before its tasks are taken back; 0 disables leases. */
+    public void setLeaseTimeout(long ms) {
+        leases.setTimeout(ms);
+    }
+
+    public long getLeaseTimeout() {
+        return leases.getTimeoutMs();
+    }
+
+    /**
+     * Called by a robot on every tick while it holds tasks. Returns false if the robot's
+     * lease already expired and its tasks went back to the pending queue; the robot should
+     * then drop them.
+     */
+    public boolean renewLease(String robotId) {
+        boolean held = leases.renew(robotId);
+        reclaimExpiredLeases();
+        return held;
+    }
+
+    /**
+     * Return the tasks of every expired lease to the pending queue and free the robots'
+     * claims. Runs on each assignment and renewal; returns the number of tasks reclaimed.
+     */
+    public int reclaimExpiredLeases() {
+        if (!leases.isEnabled()) return 0;
+        int reclaimed = 0;
+        try {
+            for (TaskLeases.Lease lease : leases.expire()) {
+                busyRobots.remove(lease.robotId);
+                idleRobots.remove(lease.robotId);
+                reservations.remove(lease.robotId);
+                idleRegistry.remove(lease.robotId);
+                mailboxes.remove(lease.robotId);
+                for (Tasks t : lease.tasks()) {
+                    windowAssignments.remove(lease.robotId, t);
+                    // only take back what the robot still holds
+                    if (activeTasks.get(t.getKey()) != t || !lease.robotId.equals(t.getRobotId())) continue;
+                    logLeaseExpired(t, lease.robotId);
+                    requeueTask(t);
+                    reclaimed++;
+                }
+            }
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.reclaimExpiredLeases");
+        }
+        return reclaimed;
+    }
+
+    /** Number of robots currently holding a lease. */
+    public int getLeaseCount() {
+        return leases.size();
+    }
+
+    private void logLeaseExpired(Tasks task, String robotId) {
+        try {
+            if (logManager != null) {
+                String date = LocalDate.now().toString();
+                String fileName = String.format("TaskManagerLogs/Tasks-%s.log", date);
+                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
+                String msg = String.format("%s - LEASE EXPIRED task %s robot=%s order=%s dest=%s",
+                        timestamp, task.getId(), robotId, task.getOrderId(), task.getDestination());
+                logManager.writeLog(fileName, msg);
+            }
+        } catch (Exception e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.reclaimExpiredLeases.logWrite");
+        }
+    }
+
+    //------------------- EVENT DISPATCH ------------------------------
+
+    /**
+     * Called by an idle robot on every tick instead of {@link #robotGetTrip}. The first call
+     * puts the robot in the idle registry and tries to find it work at once; after that the
+     * robot just checks its mailbox, which new tasks and requeued tasks fill as they arrive.
+     * Returns the robot's trip, or null while there is nothing for it. In dispatch-window
+     * mode this is the same as {@link #robotGetTrip}.
+     */
+    public Trip pollTrip(String robotId, Point robotPos, double batteryLevel, Point dropOff) {
+        if (robotId == null || dispatchWindowMs > 0) return robotGetTrip(robotId, robotPos, batteryLevel, dropOff);
+        dropPreemptClaim(robotId);
+        Trip mailed = mailboxes.remove(robotId);
+        if (mailed != null) return mailed;
+        IdleRobot idle = idleRegistry.get(robotId);
+        if (idle != null) {
+            idle.seenAt = System.currentTimeMillis();
+            return null;
+        }
+        idleRegistry.put(robotId, new IdleRobot(robotId, robotPos, batteryLevel, dropOff, System.currentTimeMillis()));
+        dispatchIdle();
+        return mailboxes.remove(robotId);
+    }
+
+    /**
+     * The robot is no longer waiting for work (it goes charging or moves elsewhere): take it
+     * out of the idle registry and requeue a trip that was mailed to it but not picked up.
+     */
+    public void withdrawIdle(String robotId) {
+        if (robotId == null) return;
+        idleRegistry.remove(robotId);
+        Trip mailed = mailboxes.remove(robotId);
+        if (mailed == null) return;
+        for (Tasks t : mailed.getStops()) {
+            if (activeTasks.get(t.getKey()) == t && robotId.equals(t.getRobotId())) requeueTask(t);
+        }
+    }
+
+    /** Number of robots waiting in the idle registry. */
+    public int getIdleRobotCount() {
+        return idleRegistry.size();
+    }
+
+    /**
+     * Match idle robots (longest waiting first) with pending tasks and mail them their trips.
+     * Only one thread dispatches at a time; a call that finds another dispatch running leaves
+     * a request so that dispatch runs once more.
+     */
+    private void dispatchIdle() {
+        if (idleRegistry.isEmpty() || dispatchWindowMs > 0) return;
+        dispatchRequested.set(true);
+        while (dispatchRequested.get() && dispatchLock.tryLock()) {
+            try {
+                dispatchRequested.set(false);
+                if (taskQueue.isEmpty()) continue;
+                long now = System.currentTimeMillis();
+                List<IdleRobot> waiting = new ArrayList<>(idleRegistry.values());
+                waiting.sort(java.util.Comparator.comparingLong((IdleRobot r) -> r.since));
+                for (IdleRobot r : waiting) {
+                    if (taskQueue.isEmpty()) break;
+                    if (now - r.seenAt > IDLE_STALE_MS) {
+                        idleRegistry.remove(r.id, r);
+                        continue;
                     }
-                    // write assignment log
-                    try {
-                        if (logManager != null) {
-                            String date = LocalDate.now().toString();
-                            String fileName = String.format("TaskManagerLogs/Tasks-%s.log", date);
-                            String timestamp = java.time.LocalDateTime.now().format(java.time.format.DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
-                            String msg = String.format("%s - ASSIGNED task %s to robot %s status=IN_PROGRESS attempts=%d order=%s dest=%s",
-                                    timestamp, chosen.getId(), robotId, chosen.getAttempts(), chosen.getOrderId(), chosen.getDestination());
-                            logManager.writeLog(fileName, msg);
-                        }
-                    } catch (Exception e) {
-                        ExceptionHandler.handle(e, "tasks.TaskManager.robotGetTask.logWrite");
+                    if (busyRobots.putIfAbsent(r.id, Boolean.TRUE) != null) {
+                        idleRegistry.remove(r.id, r);
+                        continue;
                     }
-                    return chosen;
+                    Tasks seed = pollTaskFor(r.id, r.position, r.battery, r.dropOff);
+                    if (seed == null) {
+                        busyRobots.remove(r.id);
+                        continue;
+                    }
+                    idleRegistry.remove(r.id, r);
+                    assignToRobot(seed, r.id);
+                    mailboxes.put(r.id, buildTrip(seed, r.id, r.position, r.battery, r.dropOff));
                 }
+            } catch (Throwable e) {
+                ExceptionHandler.handle(e, "tasks.TaskManager.dispatchIdle");
+            } finally {
+                dispatchLock.unlock();
             }
+        }
+    }
 
-            // if we claimed busy earlier but didn't manage to assign a task, release claim
-            if (claimed && robotId != null) busyRobots.remove(robotId);
+    //------------------- ZONES ------------------------------
+
+    /** Shard pending tasks by the zones defined on the grid (no zones = one shared queue). */
+    public void configureZones(WarehouseGrid grid) {
+        configureZones(grid == null ? null : grid.getZones());
+    }
+
+    public void configureZones(List<GridZone> zones) {
+        try {
+            taskQueue.setZones(zones);
         } catch (Throwable e) {
-            ExceptionHandler.handle(e, "tasks.TaskManager.robotGetTask");
+            ExceptionHandler.handle(e, "tasks.TaskManager.configureZones");
         }
-        return null;
+    }
+
+    public List<GridZone> getZones() {
+        return taskQueue.getZones();
+    }
+
+    /** Pin a robot to a home zone; null goes back to the zone it is standing in. */
+    public void setHomeZone(String robotId, String zoneId) {
+        if (robotId == null) return;
+        if (zoneId == null) homeZones.remove(robotId);
+        else homeZones.put(robotId, zoneId);
+    }
+
+    public String getHomeZone(String robotId, Point robotPos) {
+        String pinned = robotId == null ? null : homeZones.get(robotId);
+        return pinned != null ? pinned : taskQueue.zoneIdOf(robotPos);
+    }
+
+    /** Id of the zone containing (or closest to) the point, null without zones. */
+    public String getZoneId(Point p) {
+        return taskQueue.zoneIdOf(p);
+    }
+
+    /** Pending tasks per zone id, "*" for tasks without destination. */
+    public Map<String, Integer> getPendingByZone() {
+        return taskQueue.sizeByZone();
+    }
+
+    //------------------- DISPATCH WINDOW ------------------------------
+
+    /**
+     * Switch to batch assignment: robots asking for work are collected and every
+     * {@code windowMs} milliseconds all of them are matched against the first pending
+     * tasks in schedule order with a min-cost assignment over travel distance (infeasible battery pairs
+     * excluded). 0 switches back to greedy per-robot assignment.
+     */
+    public void setDispatchWindow(long windowMs) {
+        this.dispatchWindowMs = Math.max(0, windowMs);
+        // the first window closes one full window after enabling
+        this.lastWindowAt = System.currentTimeMillis();
+        if (this.dispatchWindowMs == 0) {
+            // hand back anything still waiting for pickup so greedy mode can use it
+            for (String robotId : new ArrayList<>(windowAssignments.keySet())) {
+                Tasks t = windowAssignments.remove(robotId);
+                if (t != null) requeueTask(t);
+            }
+            idleRobots.clear();
+        }
+    }
+
+    public long getDispatchWindow() {
+        return dispatchWindowMs;
+    }
+
+    /** Maximum number of pending tasks (schedule order) considered per window. */
+    public void setWindowTaskLimit(int limit) {
+        this.windowTaskLimit = Math.max(1, limit);
+    }
+
+    private Tasks windowedGetTask(String robotId, Point robotPos, double batteryLevel) {
+        try {
+            Tasks mailed = windowAssignments.remove(robotId);
+            if (mailed != null) return mailed;
+            if (busyRobots.containsKey(robotId)) return null;
+
+            long now = System.currentTimeMillis();
+            idleRobots.put(robotId, new IdleRobot(robotId, robotPos, batteryLevel, now));
+            if (now - lastWindowAt >= dispatchWindowMs) runDispatchWindow();
+            return windowAssignments.remove(robotId);
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.windowedGetTask");
+            return null;
+        }
+    }
+
+    /**
+     * Solve one dispatch window now. Robots that were matched get their task on their
+     * next {@code robotGetTask} call. Returns the number of assignments made, or 0 if
+     * another thread is already solving.
+     */
+    public int runDispatchWindow() {
+        if (!windowLock.tryLock()) return 0;
+        try {
+            long now = System.currentTimeMillis();
+            lastWindowAt = now;
+            // robots that have not asked again for a few windows are probably busy elsewhere
+            long staleAfter = Math.max(dispatchWindowMs * 3, 1000);
+            idleRobots.values().removeIf(r -> now - r.seenAt > staleAfter || busyRobots.containsKey(r.id));
+
+            List<IdleRobot> robots = new ArrayList<>(idleRobots.values());
+            if (robots.isEmpty() || taskQueue.isEmpty()) return 0;
+
+            List<Tasks> tasks = new ArrayList<>();
+            for (Tasks t : taskQueue.peekFirst(windowTaskLimit)) {
+                if (t.getAttempts() >= MAX_ASSIGN_ATTEMPTS) {
+                    if (taskQueue.remove(t) != null) {
+                        decrementPending();
+                        System.out.println("[TaskManager] Task " + t.getId() + " exceeded max attempts -> marking FAILED");
+                        markTaskFailed(t);
+                    }
+                    continue;
+                }
+                tasks.add(t);
+            }
+            if (tasks.isEmpty()) return 0;
+
+            double[][] cost = AssignmentSolver.buildCostMatrix(robots.size(), tasks.size(),
+                    (i, j) -> travelCost(robots.get(i), tasks.get(j)));
+            int[] match = AssignmentSolver.solve(cost);
+
+            int assigned = 0;
+            for (int i = 0; i < match.length; i++) {
+                if (match[i] < 0) continue;
+                IdleRobot r = robots.get(i);
+                Tasks t = taskQueue.remove(tasks.get(match[i]));
+                if (t == null) continue;
+                if (busyRobots.putIfAbsent(r.id, Boolean.TRUE) != null) {
+                    // robot got work some other way in the meantime
+                    taskQueue.add(t);
+                    continue;
+                }
+                idleRobots.remove(r.id);
+                assignToRobot(t, r.id);
+                windowAssignments.put(r.id, t);
+                assigned++;
+            }
+            return assigned;
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.runDispatchWindow");
+            return 0;
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    /** Cost of the robot doing the task under the dispatch policy; infinity if infeasible. */
+    private double travelCost(IdleRobot r, Tasks t) {
+        return dispatchPolicy.cost(dispatchRequest(r.id, r.position, r.battery), t);
     }
 
     /** Mark a task as FAILED and remove it from system collections. */
     public void markTaskFailed(Tasks task) {
         try {
             if (task == null) return;
+            boolean firstFinish = !isFinished(task);
             try { task.setStatus(Tasks.TaskStatus.FAILED); } catch (Throwable ignore) {}
+            if (firstFinish) finishOrderTask(task, false);
             try {
-                Tasks removed = activeTasks.remove(task.getId());
+                Tasks removed = activeTasks.remove(task.getKey());
                 if (removed != null) {
                     String rid = removed.getRobotId();
+                    leases.release(rid, removed);
                     if (rid != null) busyRobots.remove(rid);
                 }
             } catch (Throwable ignore) {}
             // ensure it's not in pending queue
-            taskQueue.removeIf(t -> t.getId().equals(task.getId()));
-            completedTasksList.addLast(task);
-            int completed = completedTasksList.size();
+            if (taskQueue.remove(task) != null) decrementPending();
+            liveTasks.remove(task.getKey());
+            int completed = (int) completedTasks.record(task);
             for (TaskListener l : listeners) {
                 try { l.onCompletedCountChanged(completed); } catch (Throwable ignore) {}
             }
@@ -277,9 +1139,10 @@ public class TaskManager{
             if (task == null) return;
             // remove from active tasks if present
             try {
-                Tasks removed = activeTasks.remove(task.getId());
+                Tasks removed = activeTasks.remove(task.getKey());
                 if (removed != null) {
                     String prev = removed.getRobotId();
+                    leases.release(prev, removed);
                     if (prev != null) busyRobots.remove(prev);
                 }
             } catch (Throwable ignore) {}
@@ -290,14 +1153,10 @@ public class TaskManager{
             if (prevRobot != null) busyRobots.remove(prevRobot);
             try { task.setStatus(Tasks.TaskStatus.PENDING); } catch (Throwable ignore) {}
 
-            // avoid duplicate entries in queue
-            boolean exists = false;
-            for (Tasks t : taskQueue) {
-                if (t.getId().equals(task.getId())) { exists = true; break; }
-            }
-            if (!exists) {
-                this.taskQueue.addLast(task);
-                int p = pendingCount.incrementAndGet();
+            // avoid duplicate entries in queue; the task returns to its original place
+            liveTasks.register(task);
+            if (this.taskQueue.add(task)) {
+                int p = incrementPending();
                 for (TaskListener l : listeners) {
                     try { l.onPendingCountChanged(p); } catch (Throwable ignore) {}
                 }
@@ -314,6 +1173,7 @@ public class TaskManager{
                 } catch (Exception e) {
                     ExceptionHandler.handle(e, "tasks.TaskManager.requeueTask.logWrite");
                 }
+                dispatchIdle();
             }
         }
         catch (Exception e) {
@@ -323,23 +1183,18 @@ public class TaskManager{
 
     public void completeTask(Tasks task) {
         // finalize task status and remove from active map
+        boolean firstFinish = !isFinished(task);
         try { task.setStatus(Tasks.TaskStatus.COMPLETED); } catch (Throwable ignore) {}
         try {
-            Tasks removed = activeTasks.remove(task.getId());
+            Tasks removed = activeTasks.remove(task.getKey());
             if (removed != null) {
                 String rid = removed.getRobotId();
+                leases.release(rid, removed);
                 if (rid != null) busyRobots.remove(rid);
             }
+            liveTasks.remove(task.getKey());
         } catch (Throwable ignore) {}
-        completedTasksList.addLast(task);
-        try{
-            while (this.completedTasksList.size() > MAX_COMPLETED_TASKS) {
-                this.completedTasksList.removeFirst();
-            }
-        }
-        catch (Exception e){
-            ExceptionHandler.handle(e, "tasks.TaskManager.completeTask.manageCompletedList");
-        }
+        int completed = (int) completedTasks.record(task);
 
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
         try {
@@ -356,61 +1211,241 @@ public class TaskManager{
             ExceptionHandler.handle(e, "tasks.TaskManager.completeTask.logWrite");
         }
         // notify listeners about completed count
-        int completed = completedTasksList.size();
         for (TaskListener l : listeners) {
             try { l.onCompletedCountChanged(completed); } catch (Throwable ignore) {}
         }
 
-        // If the task belongs to an order, check if all tasks for that order are completed
+        // If this was the last unfinished task of its order, ship the order
+        if (firstFinish) finishOrderTask(task, true);
+    }
+
+    private static boolean isFinished(Tasks task) {
+        Tasks.TaskStatus st = task.getStatus();
+        return st == Tasks.TaskStatus.COMPLETED || st == Tasks.TaskStatus.FAILED;
+    }
+
+    /**
+     * Count down the order of a finished task. When a completion brings it to zero the
+     * order is marked SHIPPED and its items are removed from their storage units, which
+     * costs work proportional to the order's own items only.
+     */
+    private void finishOrderTask(Tasks task, boolean completed) {
         try {
             String orderId = task.getOrderId();
-            if (orderId != null) {
-                boolean pendingExists = false;
-                // check pending queue
-                for (Tasks t : taskQueue) {
-                    if (orderId.equals(t.getOrderId())) { pendingExists = true; break; }
+            if (orderId == null) return;
+            OrderProgress progress = orderProgress.get(orderId);
+            if (progress == null || progress.outstanding.decrementAndGet() > 0) return;
+            orderProgress.remove(orderId, progress);
+            if (!completed) return;
+
+            // all tasks for order are finished -> mark order as SHIPPED
+            OrdersStore store = OrdersStore.getInstance();
+            Order o = progress.order != null ? progress.order : store.findById(orderId);
+            if (o == null) return;
+            o.setStatus(Order.Status.SHIPPED);
+            // both stores are saved whole: batch the saves instead of writing them per order
+            store.persistLater();
+
+            // remove items belonging to this order from storage units
+            try {
+                StorageUnitsStore sus = StorageUnitsStore.getInstance();
+                for (Item it : o.getItems()) {
+                    sus.removeItem(it.getStorageUnitId(), it.getId());
                 }
-                // check active tasks
-                if (!pendingExists) {
-                    for (Tasks t : activeTasks.values()) {
-                        if (orderId.equals(t.getOrderId())) { pendingExists = true; break; }
-                    }
+                sus.persistLater();
+            } catch (Throwable remEx) {
+                // log or ignore but don't crash the task manager
+                remEx.printStackTrace();
+            }
+        } catch (Throwable t) {
+            ExceptionHandler.handle(t, "tasks.TaskManager.finishOrderTask");
+        }
+    }
+
+    //------------------- BOUNDED INTAKE ------------------------------
+
+    /**
+     * Bound the number of pending tasks. New work beyond {@code capacity} is handled by
+     * the policy; requeued tasks were admitted before and are always taken back.
+     * {@code Integer.MAX_VALUE} makes the intake unbounded again.
+     */
+    public void setIntakeCapacity(int capacity, AdmissionPolicy policy) {
+        this.intakeCapacity = Math.max(1, capacity);
+        if (policy != null) this.admissionPolicy = policy;
+        synchronized (intakeMonitor) { intakeMonitor.notifyAll(); }
+    }
+
+    public int getIntakeCapacity() {
+        return intakeCapacity;
+    }
+
+    public AdmissionPolicy getAdmissionPolicy() {
+        return admissionPolicy;
+    }
+
+    /** How long a BLOCK producer waits for room before its work is rejected. */
+    public void setBlockTimeout(long ms) {
+        this.blockTimeoutMs = Math.max(0, ms);
+    }
+
+    /** Listeners hear about crossing {@code high} upwards and then {@code low} downwards. */
+    public void setWatermarks(int high, int low) {
+        this.highWatermark = Math.max(1, high);
+        this.lowWatermark = Math.max(0, Math.min(low, this.highWatermark - 1));
+    }
+
+    public boolean isAboveHighWatermark() {
+        return aboveHighWatermark.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getShedCount() {
+        return shedCount.get();
+    }
+
+    /** Make room for {@code n} new tasks; the caller holds {@code intakeMonitor}. */
+    private boolean admit(int n, Tasks.Priority priority) {
+        if (n <= 0) return true;
+        if (n > intakeCapacity) return false;
+        long deadline = System.currentTimeMillis() + blockTimeoutMs;
+        while (pendingCount.get() + n > intakeCapacity) {
+            switch (admissionPolicy) {
+                case REJECT:
+                    return false;
+                case SHED_LOWEST_PRIORITY: {
+                    Tasks.Priority incoming = priority == null ? Tasks.Priority.STANDARD : priority;
+                    Tasks victim = taskQueue.pollLast(t -> t.getPriority().ordinal() > incoming.ordinal(), SHED_SCAN_LIMIT);
+                    if (victim == null) return false;
+                    shed(victim);
+                    break;
                 }
-                if (!pendingExists) {
-                    // all tasks for order are finished -> mark order as SHIPPED
-                    OrdersStore store = OrdersStore.getInstance();
-                    for (Order o : store.getOrders()) {
-                        if (o.getId().equals(orderId)) {
-                            o.setStatus(Order.Status.SHIPPED);
-                            store.persist();
-
-                            // remove items belonging to this order from storage units
-                            try {
-                                StorageUnitsStore sus = StorageUnitsStore.getInstance();
-                                for (Item it : o.getItems()) {
-                                    for (StorageUnit su : sus.getUnits()) {
-                                        su.removeItems(it.getId());
-                                    }
-                                }
-                                // persist storage units after removals
-                                sus.persist();
-                            } catch (Throwable remEx) {
-                                // log or ignore but don't crash the task manager
-                                remEx.printStackTrace();
-                            }
-
-                            break;
-                        }
+                case BLOCK: {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) return false;
+                    blockedProducers.incrementAndGet();
+                    try {
+                        intakeMonitor.wait(left);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    } finally {
+                        blockedProducers.decrementAndGet();
                     }
+                    break;
                 }
             }
-        } catch (Throwable ignore) {}
+        }
+        return true;
+    }
+
+    /** Drop a pending task to make room for more important work. */
+    private void shed(Tasks victim) {
+        decrementPending();
+        shedCount.incrementAndGet();
+        try {
+            if (logManager != null) {
+                String fileName = String.format("TaskManagerLogs/Tasks-%s.log", LocalDate.now());
+                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
+                logManager.writeLog(fileName, String.format("%s - SHED task %s priority=%s order=%s",
+                        timestamp, victim.getId(), victim.getPriority(), victim.getOrderId()));
+            }
+        } catch (Exception e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.shed.logWrite");
+        }
+        markTaskFailed(victim);
+    }
+
+    private void logRejected(String what, int tasks) {
+        rejectedCount.addAndGet(tasks);
+        try {
+            if (logManager != null) {
+                String fileName = String.format("TaskManagerLogs/Tasks-%s.log", LocalDate.now());
+                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
+                logManager.writeLog(fileName, String.format("%s - REJECTED %s (%d tasks) pending=%d capacity=%d policy=%s",
+                        timestamp, what, tasks, pendingCount.get(), intakeCapacity, admissionPolicy));
+            }
+        } catch (Exception e) {
+            ExceptionHandler.handle(e, "tasks.TaskManager.logRejected");
+        }
+    }
+
+    private int incrementPending() {
+        return addPending(1);
+    }
+
+    private int addPending(int n) {
+        int p = pendingCount.addAndGet(n);
+        if (p >= highWatermark && aboveHighWatermark.compareAndSet(false, true)) {
+            for (IntakeListener l : intakeListeners) {
+                try { l.onHighWatermark(p); } catch (Throwable ignore) {}
+            }
+        }
+        return p;
+    }
+
+    private int decrementPending() {
+        int p = pendingCount.decrementAndGet();
+        if (p <= lowWatermark && aboveHighWatermark.compareAndSet(true, false)) {
+            for (IntakeListener l : intakeListeners) {
+                try { l.onLowWatermark(p); } catch (Throwable ignore) {}
+            }
+        }
+        if (blockedProducers.get() > 0) {
+            synchronized (intakeMonitor) { intakeMonitor.notifyAll(); }
+        }
+        return p;
     }
 
     public int getActiveTaskCount() {
         return activeTasks.size();
     }
 
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Whether a pending task of at least {@code priority} is among the next ones in schedule
+     * order while no robot is idle to take it. Charging robots use it to cut a session short.
+     */
+    public boolean hasUnservedWork(Tasks.Priority priority) {
+        return unservedCount(priority) > 0;
+    }
+
+    /**
+     * {@link #hasUnservedWork} for a charging robot that will leave its bay on a yes: only as
+     * many robots get one as there are unserved tasks. The robot holds its claim until it
+     * asks for work, or for {@code PREEMPT_CLAIM_MS}.
+     */
+    public boolean claimUnservedWork(String robotId, Tasks.Priority priority) {
+        if (robotId == null) return false;
+        int unserved = unservedCount(priority);
+        if (unserved == 0) return false;
+        long now = System.currentTimeMillis();
+        synchronized (preemptClaims) {
+            preemptClaims.values().removeIf(at -> now - at > PREEMPT_CLAIM_MS);
+            if (preemptClaims.containsKey(robotId) || preemptClaims.size() >= unserved) return false;
+            preemptClaims.put(robotId, now);
+            return true;
+        }
+    }
+
+    private void dropPreemptClaim(String robotId) {
+        if (robotId != null && !preemptClaims.isEmpty()) preemptClaims.remove(robotId);
+    }
+
+    private int unservedCount(Tasks.Priority priority) {
+        if (priority == null || !idleRegistry.isEmpty()) return 0;
+        int n = 0;
+        for (Tasks t : taskQueue.peekFirst(URGENT_PEEK)) {
+            if (t.getPriority().ordinal() <= priority.ordinal()) n++;
+        }
+        return n;
+    }
+
     /**
      * Clear all tasks: pending, active and completed. Notify listeners about counts.
      * Used by UI to flush all task-related data.
@@ -419,8 +1454,23 @@ public class TaskManager{
         try {
             taskQueue.clear();
             activeTasks.clear();
-            completedTasksList.clear();
+            liveTasks.clear();
+            windowAssignments.clear();
+            idleRobots.clear();
+            orderProgress.clear();
+            completedTasks.clear();
+            leases.clear();
+            reservations.clear();
+            idleRegistry.clear();
+            mailboxes.clear();
+            preemptClaims.clear();
             pendingCount.set(0);
+            if (aboveHighWatermark.compareAndSet(true, false)) {
+                for (IntakeListener l : intakeListeners) {
+                    try { l.onLowWatermark(0); } catch (Throwable ignore) {}
+                }
+            }
+            synchronized (intakeMonitor) { intakeMonitor.notifyAll(); }
             for (TaskListener l : listeners) {
                 try { l.onPendingCountChanged(0); } catch (Throwable ignore) {}
                 try { l.onCompletedCountChanged(0); } catch (Throwable ignore) {}
@@ -0,0 +1,87 @@
+package com.warehouse.simulation.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe registry of tasks by their {@link Tasks#getKey() long key}. Keys are spread
+ * over a fixed number of lock stripes, each a {@link LongTaskMap}, so registering,
+ * looking up and removing are O(1) and threads only meet on the same stripe.
+ */
+public class TaskRegistry {
+
+    private static final int STRIPES = 16;
+
+    private final LongTaskMap[] stripes = new LongTaskMap[STRIPES];
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    public TaskRegistry() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new LongTaskMap();
+    }
+
+    /** Register a task; returns false if its key is already registered. */
+    public boolean register(Tasks task) {
+        if (task == null) return false;
+        LongTaskMap m = stripe(task.getKey());
+        synchronized (m) {
+            if (m.putIfAbsent(task.getKey(), task) != null) return false;
+        }
+        size.incrementAndGet();
+        return true;
+    }
+
+    public Tasks get(long key) {
+        LongTaskMap m = stripe(key);
+        synchronized (m) {
+            return m.get(key);
+        }
+    }
+
+    public boolean contains(long key) {
+        return get(key) != null;
+    }
+
+    /** Remove by key; returns the removed task or null. */
+    public Tasks remove(long key) {
+        LongTaskMap m = stripe(key);
+        Tasks removed;
+        synchronized (m) {
+            removed = m.remove(key);
+        }
+        if (removed != null) size.decrementAndGet();
+        return removed;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    /** Snapshot of all registered tasks, in no particular order. */
+    public List<Tasks> values() {
+        List<Tasks> out = new ArrayList<>();
+        for (LongTaskMap m : stripes) {
+            synchronized (m) {
+                out.addAll(m.values());
+            }
+        }
+        return out;
+    }
+
+    public void clear() {
+        for (LongTaskMap m : stripes) {
+            synchronized (m) {
+                size.addAndGet(-m.size());
+                m.clear();
+            }
+        }
+    }
+
+    private LongTaskMap stripe(long key) {
+        return stripes[(int) (key ^ (key >>> 32)) & (STRIPES - 1)];
+    }
+}
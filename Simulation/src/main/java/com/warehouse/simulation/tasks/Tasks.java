@@ -1,6 +1,7 @@
 package com.warehouse.simulation.tasks;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 // import utils.Position;
 import com.warehouse.simulation.storage.Item;
 import java.awt.Point;
@@ -8,7 +9,9 @@ import com.warehouse.simulation.exceptions.ExceptionHandler;
 
 public class Tasks{
 
-    private static int num = 0;
+    // monotonic key source; keys are never reused while the JVM runs
+    private static final AtomicLong NEXT_KEY = new AtomicLong(1);
+    private final long key = NEXT_KEY.getAndIncrement();
     private String id;
     private Point destination;
     private String robotId;
@@ -16,8 +19,13 @@ public class Tasks{
     private Item item;
 
     public Tasks() {
-        this.id = "Task №" + num;
-        num++;
+        this.id = "Task №" + key;
+    }
+
+    /** Task with a generated id ("T" + key), e.g. one item of an order. */
+    public Tasks(Point destination, Item item) {
+        this(null, destination, item);
+        this.id = "T" + key;
     }
 
     public enum TaskStatus {
@@ -26,8 +34,32 @@ public class Tasks{
         COMPLETED,
         FAILED
     }
+
+    /**
+     * Priority class. maxWaitMs is the aging bound: a task without an earlier deadline
+     * is scheduled as if it were due maxWaitMs after it was first queued, so lower
+     * classes still get their turn when higher classes keep arriving.
+     */
+    public enum Priority {
+        EXPRESS(60_000L),
+        STANDARD(5 * 60_000L),
+        BULK(30 * 60_000L);
+
+        private final long maxWaitMs;
+
+        Priority(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+
+        public long getMaxWaitMs() { return maxWaitMs; }
+    }
+
     private TaskStatus status;
     private int attempts = 0;
+    private Priority priority = Priority.STANDARD;
+    private long deadline = 0; // epoch millis, 0 = no SLA deadline
+    // effective due time used for EDF ordering, fixed when first queued
+    private long scheduleRank = Long.MAX_VALUE;
+    // insertion order assigned by PendingTaskPool on first enqueue, -1 until then
+    private long queueSeq = -1;
 
     public Tasks(String id, Point destination, Item item){
         try {
@@ -69,6 +101,11 @@ public class Tasks{
         return id;
     }
 
+    /** Unique, monotonically increasing key used by the task registries. */
+    public long getKey() {
+        return key;
+    }
+
     public Point getDestination(){
         return destination;
     }
@@ -111,6 +148,28 @@ public class Tasks{
     public int getAttempts() { return attempts; }
     public void incrementAttempts() { this.attempts++; }
 
+    public Priority getPriority() { return priority; }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority == null ? Priority.STANDARD : priority;
+    }
+
+    public long getDeadline() { return deadline; }
+
+    /** SLA deadline in epoch millis (0 = none). Only affects ordering before the task is first queued. */
+    public void setDeadline(long deadline) { this.deadline = Math.max(0, deadline); }
+
+    /** Effective due time: the SLA deadline or the aging bound of its priority, whichever is earlier. */
+    public long getScheduleRank() { return scheduleRank; }
+
+    void fixScheduleRank(long enqueuedAt) {
+        long aged = enqueuedAt + priority.getMaxWaitMs();
+        this.scheduleRank = deadline > 0 ? Math.min(deadline, aged) : aged;
+    }
+
+    long getQueueSeq() { return queueSeq; }
+    void setQueueSeq(long queueSeq) { this.queueSeq = queueSeq; }
+
     @Override
     public String toString(){
         return "Task ID: " + id + ", Destination: " + destination + ", Robot ID: " + robotId + ", Item: " + item + ", Status: " + status;
@@ -0,0 +1,33 @@
+package com.warehouse.simulation.tasks;
+
+import java.util.Collections;
+import java.util.List;
+
+/** Pickups assigned to one robot for a single run to the drop-off, in visiting order. */
+public class Trip {
+
+    private final String robotId;
+    private final List<Tasks> stops;
+    private final double load;
+    private final long routeLength;
+
+    public Trip(String robotId, List<Tasks> stops, double load, long routeLength) {
+        this.robotId = robotId;
+        this.stops = Collections.unmodifiableList(stops);
+        this.load = load;
+        this.routeLength = routeLength;
+    }
+
+    public String getRobotId() { return robotId; }
+    public List<Tasks> getStops() { return stops; }
+    public int size() { return stops.size(); }
+    /** Total item weight carried (kg). */
+    public double getLoad() { return load; }
+    /** Estimated grid moves from the robot's position over all stops to the drop-off. */
+    public long getRouteLength() { return routeLength; }
+
+    @Override
+    public String toString() {
+        return String.format("Trip[%s, %d stops, %.1fkg, %d moves]", robotId, stops.size(), load, routeLength);
+    }
+}
@@ -0,0 +1,106 @@
+package com.warehouse.simulation.tasks;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders the pickups of a multi-stop trip: nearest neighbour from the robot's position,
+ * then 2-opt improvement of the open route start -> stops -> drop-off. Distances are
+ * Manhattan grid distances; tasks without a destination need no travel and go first.
+ */
+public final class TripPlanner {
+
+    /** 2-opt passes are stopped after this many rounds without convergence. */
+    private static final int MAX_TWO_OPT_ROUNDS = 50;
+
+    private TripPlanner() {}
+
+    /** Stops in visiting order. {@code end} may be null for an open route. */
+    public static List<Tasks> orderStops(Point start, List<Tasks> stops, Point end) {
+        List<Tasks> anywhere = new ArrayList<>();
+        List<Tasks> located = new ArrayList<>();
+        for (Tasks t : stops) {
+            if (t.getDestination() == null) anywhere.add(t);
+            else located.add(t);
+        }
+
+        // nearest neighbour
+        List<Tasks> route = new ArrayList<>(located.size());
+        Point at = start;
+        while (!located.isEmpty()) {
+            int best = 0;
+            long bestDist = Long.MAX_VALUE;
+            for (int i = 0; i < located.size(); i++) {
+                long d = distance(at, located.get(i).getDestination());
+                if (d < bestDist) {
+                    bestDist = d;
+                    best = i;
+                }
+            }
+            Tasks next = located.remove(best);
+            route.add(next);
+            at = next.getDestination();
+        }
+
+        twoOpt(start, route, end);
+
+        List<Tasks> out = new ArrayList<>(anywhere);
+        out.addAll(route);
+        return out;
+    }
+
+    /** Length of start -> stops (in the given order) -> end. */
+    public static long routeLength(Point start, List<Tasks> stops, Point end) {
+        long total = 0;
+        Point at = start;
+        for (Tasks t : stops) {
+            Point p = t.getDestination();
+            if (p == null) continue;
+            total += distance(at, p);
+            at = p;
+        }
+        return total + distance(at, end);
+    }
+
+    /** Reverse segments of the route while that makes it shorter (start and end stay fixed). */
+    private static void twoOpt(Point start, List<Tasks> route, Point end) {
+        int n = route.size();
+        if (n < 2) return;
+        boolean improved = true;
+        for (int round = 0; improved && round < MAX_TWO_OPT_ROUNDS; round++) {
+            improved = false;
+            for (int i = 0; i < n - 1; i++) {
+                Point before = i == 0 ? start : route.get(i - 1).getDestination();
+                Point first = route.get(i).getDestination();
+                for (int k = i + 1; k < n; k++) {
+                    Point last = route.get(k).getDestination();
+                    Point after = k == n - 1 ? end : route.get(k + 1).getDestination();
+                    long delta = distance(before, last) + distance(first, after)
+                            - distance(before, first) - distance(last, after);
+                    if (delta < 0) {
+                        reverse(route, i, k);
+                        first = route.get(i).getDestination();
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void reverse(List<Tasks> route, int from, int to) {
+        while (from < to) {
+            Tasks tmp = route.get(from);
+            route.set(from, route.get(to));
+            route.set(to, tmp);
+            from++;
+            to--;
+        }
+    }
+
+    /** Manhattan distance; a missing end point (open route) costs nothing. */
+    private static long distance(Point a, Point b) {
+        if (a == null || b == null) return 0;
+        return Math.abs((long) a.x - b.x) + Math.abs((long) a.y - b.y);
+    }
+}
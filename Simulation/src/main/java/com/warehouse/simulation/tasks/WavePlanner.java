@@ -0,0 +1,289 @@
+package com.warehouse.simulation.tasks;
+
+import java.awt.Point;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.warehouse.simulation.app.model.StorageUnitsStore;
+import com.warehouse.simulation.exceptions.ExceptionHandler;
+import com.warehouse.simulation.logging.LogManager;
+import com.warehouse.simulation.storage.Item;
+import com.warehouse.simulation.storage.Order;
+import com.warehouse.simulation.storage.StorageUnit;
+
+/**
+ * Buffers incoming orders and releases them to the {@link TaskManager} in waves.
+ *
+ * A wave is sized to what the floor can absorb: robots x stops per trip, capped by the
+ * drop-off capacity, minus what is still pending. A new wave is released whenever the
+ * pending count falls to the low watermark (half a wave). Orders close to their SLA are
+ * always released; the rest are picked greedily, preferring orders whose pickups share
+ * cells with orders already in the wave (batching) and that load the least busy zones
+ * (balance). Orders wait at most their priority's max wait before being forced out: a
+ * timer checks the buffer every second, so this holds even while no new order arrives and
+ * the floor stays busy above the watermark.
+ *
+ * Wave planning is opt-in: {@code Warehouse.setWavePlanning(true)} creates a planner, and
+ * orders handed to {@code Warehouse.submitOrder} then go through it.
+ */
+public class WavePlanner implements TaskManager.TaskListener {
+
+    // orders due within this horizon skip the wave sizing
+    static final long FORCE_HORIZON_MS = 30_000;
+    // how often the timer looks for orders coming due
+    private static final long TICK_MS = 1_000;
+    // how much one shared pickup cell is worth against the zone balance penalty
+    private static final double BATCH_BONUS = 4.0;
+
+    private final TaskManager taskManager;
+    private final List<BufferedOrder> buffer = new ArrayList<>();
+    private final AtomicBoolean releasing = new AtomicBoolean(false);
+    private volatile int robotCount = 5;
+    private volatile int dropOffCapacity = 20;
+    private LogManager logManager;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "wave-planner");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** An order waiting for its wave, with its pickup cells and zones resolved once. */
+    private static final class BufferedOrder {
+        final Order order;
+        final List<Point> cells = new ArrayList<>();
+        final Map<String, Integer> zoneCounts = new HashMap<>();
+        final long releaseBy;
+
+        BufferedOrder(Order order, long receivedAt) {
+            this.order = order;
+            long byWait = receivedAt + order.getPriority().getMaxWaitMs();
+            this.releaseBy = order.getDeadline() > 0 ? Math.min(order.getDeadline(), byWait) : byWait;
+        }
+
+        int size() {
+            return order.getItems().size();
+        }
+    }
+
+    public WavePlanner(TaskManager taskManager) {
+        this.taskManager = taskManager;
+        try {
+            this.logManager = LogManager.getInstance("logs");
+        } catch (Exception e) {
+            this.logManager = null;
+        }
+        taskManager.addListener(this);
+        ticker.scheduleWithFixedDelay(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the timer and stop listening to the task manager. Returns the orders still
+     * buffered, which the caller now has to hand on itself.
+     */
+    public List<Order> shutdown() {
+        ticker.shutdownNow();
+        taskManager.removeListener(this);
+        List<Order> left = new ArrayList<>();
+        synchronized (this) {
+            for (BufferedOrder b : buffer) left.add(b.order);
+            buffer.clear();
+        }
+        return left;
+    }
+
+    /** Buffer an order until a wave has room for it. */
+    public void submit(Order order) {
+        if (order == null) return;
+        BufferedOrder b = new BufferedOrder(order, System.currentTimeMillis());
+        for (Item item : order.getItems()) {
+            Point cell = null;
+            try {
+                StorageUnit su = StorageUnitsStore.getInstance().findById(item.getStorageUnitId());
+                if (su != null) cell = su.getPosition();
+            } catch (Throwable ignore) {}
+            if (cell == null) continue;
+            b.cells.add(cell);
+            String zone = taskManager.getZoneId(cell);
+            b.zoneCounts.merge(zone == null ? "*" : zone, 1, Integer::sum);
+        }
+        synchronized (this) {
+            buffer.add(b);
+        }
+        boolean due = b.releaseBy - System.currentTimeMillis() <= FORCE_HORIZON_MS;
+        if (due || taskManager.getPendingCount() <= getLowWatermark()) releaseWave();
+    }
+
+    /**
+     * Release one wave now. Returns the number of orders handed to the task manager,
+     * 0 if there is no room or another thread is already releasing.
+     */
+    public int releaseWave() {
+        if (!releasing.compareAndSet(false, true)) return 0;
+        List<BufferedOrder> wave = new ArrayList<>();
+        try {
+            synchronized (this) {
+                if (buffer.isEmpty()) return 0;
+                long now = System.currentTimeMillis();
+                int room = getWaveSize() - taskManager.getPendingCount();
+
+                // orders about to miss their SLA go out whatever the room
+                Iterator<BufferedOrder> it = buffer.iterator();
+                while (it.hasNext()) {
+                    BufferedOrder b = it.next();
+                    if (b.releaseBy - now <= FORCE_HORIZON_MS) {
+                        wave.add(b);
+                        room -= b.size();
+                        it.remove();
+                    }
+                }
+
+                Map<String, Integer> zoneLoad = new HashMap<>();
+                Set<Point> waveCells = new HashSet<>();
+                for (BufferedOrder b : wave) account(b, zoneLoad, waveCells);
+
+                while (room > 0 && !buffer.isEmpty()) {
+                    BufferedOrder best = null;
+                    double bestScore = Double.NEGATIVE_INFINITY;
+                    for (BufferedOrder b : buffer) {
+                        // an order bigger than the room only goes into an otherwise empty wave
+                        if (b.size() > room && !wave.isEmpty()) continue;
+                        double s = score(b, zoneLoad, waveCells);
+                        if (s > bestScore) {
+                            bestScore = s;
+                            best = b;
+                        }
+                    }
+                    if (best == null) break;
+                    buffer.remove(best);
+                    wave.add(best);
+                    room -= best.size();
+                    account(best, zoneLoad, waveCells);
+                }
+            }
+
+            // the whole wave in one batch: one intake pass, one log record, one listener event
+            List<Order> orders = new ArrayList<>(wave.size());
+            for (BufferedOrder b : wave) orders.add(b.order);
+            List<Order> refused = new ArrayList<>();
+            taskManager.createTasksFromOrders(orders, refused);
+            if (!refused.isEmpty()) {
+                // refused by a bounded intake: keep them for a later wave
+                Set<Order> again = new HashSet<>(refused);
+                synchronized (this) {
+                    for (BufferedOrder b : wave) if (again.contains(b.order)) buffer.add(b);
+                }
+            }
+            if (!wave.isEmpty()) logWave(wave);
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.WavePlanner.releaseWave");
+        } finally {
+            releasing.set(false);
+        }
+        return wave.size();
+    }
+
+    /** Timer: release when an order comes due or the floor has drained without an event. */
+    void tick() {
+        try {
+            long due;
+            synchronized (this) {
+                if (buffer.isEmpty()) return;
+                due = Long.MAX_VALUE;
+                for (BufferedOrder b : buffer) due = Math.min(due, b.releaseBy);
+            }
+            if (due - System.currentTimeMillis() <= FORCE_HORIZON_MS
+                    || taskManager.getPendingCount() <= getLowWatermark()) {
+                releaseWave();
+            }
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "tasks.WavePlanner.tick");
+        }
+    }
+
+    @Override
+    public void onPendingCountChanged(int newPending) {
+        if (newPending <= getLowWatermark() && getBufferedCount() > 0) releaseWave();
+    }
+
+    @Override
+    public void onCompletedCountChanged(int newCompleted) {
+        // waves follow the pending count only
+    }
+
+    //------------------- SETTINGS ------------------------------
+
+    /** Number of robots working the floor. */
+    public void setRobotCount(int robots) {
+        this.robotCount = Math.max(1, robots);
+    }
+
+    /** Most tasks the drop-off can take per wave. */
+    public void setDropOffCapacity(int tasks) {
+        this.dropOffCapacity = Math.max(1, tasks);
+    }
+
+    /** Target pending tasks right after a wave is released. */
+    public int getWaveSize() {
+        return Math.max(1, Math.min(robotCount * taskManager.getMaxTripStops(), dropOffCapacity));
+    }
+
+    public int getLowWatermark() {
+        return getWaveSize() / 2;
+    }
+
+    public synchronized int getBufferedCount() {
+        return buffer.size();
+    }
+
+    //------------------- HELPERS ------------------------------
+
+    /** Shared pickup cells count for batching; adding to already loaded zones is penalised. */
+    private static double score(BufferedOrder b, Map<String, Integer> zoneLoad, Set<Point> waveCells) {
+        int shared = 0;
+        Set<Point> own = new HashSet<>();
+        for (Point c : b.cells) {
+            if (waveCells.contains(c) || !own.add(c)) shared++;
+        }
+        // increase of the sum of squared zone loads: small when the order fills light zones
+        double penalty = 0;
+        for (Map.Entry<String, Integer> e : b.zoneCounts.entrySet()) {
+            int load = zoneLoad.getOrDefault(e.getKey(), 0);
+            int add = e.getValue();
+            penalty += (double) (load + add) * (load + add) - (double) load * load;
+        }
+        return shared * BATCH_BONUS - penalty / Math.max(1, b.size());
+    }
+
+    private static void account(BufferedOrder b, Map<String, Integer> zoneLoad, Set<Point> waveCells) {
+        waveCells.addAll(b.cells);
+        for (Map.Entry<String, Integer> e : b.zoneCounts.entrySet()) {
+            zoneLoad.merge(e.getKey(), e.getValue(), Integer::sum);
+        }
+    }
+
+    private void logWave(List<BufferedOrder> wave) {
+        try {
+            if (logManager == null) return;
+            int tasks = 0;
+            for (BufferedOrder b : wave) tasks += b.size();
+            String fileName = String.format("TaskManagerLogs/Tasks-%s.log", LocalDate.now());
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"));
+            logManager.writeLog(fileName, String.format("%s - RELEASED wave of %d orders (%d tasks), %d orders buffered",
+                    timestamp, wave.size(), tasks, getBufferedCount()));
+        } catch (Exception e) {
+            ExceptionHandler.handle(e, "tasks.WavePlanner.logWave");
+        }
+    }
+}
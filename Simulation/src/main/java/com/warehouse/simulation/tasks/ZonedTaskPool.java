@@ -0,0 +1,406 @@
+package com.warehouse.simulation.tasks;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import com.warehouse.simulation.utils.GridZone;
+
+/**
+ * Pending tasks sharded by warehouse zone, one {@link PendingTaskPool} per zone.
+ *
+ * A task goes to the zone that contains its destination (the closest zone if none does);
+ * tasks without a destination share an extra "anywhere" shard. Robots look in their home
+ * zone first and only steal from neighbouring zones, and then from the remaining ones,
+ * when nothing fits at home. Every shard has its own lock, so robots working in different
+ * zones do not contend. Without zones there is a single shard and the behaviour is the
+ * same as a plain {@link PendingTaskPool}.
+ *
+ * The zone layout is an immutable snapshot behind a volatile field, so no operation takes
+ * a shared lock. When the zones are replaced, a task added to the old layout during the
+ * switch is moved over by whichever of the two sides gets to it first.
+ */
+public class ZonedTaskPool {
+
+    /** Zones, their pools, a cell to zone lookup and the precomputed steal order of every zone. */
+    private static final class Layout {
+        final List<GridZone> zones;
+        final PendingTaskPool[] pools;   // one per zone, plus the anywhere shard at the end
+        final int[][] neighbours;        // adjacent zones, nearest first
+        final int[][] others;            // the remaining zones, nearest first
+        final Map<String, Integer> indexById = new HashMap<>();
+        // the bounding box of the zones is cut into bands at every zone edge; a cell's band is
+        // looked up per row and per column and the band cell holds the first zone covering it
+        private int minRow, minColumn, maxRow, maxColumn;
+        private int[] rowBand, columnBand;
+        private int bandColumns;
+        private int[] bandZone;
+
+        Layout(List<GridZone> zones) {
+            this.zones = Collections.unmodifiableList(new ArrayList<>(zones));
+            int n = this.zones.size();
+            this.pools = new PendingTaskPool[n + 1];
+            for (int i = 0; i <= n; i++) pools[i] = new PendingTaskPool();
+            this.neighbours = new int[n][];
+            this.others = new int[n][];
+            for (int i = 0; i < n; i++) {
+                GridZone home = this.zones.get(i);
+                indexById.putIfAbsent(home.getId(), i);
+                Point c = home.getCenter();
+                List<Integer> near = new ArrayList<>();
+                List<Integer> far = new ArrayList<>();
+                for (int j = 0; j < n; j++) {
+                    if (j == i) continue;
+                    (home.isAdjacentTo(this.zones.get(j)) ? near : far).add(j);
+                }
+                near.sort((a, b) -> Integer.compare(this.zones.get(a).distanceTo(c), this.zones.get(b).distanceTo(c)));
+                far.sort((a, b) -> Integer.compare(this.zones.get(a).distanceTo(c), this.zones.get(b).distanceTo(c)));
+                neighbours[i] = near.stream().mapToInt(Integer::intValue).toArray();
+                others[i] = far.stream().mapToInt(Integer::intValue).toArray();
+            }
+            if (n > 0) buildLookup();
+        }
+
+        private void buildLookup() {
+            minRow = minColumn = Integer.MAX_VALUE;
+            maxRow = maxColumn = Integer.MIN_VALUE;
+            TreeSet<Integer> rowCuts = new TreeSet<>();
+            TreeSet<Integer> columnCuts = new TreeSet<>();
+            for (GridZone z : zones) {
+                minRow = Math.min(minRow, z.getFromRow());
+                maxRow = Math.max(maxRow, z.getToRow());
+                minColumn = Math.min(minColumn, z.getFromColumn());
+                maxColumn = Math.max(maxColumn, z.getToColumn());
+                rowCuts.add(z.getFromRow());
+                rowCuts.add(z.getToRow() + 1);
+                columnCuts.add(z.getFromColumn());
+                columnCuts.add(z.getToColumn() + 1);
+            }
+            rowBand = bands(minRow, maxRow, rowCuts);
+            columnBand = bands(minColumn, maxColumn, columnCuts);
+            bandColumns = columnBand[columnBand.length - 1] + 1;
+            bandZone = new int[(rowBand[rowBand.length - 1] + 1) * bandColumns];
+            Arrays.fill(bandZone, -1);
+            for (int i = 0; i < zones.size(); i++) {
+                GridZone z = zones.get(i);
+                for (int rb = rowBand[z.getFromRow() - minRow]; rb <= rowBand[z.getToRow() - minRow]; rb++) {
+                    for (int cb = columnBand[z.getFromColumn() - minColumn]; cb <= columnBand[z.getToColumn() - minColumn]; cb++) {
+                        if (bandZone[rb * bandColumns + cb] < 0) bandZone[rb * bandColumns + cb] = i;
+                    }
+                }
+            }
+        }
+
+        /** Band index of every coordinate from {@code from} to {@code to}; a new band starts at each cut. */
+        private static int[] bands(int from, int to, TreeSet<Integer> cuts) {
+            int[] band = new int[to - from + 1];
+            int b = 0;
+            for (int v = from; v <= to; v++) {
+                if (v > from && cuts.contains(v)) b++;
+                band[v - from] = b;
+            }
+            return band;
+        }
+
+        int anywhere() {
+            return pools.length - 1;
+        }
+
+        /** Zone index for a point: the containing zone, else the closest one; -1 without zones. */
+        int zoneOf(Point p) {
+            if (zones.isEmpty() || p == null) return -1;
+            // outside the bounding box the nearest zone is the one nearest to the clamped cell
+            int r = Math.max(minRow, Math.min(maxRow, p.x));
+            int c = Math.max(minColumn, Math.min(maxColumn, p.y));
+            int z = bandZone[rowBand[r - minRow] * bandColumns + columnBand[c - minColumn]];
+            return z >= 0 ? z : closest(new Point(r, c));
+        }
+
+        /** Only for cells in a gap between zones. */
+        private int closest(Point p) {
+            int best = 0;
+            int bestDist = Integer.MAX_VALUE;
+            for (int i = 0; i < zones.size(); i++) {
+                int d = zones.get(i).distanceTo(p);
+                if (d < bestDist) {
+                    bestDist = d;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        int shardOf(Tasks t) {
+            Point dest = t.getDestination();
+            if (dest == null || zones.isEmpty()) return anywhere();
+            return zoneOf(dest);
+        }
+    }
+
+    private volatile Layout layout = new Layout(Collections.emptyList());
+
+    /**
+     * Replace the zones. Pending tasks are moved to their new shard and keep their
+     * place in schedule order. An empty list goes back to a single shard.
+     */
+    public synchronized void setZones(List<GridZone> zones) {
+        Layout old = layout;
+        Layout next = new Layout(zones == null ? Collections.emptyList() : zones);
+        moveAll(old, next);
+        layout = next;
+        // tasks added to the old layout while it was being emptied
+        moveAll(old, next);
+    }
+
+    public List<GridZone> getZones() {
+        return layout.zones;
+    }
+
+    /** Zone id for a point (containing or closest zone), or null without zones. */
+    public String zoneIdOf(Point p) {
+        Layout l = layout;
+        int z = l.zoneOf(p);
+        return z < 0 ? null : l.zones.get(z).getId();
+    }
+
+    /**
+     * Add a task to its zone; returns false if it is already pending. A task always maps
+     * to the same shard (by destination), so the shard's own check catches duplicates.
+     */
+    public boolean add(Tasks task) {
+        if (task == null) return false;
+        Layout l = layout;
+        boolean added = l.pools[l.shardOf(task)].add(task);
+        settle(l, Collections.singletonList(task));
+        return added;
+    }
+
+    /**
+     * Add several tasks, taking each zone's lock once. Returns the tasks that were
+     * added (duplicates are skipped).
+     */
+    public List<Tasks> addAll(Collection<Tasks> tasks) {
+        Layout l = layout;
+        List<List<Tasks>> byShard = new ArrayList<>(l.pools.length);
+        for (int i = 0; i < l.pools.length; i++) byShard.add(new ArrayList<>());
+        for (Tasks t : tasks) {
+            if (t != null) byShard.get(l.shardOf(t)).add(t);
+        }
+        List<Tasks> added = new ArrayList<>(tasks.size());
+        for (int i = 0; i < l.pools.length; i++) {
+            List<Tasks> batch = byShard.get(i);
+            if (!batch.isEmpty()) added.addAll(l.pools[i].addAll(batch));
+        }
+        settle(l, added);
+        return added;
+    }
+
+    public boolean contains(Tasks task) {
+        if (task == null) return false;
+        Layout l = layout;
+        return l.pools[l.shardOf(task)].contains(task.getKey());
+    }
+
+    /** Remove a pending task; returns it, or null if it was not pending. */
+    public Tasks remove(Tasks task) {
+        if (task == null) return null;
+        Layout l = layout;
+        Tasks removed = removeFrom(l, task);
+        while (removed == null && layout != l) {
+            // it may have been moved to the new layout meanwhile
+            l = layout;
+            removed = removeFrom(l, task);
+        }
+        return removed;
+    }
+
+    /** Remove and return the first pending task in schedule order over all zones. */
+    public Tasks pollFirst() {
+        while (true) {
+            Layout l = layout;
+            Tasks best = null;
+            for (PendingTaskPool pool : l.pools) {
+                Tasks t = pool.peekFirst();
+                if (t != null && (best == null || PendingTaskPool.SCHEDULE_ORDER.compare(t, best) < 0)) best = t;
+            }
+            if (best == null) return null;
+            Tasks removed = removeFrom(l, best);
+            if (removed != null) return removed;
+            // taken by another robot in the meantime, look again
+        }
+    }
+
+    /**
+     * Remove and return the task served last in schedule order over all zones that
+     * passes {@code filter}; at most {@code scanLimit} tasks per zone are looked at.
+     */
+    public Tasks pollLast(Predicate<Tasks> filter, int scanLimit) {
+        while (true) {
+            Layout l = layout;
+            Tasks worst = null;
+            for (PendingTaskPool pool : l.pools) {
+                Tasks t = pool.findLast(filter, scanLimit);
+                if (t != null && (worst == null || PendingTaskPool.SCHEDULE_ORDER.compare(t, worst) > 0)) worst = t;
+            }
+            if (worst == null) return null;
+            Tasks removed = removeFrom(l, worst);
+            if (removed != null) return removed;
+        }
+    }
+
+    /**
+     * Urgent tasks are served from every zone: the earliest-ranked task due before
+     * {@code rankLimit} that is within reach wins, whatever zone it is in.
+     */
+    public Tasks pollUrgent(long rankLimit, Point from, double maxDistance, Predicate<Tasks> filter, int scanLimit) {
+        while (true) {
+            Layout l = layout;
+            Tasks best = null;
+            for (PendingTaskPool pool : l.pools) {
+                Tasks t = pool.findUrgent(rankLimit, from, maxDistance, filter, scanLimit);
+                if (t != null && (best == null || PendingTaskPool.SCHEDULE_ORDER.compare(t, best) < 0)) best = t;
+            }
+            if (best == null) return null;
+            Tasks removed = removeFrom(l, best);
+            if (removed != null) return removed;
+        }
+    }
+
+    /** Nearest task, home zone being the zone that contains {@code from}. */
+    public Tasks pollNearest(Point from, double maxDistance, Predicate<Tasks> filter) {
+        return pollNearest(from, null, maxDistance, filter);
+    }
+
+    /**
+     * Remove and return the nearest acceptable task, looking in the home zone (and the
+     * anywhere shard) first, then in the zones adjacent to it, then in all the others.
+     * {@code homeZoneId} null means the zone containing {@code from}.
+     */
+    public Tasks pollNearest(Point from, String homeZoneId, double maxDistance, Predicate<Tasks> filter) {
+        while (true) {
+            Layout l = layout;
+            int home = homeZoneId == null ? l.zoneOf(from) : l.indexById.getOrDefault(homeZoneId, -1);
+            if (home < 0) home = l.zoneOf(from);
+            Tasks t;
+            if (home < 0) {
+                t = nearestIn(l, allShards(l), from, maxDistance, filter);
+            } else {
+                t = nearestIn(l, new int[] { home, l.anywhere() }, from, maxDistance, filter);
+                if (t == null) t = nearestIn(l, l.neighbours[home], from, maxDistance, filter);
+                if (t == null) t = nearestIn(l, l.others[home], from, maxDistance, filter);
+            }
+            if (t == null) return null;
+            Tasks removed = removeFrom(l, t);
+            if (removed != null) return removed;
+        }
+    }
+
+    /** Remove every pending task matching the predicate and return them in schedule order. */
+    public List<Tasks> removeIf(Predicate<Tasks> predicate) {
+        List<Tasks> removed = new ArrayList<>();
+        for (PendingTaskPool pool : layout.pools) {
+            removed.addAll(pool.removeIf(predicate));
+        }
+        removed.sort(PendingTaskPool.SCHEDULE_ORDER);
+        return removed;
+    }
+
+    /** The first {@code limit} pending tasks in schedule order over all zones. */
+    public List<Tasks> peekFirst(int limit) {
+        List<Tasks> all = new ArrayList<>();
+        for (PendingTaskPool pool : layout.pools) all.addAll(pool.peekFirst(limit));
+        all.sort(PendingTaskPool.SCHEDULE_ORDER);
+        return all.size() > limit ? new ArrayList<>(all.subList(0, Math.max(limit, 0))) : all;
+    }
+
+    /** Snapshot in schedule order. */
+    public List<Tasks> snapshot() {
+        List<Tasks> all = new ArrayList<>();
+        for (PendingTaskPool pool : layout.pools) all.addAll(pool.snapshot());
+        all.sort(PendingTaskPool.SCHEDULE_ORDER);
+        return all;
+    }
+
+    /** Pending task count per zone id (tasks without destination under "*"). */
+    public Map<String, Integer> sizeByZone() {
+        Layout l = layout;
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int i = 0; i < l.zones.size(); i++) out.put(l.zones.get(i).getId(), l.pools[i].size());
+        out.put("*", l.pools[l.anywhere()].size());
+        return out;
+    }
+
+    public int size() {
+        int n = 0;
+        for (PendingTaskPool pool : layout.pools) n += pool.size();
+        return n;
+    }
+
+    public boolean isEmpty() {
+        for (PendingTaskPool pool : layout.pools) {
+            if (!pool.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (PendingTaskPool pool : layout.pools) pool.clear();
+    }
+
+    //-------- helpers ------------
+
+    private static Tasks removeFrom(Layout l, Tasks t) {
+        return l.pools[l.shardOf(t)].remove(t.getKey());
+    }
+
+    /** Move every task of {@code from} into its shard of {@code to}. */
+    private static void moveAll(Layout from, Layout to) {
+        for (PendingTaskPool pool : from.pools) {
+            for (Tasks t : pool.removeIf(t -> true)) {
+                to.pools[to.shardOf(t)].add(t);
+            }
+        }
+    }
+
+    /** After adding to {@code l}: if the zones were replaced meanwhile, move the tasks setZones missed. */
+    private void settle(Layout l, Collection<Tasks> tasks) {
+        while (layout != l) {
+            Layout next = layout;
+            for (Tasks t : tasks) {
+                Tasks moved = removeFrom(l, t);
+                if (moved != null) next.pools[next.shardOf(moved)].add(moved);
+            }
+            l = next;
+        }
+    }
+
+    /** Closest candidate over the given shards (ties: schedule order), left in its pool. */
+    private static Tasks nearestIn(Layout l, int[] shards, Point from, double maxDistance, Predicate<Tasks> filter) {
+        Tasks best = null;
+        long bestDist = Long.MAX_VALUE;
+        for (int s : shards) {
+            Tasks t = l.pools[s].findNearest(from, maxDistance, filter);
+            if (t == null) continue;
+            long d = from == null ? 0 : PendingTaskPool.distance(from, t.getDestination());
+            if (d < bestDist || (d == bestDist && PendingTaskPool.SCHEDULE_ORDER.compare(t, best) < 0)) {
+                best = t;
+                bestDist = d;
+            }
+        }
+        return best;
+    }
+
+    private static int[] allShards(Layout l) {
+        int[] all = new int[l.pools.length];
+        Arrays.setAll(all, i -> i);
+        return all;
+    }
+}
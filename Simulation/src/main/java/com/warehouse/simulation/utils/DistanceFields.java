@@ -0,0 +1,126 @@
+package com.warehouse.simulation.utils;
+
+import java.awt.Point;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Driving distances to a set of target cells, one breadth-first search per target. The
+ * search runs from the target over the free cells the first time a distance to it is asked
+ * for; afterwards a distance is one array read. Fields are kept in an LRU within a memory
+ * budget and dropped when the grid's layout changes (see {@link WarehouseGrid#getLayoutVersion()}).
+ * Floors too large for a field return {@link #UNKNOWN}, so the caller can fall back to
+ * {@link PathFinder} or an estimate.
+ */
+public class DistanceFields {
+
+    public static final int UNREACHABLE = -1;
+    /** No field for this target: the floor is too large or the target is off the grid. */
+    public static final int UNKNOWN = -2;
+
+    // largest floor (in cells) that gets distance fields
+    private static final int MAX_FIELD_CELLS = 1 << 20;
+    // cells of all kept fields together, about 64 MB of ints
+    private static final long BUDGET_CELLS = 1L << 24;
+    private static final int[][] STEPS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+
+    private final WarehouseGrid grid;
+    private final int maxFields;
+    private final LinkedHashMap<Point, int[]> fields;
+    private long version;
+
+    public DistanceFields(WarehouseGrid grid, int maxFields) {
+        this.grid = grid;
+        long cells = grid == null ? 1 : Math.max(1L, (long) grid.getMaxRow() * grid.getMaxColumn());
+        this.maxFields = (int) Math.max(1, Math.min(Math.max(1, maxFields), BUDGET_CELLS / cells));
+        this.fields = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Point, int[]> eldest) {
+                return size() > DistanceFields.this.maxFields;
+            }
+        };
+        this.version = grid == null ? 0 : grid.getLayoutVersion();
+    }
+
+    /** Cells to drive from {@code from} to {@code to}, {@link #UNREACHABLE}, or {@link #UNKNOWN}. */
+    public int distance(Point from, Point to) {
+        if (from == null || to == null) return UNREACHABLE;
+        if (from.equals(to)) return 0;
+        if (grid == null) return Math.abs(from.x - to.x) + Math.abs(from.y - to.y);
+        if (!grid.isWithinBounds(from.x, from.y)) return UNREACHABLE;
+        int[] field = fieldFor(to);
+        if (field == null) return UNKNOWN;
+        int rows = grid.getMaxRow();
+        int cols = grid.getMaxColumn();
+        int d = field[from.x * cols + from.y];
+        if (d != UNREACHABLE) return d;
+        // the start cell itself may be taken (by the robot standing on it): step off it first
+        int best = UNREACHABLE;
+        for (int[] s : STEPS) {
+            int r = from.x + s[0];
+            int c = from.y + s[1];
+            if (r < 0 || r >= rows || c < 0 || c >= cols) continue;
+            int n = field[r * cols + c];
+            if (n != UNREACHABLE && (best == UNREACHABLE || n + 1 < best)) best = n + 1;
+        }
+        return best;
+    }
+
+    /** Forget every field; they are rebuilt on the next lookup. */
+    public synchronized void invalidate() {
+        fields.clear();
+    }
+
+    public synchronized int size() {
+        return fields.size();
+    }
+
+    //-------- helpers ------------
+
+    private int[] fieldFor(Point target) {
+        long cells = (long) grid.getMaxRow() * grid.getMaxColumn();
+        if (cells > MAX_FIELD_CELLS || !grid.isWithinBounds(target.x, target.y)) return null;
+        long seen;
+        synchronized (this) {
+            long now = grid.getLayoutVersion();
+            if (now != version) {
+                fields.clear();
+                version = now;
+            }
+            int[] field = fields.get(target);
+            if (field != null) return field;
+            seen = version;
+        }
+        // searched outside the lock; two threads may both build the same field, which is harmless
+        int[] field = search(target);
+        synchronized (this) {
+            if (seen == version && grid.getLayoutVersion() == seen) fields.put(new Point(target), field);
+        }
+        return field;
+    }
+
+    /** Breadth-first search from the target over free cells. */
+    private int[] search(Point source) {
+        int rows = grid.getMaxRow();
+        int cols = grid.getMaxColumn();
+        int[] field = new int[rows * cols];
+        Arrays.fill(field, UNREACHABLE);
+        ArrayDeque<int[]> open = new ArrayDeque<>();
+        field[source.x * cols + source.y] = 0;
+        open.add(new int[] {source.x, source.y});
+        while (!open.isEmpty()) {
+            int[] cell = open.poll();
+            int d = field[cell[0] * cols + cell[1]];
+            for (int[] s : STEPS) {
+                int r = cell[0] + s[0];
+                int c = cell[1] + s[1];
+                if (!grid.isLocationFree(r, c) || field[r * cols + c] != UNREACHABLE) continue;
+                field[r * cols + c] = d + 1;
+                open.add(new int[] {r, c});
+            }
+        }
+        return field;
+    }
+}
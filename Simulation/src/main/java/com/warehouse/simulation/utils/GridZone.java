@@ -0,0 +1,64 @@
+package com.warehouse.simulation.utils;
+
+import java.awt.Point;
+
+/**
+ * Rectangular region of the warehouse grid (inclusive bounds), e.g. an aisle block
+ * or a pick zone. Coordinates use the same (row, column) convention as {@link WarehouseGrid}.
+ */
+public class GridZone {
+
+    private final String id;
+    private final int fromRow;
+    private final int fromColumn;
+    private final int toRow;
+    private final int toColumn;
+
+    public GridZone(String id, int fromRow, int fromColumn, int toRow, int toColumn) {
+        this.id = id;
+        this.fromRow = Math.min(fromRow, toRow);
+        this.fromColumn = Math.min(fromColumn, toColumn);
+        this.toRow = Math.max(fromRow, toRow);
+        this.toColumn = Math.max(fromColumn, toColumn);
+    }
+
+    public String getId() { return id; }
+    public int getFromRow() { return fromRow; }
+    public int getFromColumn() { return fromColumn; }
+    public int getToRow() { return toRow; }
+    public int getToColumn() { return toColumn; }
+
+    public boolean contains(int row, int column) {
+        return row >= fromRow && row <= toRow && column >= fromColumn && column <= toColumn;
+    }
+
+    public boolean contains(Point p) {
+        return p != null && contains(p.x, p.y);
+    }
+
+    public Point getCenter() {
+        return new Point((fromRow + toRow) / 2, (fromColumn + toColumn) / 2);
+    }
+
+    /** Manhattan distance from the point to the closest cell of this zone (0 if inside). */
+    public int distanceTo(Point p) {
+        int dr = Math.max(0, Math.max(fromRow - p.x, p.x - toRow));
+        int dc = Math.max(0, Math.max(fromColumn - p.y, p.y - toColumn));
+        return dr + dc;
+    }
+
+    /** True if the zones share an edge or overlap. */
+    public boolean isAdjacentTo(GridZone other) {
+        boolean rowsTouch = fromRow <= other.toRow + 1 && other.fromRow <= toRow + 1;
+        boolean colsTouch = fromColumn <= other.toColumn + 1 && other.fromColumn <= toColumn + 1;
+        boolean rowsOverlap = fromRow <= other.toRow && other.fromRow <= toRow;
+        boolean colsOverlap = fromColumn <= other.toColumn && other.fromColumn <= toColumn;
+        // touching on a side (not only at a corner)
+        return (rowsTouch && colsOverlap) || (colsTouch && rowsOverlap);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Zone %s [(%d,%d)-(%d,%d)]", id, fromRow, fromColumn, toRow, toColumn);
+    }
+}
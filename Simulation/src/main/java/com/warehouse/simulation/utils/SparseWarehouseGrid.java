@@ -0,0 +1,174 @@
+package com.warehouse.simulation.utils;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Tile-based grid for large, mostly empty floors.
+ *
+ * The floor is cut into square tiles. A tile that is entirely free or entirely
+ * {@link WarehouseGrid#OBSTACLE} is stored implicitly (one array slot), only tiles
+ * with mixed content get a cell array. A 10k x 10k yard with a few aisles of
+ * racks therefore costs a few megabytes instead of 100M object references.
+ *
+ * Same public API as {@link WarehouseGrid}, so it can be handed to {@link PathFinder}
+ * and the warehouse unchanged. Writes are serialized on the grid; reads take no lock,
+ * tiles and cells are atomic slots so a reader always sees a fully built tile.
+ */
+public class SparseWarehouseGrid extends WarehouseGrid {
+
+    public static final int DEFAULT_TILE_SIZE = 64;
+
+    /** Shared marker for a tile whose cells are all OBSTACLE. A null slot means all free. */
+    private static final Tile BLOCKED_TILE = new Tile(0);
+
+    private final int tileSize;
+    private final int tilesPerRow;
+    private final AtomicReferenceArray<Tile> tiles;
+
+    public SparseWarehouseGrid(int rows, int columns) {
+        this(rows, columns, DEFAULT_TILE_SIZE);
+    }
+
+    public SparseWarehouseGrid(int rows, int columns, int tileSize) {
+        super(rows, columns, false);
+        if (tileSize <= 0) throw new IllegalArgumentException("tileSize must be positive: " + tileSize);
+        this.tileSize = tileSize;
+        this.tilesPerRow = (columns + tileSize - 1) / tileSize;
+        int tileRows = (rows + tileSize - 1) / tileSize;
+        this.tiles = new AtomicReferenceArray<>(tileRows * tilesPerRow);
+    }
+
+    @Override
+    protected Object readCell(int row, int column) {
+        Tile t = tiles.get(tileIndex(row, column));
+        if (t == null) return null;
+        if (t == BLOCKED_TILE) return OBSTACLE;
+        return t.cells.get(cellIndex(row, column));
+    }
+
+    @Override
+    protected synchronized void writeCell(int row, int column, Object obj) {
+        int ti = tileIndex(row, column);
+        Tile t = tiles.get(ti);
+        if (t == null) {
+            if (obj == null) return;
+            t = new Tile(tileSize * tileSize);
+        } else if (t == BLOCKED_TILE) {
+            if (obj == OBSTACLE) return;
+            t = Tile.filled(tileSize * tileSize, OBSTACLE, cellsInTile(ti));
+        }
+        t.set(cellIndex(row, column), obj);
+        tiles.set(ti, collapse(t, ti));
+    }
+
+    /** Whole tiles inside the region are set implicitly; only the border tiles are touched cell by cell. */
+    @Override
+    protected synchronized void fillRegion(int fromRow, int fromColumn, int toRow, int toColumn, Object value) {
+        if (value != null && value != OBSTACLE) {
+            super.fillRegion(fromRow, fromColumn, toRow, toColumn, value);
+            return;
+        }
+        int r0 = Math.max(0, Math.min(fromRow, toRow));
+        int r1 = Math.min(getMaxRow() - 1, Math.max(fromRow, toRow));
+        int c0 = Math.max(0, Math.min(fromColumn, toColumn));
+        int c1 = Math.min(getMaxColumn() - 1, Math.max(fromColumn, toColumn));
+        if (r0 > r1 || c0 > c1) return;
+
+        for (int tr = r0 / tileSize; tr <= r1 / tileSize; tr++) {
+            for (int tc = c0 / tileSize; tc <= c1 / tileSize; tc++) {
+                int tileR0 = tr * tileSize;
+                int tileC0 = tc * tileSize;
+                int tileR1 = Math.min(tileR0 + tileSize, getMaxRow()) - 1;
+                int tileC1 = Math.min(tileC0 + tileSize, getMaxColumn()) - 1;
+                if (r0 <= tileR0 && r1 >= tileR1 && c0 <= tileC0 && c1 >= tileC1) {
+                    tiles.set(tr * tilesPerRow + tc, value == null ? null : BLOCKED_TILE);
+                } else {
+                    for (int r = Math.max(r0, tileR0); r <= Math.min(r1, tileR1); r++) {
+                        for (int c = Math.max(c0, tileC0); c <= Math.min(c1, tileC1); c++) {
+                            writeCell(r, c, value);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getTileCount() {
+        return tiles.length();
+    }
+
+    /** Number of tiles that currently hold their own cell array. */
+    public synchronized int getMaterializedTileCount() {
+        int n = 0;
+        for (int i = 0; i < tiles.length(); i++) {
+            Tile t = tiles.get(i);
+            if (t != null && t != BLOCKED_TILE) n++;
+        }
+        return n;
+    }
+
+    //-------- helpers ------------
+
+    private int tileIndex(int row, int column) {
+        return (row / tileSize) * tilesPerRow + (column / tileSize);
+    }
+
+    private int cellIndex(int row, int column) {
+        return (row % tileSize) * tileSize + (column % tileSize);
+    }
+
+    /** Number of in-bounds cells covered by a tile (edge tiles can be partial). */
+    private int cellsInTile(int ti) {
+        int tr = ti / tilesPerRow;
+        int tc = ti % tilesPerRow;
+        int h = Math.min(tileSize, getMaxRow() - tr * tileSize);
+        int w = Math.min(tileSize, getMaxColumn() - tc * tileSize);
+        return h * w;
+    }
+
+    private Tile collapse(Tile t, int ti) {
+        if (t.occupied == 0) return null;
+        if (t.obstacles == cellsInTile(ti)) return BLOCKED_TILE;
+        return t;
+    }
+
+    /**
+     * Materialized tile: cell array plus counters used to decide when it can collapse again.
+     * The counters are only touched under the grid's lock; the cells are read without it.
+     */
+    private static final class Tile {
+        final AtomicReferenceArray<Object> cells;
+        int occupied;
+        int obstacles;
+
+        Tile(int size) {
+            this.cells = new AtomicReferenceArray<>(size);
+        }
+
+        /**
+         * Expand an implicit BLOCKED tile. Only the first {@code inBounds} logical cells
+         * count, but out-of-bounds slots are never read so filling them all is harmless.
+         */
+        static Tile filled(int size, Object value, int inBounds) {
+            Tile t = new Tile(size);
+            for (int i = 0; i < size; i++) t.cells.lazySet(i, value);
+            t.occupied = inBounds;
+            t.obstacles = inBounds;
+            return t;
+        }
+
+        void set(int i, Object obj) {
+            Object prev = cells.get(i);
+            if (prev == obj) return;
+            if (prev != null) occupied--;
+            if (prev == OBSTACLE) obstacles--;
+            if (obj != null) occupied++;
+            if (obj == OBSTACLE) obstacles++;
+            cells.set(i, obj);
+        }
+    }
+}
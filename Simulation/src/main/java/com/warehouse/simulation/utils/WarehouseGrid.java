@@ -1,19 +1,43 @@
 package com.warehouse.simulation.utils;
 
 import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class WarehouseGrid {
-    
+
+    /** Marker placed in cells that are permanently blocked (walls, racks without an entity). */
+    public static final Object OBSTACLE = new Object() {
+        @Override
+        public String toString() { return "OBSTACLE"; }
+    };
+
     private final int rows;
     private final int columns;
     private Object[][] gridLayout;
-    
+    private final List<GridZone> zones = new CopyOnWriteArrayList<>();
+    // bumped on every change to the cells, so cached distances know when to go
+    private final AtomicLong layoutVersion = new AtomicLong();
+
     public WarehouseGrid(int rows, int columns) {
         this.rows = rows;
         this.columns = columns;
         this.gridLayout = new Object[rows][columns];
     }
-    
+
+    /**
+     * Constructor for subclasses that keep cells in their own storage
+     * (see {@link SparseWarehouseGrid}); no dense layout is allocated.
+     */
+    protected WarehouseGrid(int rows, int columns, boolean allocateDense) {
+        this.rows = rows;
+        this.columns = columns;
+        this.gridLayout = allocateDense ? new Object[rows][columns] : null;
+    }
+
     public boolean isWithinBounds(int row, int column) {
         return row >= 0 && row < this.rows && column >= 0 && column < this.columns;
     }
@@ -23,50 +47,139 @@ public class WarehouseGrid {
      */
     public boolean isLocationFree(int row, int column) {
         if (!isWithinBounds(row, column)) return false;
-        return this.gridLayout[row][column] == null;
+        return readCell(row, column) == null;
     }
 
     public boolean isLocationFree(Point p) {
         if (p == null) return false;
         return isLocationFree(p.x, p.y);
     }
-    
+
     //-------- place object methods --------------
-    
+
     public void placeObject(Object obj, int row, int column) {
-        if (isWithinBounds(row, column))
-            this.gridLayout[row][column] = obj;
+        if (isWithinBounds(row, column)) {
+            writeCell(row, column, obj);
+            layoutVersion.incrementAndGet();
+        }
     }
-    
+
     public void placeObject(Object obj, Point p) {
-        if (p == null) 
+        if (p == null)
             return; // exception later
         placeObject(obj, p.x, p.y);
     }
-    
+
+    /**
+     * Mark every cell of the rectangle [fromRow..toRow] x [fromColumn..toColumn] as {@link #OBSTACLE}.
+     * Coordinates outside the grid are clipped.
+     */
+    public void blockRegion(int fromRow, int fromColumn, int toRow, int toColumn) {
+        fillRegion(fromRow, fromColumn, toRow, toColumn, OBSTACLE);
+        layoutVersion.incrementAndGet();
+    }
+
+    /** Clear every cell of the rectangle (inclusive bounds, clipped to the grid). */
+    public void clearRegion(int fromRow, int fromColumn, int toRow, int toColumn) {
+        fillRegion(fromRow, fromColumn, toRow, toColumn, null);
+        layoutVersion.incrementAndGet();
+    }
+
+    protected void fillRegion(int fromRow, int fromColumn, int toRow, int toColumn, Object value) {
+        int r0 = Math.max(0, Math.min(fromRow, toRow));
+        int r1 = Math.min(rows - 1, Math.max(fromRow, toRow));
+        int c0 = Math.max(0, Math.min(fromColumn, toColumn));
+        int c1 = Math.min(columns - 1, Math.max(fromColumn, toColumn));
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                writeCell(r, c, value);
+            }
+        }
+    }
+
 
     //-------- get object methods ----------------
-    
+
     public Object getObjectAt(int row, int column) {
         if (!isWithinBounds(row, column))
             return null;
-        return this.gridLayout[row][column];
+        return readCell(row, column);
     }
-    
+
     public Object getObjectAt(Point p) {
         if (p == null)
             return null; // exception later
         return getObjectAt(p.x, p.y);
     }
-    
+
+    /** Changes whenever a cell is written through {@link #placeObject} or a region is filled. */
+    public long getLayoutVersion() {
+        return layoutVersion.get();
+    }
+
     //-------- get bounds of the grid ------------
-    
+
     public int getMaxRow() {
         return this.rows;
     }
-    
+
     public int getMaxColumn() {
         return this.columns;
     }
 
-}
\ No newline at end of file
+    //-------- zones ------------
+
+    /** Define a named rectangular zone (inclusive bounds, clipped to the grid). */
+    public GridZone defineZone(String id, int fromRow, int fromColumn, int toRow, int toColumn) {
+        GridZone z = new GridZone(id,
+                Math.max(0, fromRow), Math.max(0, fromColumn),
+                Math.min(rows - 1, toRow), Math.min(columns - 1, toColumn));
+        zones.add(z);
+        return z;
+    }
+
+    /** Replace the zones with an even zoneRows x zoneColumns partition of the grid. */
+    public List<GridZone> divideIntoZones(int zoneRows, int zoneColumns) {
+        zones.clear();
+        int zr = Math.max(1, zoneRows);
+        int zc = Math.max(1, zoneColumns);
+        List<GridZone> created = new ArrayList<>();
+        for (int i = 0; i < zr; i++) {
+            for (int j = 0; j < zc; j++) {
+                int r0 = i * rows / zr;
+                int r1 = (i + 1) * rows / zr - 1;
+                int c0 = j * columns / zc;
+                int c1 = (j + 1) * columns / zc - 1;
+                if (r1 < r0 || c1 < c0) continue;
+                created.add(defineZone("Z" + i + "-" + j, r0, c0, r1, c1));
+            }
+        }
+        return created;
+    }
+
+    public List<GridZone> getZones() {
+        return Collections.unmodifiableList(new ArrayList<>(zones));
+    }
+
+    /** First zone that contains the point, or null. */
+    public GridZone getZoneAt(Point p) {
+        if (p == null) return null;
+        for (GridZone z : zones) {
+            if (z.contains(p)) return z;
+        }
+        return null;
+    }
+
+    //-------- cell storage (overridden by other backends) ------------
+
+    /** Read a cell; coordinates are already bounds-checked. */
+    protected Object readCell(int row, int column) {
+        return this.gridLayout[row][column];
+    }
+
+    /** Write a cell (null clears it); coordinates are already bounds-checked. */
+    protected void writeCell(int row, int column, Object obj) {
+        this.gridLayout[row][column] = obj;
+    }
+
+}
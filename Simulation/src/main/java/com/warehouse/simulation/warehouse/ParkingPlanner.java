@@ -0,0 +1,204 @@
+package com.warehouse.simulation.warehouse;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.warehouse.simulation.exceptions.ExceptionHandler;
+import com.warehouse.simulation.tasks.TaskManager;
+import com.warehouse.simulation.tasks.Tasks;
+import com.warehouse.simulation.utils.GridZone;
+import com.warehouse.simulation.utils.WarehouseGrid;
+
+/**
+ * Spreads idle robots over several parking cells instead of one base point. Every cell gets
+ * a share of the fleet proportional to the pickup demand around it: recently completed
+ * pickups closest to it plus the pending tasks of its zone. Shares are recomputed every
+ * rebalance interval; a robot parked at a cell that is over its share is sent to one that
+ * is short the next time it asks.
+ */
+public class ParkingPlanner {
+
+    private static final long DEFAULT_REBALANCE_MS = 10_000;
+    // recent completed pickups that count as demand
+    private static final int DEMAND_WINDOW = 200;
+    // every cell keeps a little weight so an empty area is not left without robots for long
+    private static final double BASE_DEMAND = 0.5;
+
+    private final TaskManager taskManager;
+    private final WarehouseGrid grid;
+    private final List<Point> cells = new ArrayList<>();
+    private int[] quota = new int[0];
+    // parking cell index per robot that is parked or on its way to park
+    private final Map<String, Integer> assigned = new HashMap<>();
+    private int fleetSize = 0;
+    private long rebalanceMs = DEFAULT_REBALANCE_MS;
+    private long lastRebalance = 0;
+
+    public ParkingPlanner(TaskManager taskManager, WarehouseGrid grid) {
+        this.taskManager = taskManager;
+        this.grid = grid;
+    }
+
+    /** Replace the parking cells; robots are reassigned on their next request. */
+    public synchronized void setParkingCells(Collection<Point> parkingCells) {
+        cells.clear();
+        if (parkingCells != null) {
+            for (Point p : parkingCells) {
+                if (p != null && !cells.contains(p)) cells.add(new Point(p));
+            }
+        }
+        assigned.clear();
+        rebalance();
+    }
+
+    public synchronized List<Point> getParkingCells() {
+        List<Point> out = new ArrayList<>();
+        for (Point p : cells) out.add(new Point(p));
+        return out;
+    }
+
+    public synchronized boolean isEmpty() {
+        return cells.isEmpty();
+    }
+
+    /** Number of robots the shares are computed for. */
+    public synchronized void setFleetSize(int robots) {
+        this.fleetSize = Math.max(0, robots);
+        rebalance();
+    }
+
+    public synchronized void setRebalanceInterval(long ms) {
+        this.rebalanceMs = Math.max(0, ms);
+    }
+
+    /**
+     * Parking cell for a robot that is done with its work: the one it already has while that
+     * cell is within its share, otherwise the cell furthest below its share (nearest first).
+     * Returns null if no parking cells are configured.
+     */
+    public synchronized Point assign(String robotId, Point from) {
+        if (cells.isEmpty() || robotId == null) return null;
+        long now = System.currentTimeMillis();
+        if (now - lastRebalance >= rebalanceMs) rebalance();
+
+        int[] parked = new int[cells.size()];
+        for (Map.Entry<String, Integer> e : assigned.entrySet()) {
+            if (!e.getKey().equals(robotId)) parked[e.getValue()]++;
+        }
+        Integer current = assigned.get(robotId);
+        if (current != null && parked[current] < quota[current]) return new Point(cells.get(current));
+
+        int best = -1;
+        int bestRoom = Integer.MIN_VALUE;
+        int bestDist = Integer.MAX_VALUE;
+        for (int i = 0; i < cells.size(); i++) {
+            int room = quota[i] - parked[i];
+            int dist = distance(from, cells.get(i));
+            if (room > bestRoom || (room == bestRoom && dist < bestDist)) {
+                best = i;
+                bestRoom = room;
+                bestDist = dist;
+            }
+        }
+        // every cell is full: stay put rather than move to another full one
+        if (bestRoom <= 0 && current != null) best = current;
+        assigned.put(robotId, best);
+        return new Point(cells.get(best));
+    }
+
+    /** The robot left parking (it got work or went charging). */
+    public synchronized void release(String robotId) {
+        if (robotId != null) assigned.remove(robotId);
+    }
+
+    /** Recompute each cell's share of the fleet from the current demand. */
+    public synchronized void rebalance() {
+        lastRebalance = System.currentTimeMillis();
+        int n = cells.size();
+        if (n == 0) {
+            quota = new int[0];
+            return;
+        }
+        double[] demand = demand();
+        double total = 0.0;
+        for (double d : demand) total += d;
+        int robots = Math.max(fleetSize, assigned.size());
+
+        // largest remainder, so the shares add up to the fleet exactly
+        int[] q = new int[n];
+        double[] rest = new double[n];
+        int given = 0;
+        for (int i = 0; i < n; i++) {
+            double exact = robots * demand[i] / total;
+            q[i] = (int) Math.floor(exact);
+            rest[i] = exact - q[i];
+            given += q[i];
+        }
+        while (given < robots) {
+            int top = 0;
+            for (int i = 1; i < n; i++) if (rest[i] > rest[top]) top = i;
+            q[top]++;
+            rest[top] = -1.0;
+            given++;
+        }
+        quota = q;
+    }
+
+    /** Current share of the fleet per parking cell. */
+    public synchronized Map<Point, Integer> getQuotas() {
+        Map<Point, Integer> out = new LinkedHashMap<>();
+        for (int i = 0; i < cells.size(); i++) out.put(new Point(cells.get(i)), quota.length > i ? quota[i] : 0);
+        return out;
+    }
+
+    //-------- helpers ------------
+
+    private double[] demand() {
+        int n = cells.size();
+        double[] demand = new double[n];
+        java.util.Arrays.fill(demand, BASE_DEMAND);
+        if (taskManager == null) return demand;
+        try {
+            for (Tasks t : taskManager.getCompletedHistory().recent(DEMAND_WINDOW)) {
+                Point p = t.getDestination();
+                if (p != null) demand[nearest(p)] += 1.0;
+            }
+            if (grid != null) {
+                // pending work of a zone is shared by the parking cells inside it
+                Map<String, Integer> pending = taskManager.getPendingByZone();
+                Map<String, List<Integer>> cellsByZone = new HashMap<>();
+                for (int i = 0; i < n; i++) {
+                    GridZone z = grid.getZoneAt(cells.get(i));
+                    if (z != null) cellsByZone.computeIfAbsent(z.getId(), k -> new ArrayList<>()).add(i);
+                }
+                for (Map.Entry<String, List<Integer>> e : cellsByZone.entrySet()) {
+                    Integer count = pending.get(e.getKey());
+                    if (count == null || count == 0) continue;
+                    double share = (double) count / e.getValue().size();
+                    for (int i : e.getValue()) demand[i] += share;
+                }
+            }
+        } catch (Throwable e) {
+            ExceptionHandler.handle(e, "warehouse.ParkingPlanner.demand");
+        }
+        return demand;
+    }
+
+    private int nearest(Point p) {
+        int best = 0;
+        for (int i = 1; i < cells.size(); i++) {
+            if (distance(p, cells.get(i)) < distance(p, cells.get(best))) best = i;
+        }
+        return best;
+    }
+
+    private static int distance(Point a, Point b) {
+        if (a == null || b == null) return 0;
+        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    }
+}
@@ -2,15 +2,28 @@ package com.warehouse.simulation.warehouse;
 
 import java.awt.Point;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.io.IOException;
 
 
+import com.warehouse.simulation.charging.ChargingCurve;
+import com.warehouse.simulation.charging.ChargingPolicy;
+import com.warehouse.simulation.charging.ChargingScheduler;
 import com.warehouse.simulation.charging.ChargingStation;
+import com.warehouse.simulation.charging.ChargingWaitQueue;
+import com.warehouse.simulation.charging.SitePowerCap;
+import com.warehouse.simulation.charging.StationDirectory;
+import com.warehouse.simulation.charging.StationPool;
+import com.warehouse.simulation.exceptions.ExceptionHandler;
 import com.warehouse.simulation.robots.Robot;
 import com.warehouse.simulation.storage.Item;
+import com.warehouse.simulation.storage.Order;
 import com.warehouse.simulation.tasks.TaskManager;
 import com.warehouse.simulation.tasks.Tasks;
+import com.warehouse.simulation.tasks.WavePlanner;
+import com.warehouse.simulation.utils.DistanceFields;
+import com.warehouse.simulation.utils.GridZone;
 import com.warehouse.simulation.utils.PathFinder;
 import com.warehouse.simulation.utils.WarehouseGrid;
 
@@ -24,10 +37,29 @@ public class Warehouse {
     private List<Thread> robotThreads = new ArrayList<>();
     private boolean simulationRunning = false;
     private Random random = new Random();
-    private Queue<Robot> chargingQueue = new LinkedList<>();
+    // free stations per location and the robots waiting for one, lowest battery first
+    private final StationPool stationPool = new StationPool();
+    private final ChargingWaitQueue chargingQueue = new ChargingWaitQueue();
+    // stations by location and the driving distance to each location
+    private StationDirectory stationDirectory;
     private Point idleLocation;
     private Point dropOffLocation;
     private Point chargingLocation;
+    // who uses which station when; robots book a slot instead of queueing at a busy one
+    private ChargingScheduler chargingScheduler;
+    // travel time given to stations a robot cannot reach, so they are never booked first
+    private static final long UNREACHABLE_MS = 24L * 3600 * 1000;
+    // pickup cells (and the drop-off) whose distance fields the task manager keeps
+    private static final int TASK_DISTANCE_FIELDS = 64;
+    // charging policy new robots start with
+    private ChargingPolicy chargingPolicy = ChargingPolicy.fullCharge();
+    // how fast bays charge, and the site limit all bays share
+    private ChargingCurve chargingCurve = ChargingCurve.DEFAULT;
+    private final SitePowerCap sitePower = new SitePowerCap();
+    // spreads idle robots over parking cells; with none configured they all go to idleLocation
+    private ParkingPlanner parkingPlanner;
+    // buffers orders and releases them in waves; null while wave planning is off
+    private WavePlanner wavePlanner;
     
     public Warehouse() {
 
@@ -48,6 +80,9 @@ public class Warehouse {
     this.chargingLocation = new Point(2,1);
     createStations();
     createRobots();
+    connectTaskManager();
+    this.parkingPlanner = new ParkingPlanner(taskManager, grid);
+    this.parkingPlanner.setFleetSize(robots.size());
         
     }
 
@@ -69,20 +104,66 @@ public class Warehouse {
 
         createStations();
         createRobots();
+        connectTaskManager();
+        this.parkingPlanner = new ParkingPlanner(taskManager, grid);
+        this.parkingPlanner.setFleetSize(robots.size());
     }
     
     private void createStations() {
-        ChargingStation station1 = new ChargingStation(this.chargingLocation);
-        ChargingStation station2 = new ChargingStation(this.chargingLocation);
+        this.chargingScheduler = new ChargingScheduler(stations);
+        this.stationDirectory = new StationDirectory(grid, pathFinder);
 
-        stations.add(station1);
-        stations.add(station2);
+        // one station with two bays: two stations on one cell would share a grid cell
+        addStation(new ChargingStation(this.chargingLocation, 2));
+    }
 
-        grid.placeObject(station1, station1.getLocation());
-        grid.placeObject(station2, station2.getLocation());
-        
+    /** Put a charging station on the floor and make it available to robots. */
+    public void addStation(ChargingStation station) {
+        stations.add(station);
+        station.setCurve(chargingCurve);
+        grid.placeObject(station, station.getLocation());
+        chargingScheduler.addStation(station);
+        stationDirectory.add(station);
+        stationPool.add(station);
     }
-    
+
+    /**
+     * Add {@code perZone} stations to every zone, on the free cells closest to the zone's
+     * centre that are not parking cells or the drop-off. Returns the new stations.
+     */
+    public List<ChargingStation> distributeStations(int perZone) {
+        List<ChargingStation> added = new ArrayList<>();
+        Set<Point> avoid = new HashSet<>(parkingPlanner.getParkingCells());
+        for (GridZone z : grid.getZones()) {
+            for (int i = 0; i < perZone; i++) {
+                Point p = nearestFreeCell(z.getCenter(), avoid);
+                if (p == null) break;
+                ChargingStation station = new ChargingStation(p);
+                addStation(station);
+                added.add(station);
+            }
+        }
+        return added;
+    }
+
+    public StationDirectory getStationDirectory() { return this.stationDirectory; }
+
+    /**
+     * Let the task manager judge battery needs by the paths robots will really drive. The
+     * distances come from cached fields around each pickup and the drop-off; on floors too
+     * large for fields the Manhattan distance is used, and the energy model learns the rest.
+     */
+    private void connectTaskManager() {
+        if (taskManager == null) return;
+        DistanceFields distances = new DistanceFields(grid, TASK_DISTANCE_FIELDS);
+        taskManager.setPathLengths((from, to) -> {
+            int d = distances.distance(from, to);
+            if (d == DistanceFields.UNKNOWN) d = Math.abs(from.x - to.x) + Math.abs(from.y - to.y);
+            // a robot pays for every cell of its path, the start included
+            return d == DistanceFields.UNREACHABLE ? -1 : d + 1;
+        });
+    }
+
     private void createRobots() {
         // create 5 fixed robots all starting at the idle/base location
         for (int i = 0; i < 5; i++) {
@@ -93,6 +174,58 @@ public class Warehouse {
 
     }
 
+    /**
+     * Split the floor into zoneRows x zoneColumns zones and shard the task queue by them,
+     * so robots work in the zone they are in and only steal from neighbours when it runs dry.
+     */
+    public void configureZones(int zoneRows, int zoneColumns) {
+        grid.divideIntoZones(zoneRows, zoneColumns);
+        if (taskManager != null) taskManager.configureZones(grid);
+        // one parking cell per zone, as close to its centre as the floor allows
+        List<Point> parking = new ArrayList<>();
+        for (GridZone z : grid.getZones()) {
+            Point p = nearestFreeCell(z.getCenter(), Collections.emptySet());
+            if (p != null) parking.add(p);
+        }
+        configureParking(parking);
+    }
+
+    /** Park idle robots on these cells, shared out by pickup demand (empty = the idle location). */
+    public void configureParking(List<Point> cells) {
+        parkingPlanner.setParkingCells(cells);
+    }
+
+    public ParkingPlanner getParkingPlanner() { return this.parkingPlanner; }
+
+    /** Where an idle robot should wait for work; the idle location when no parking is set up. */
+    public Point getParkingLocation(Robot robot) {
+        Point p = null;
+        if (parkingPlanner != null && robot != null) p = parkingPlanner.assign(robot.getID(), robot.getLocation());
+        return p != null ? p : getIdleLocation();
+    }
+
+    /** The robot got work or went charging and no longer holds its parking cell. */
+    public void leaveParking(Robot robot) {
+        if (parkingPlanner != null && robot != null) parkingPlanner.release(robot.getID());
+    }
+
+    /** Closest cell to {@code p} (ring by ring) that is on the grid, not taken and not in {@code avoid}, or null. */
+    private Point nearestFreeCell(Point p, Set<Point> avoid) {
+        int maxRing = grid.getMaxRow() + grid.getMaxColumn();
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (int dx = -ring; dx <= ring; dx++) {
+                int dy = ring - Math.abs(dx);
+                Point a = new Point(p.x + dx, p.y + dy);
+                if (grid.isLocationFree(a) && !a.equals(dropOffLocation) && !avoid.contains(a)) return a;
+                Point b = new Point(p.x + dx, p.y - dy);
+                if (grid.isLocationFree(b) && !b.equals(dropOffLocation) && !avoid.contains(b)) return b;
+            }
+        }
+        return null;
+    }
+
+    public WarehouseGrid getGrid() { return this.grid; }
+
     public Point getIdleLocation() { return this.idleLocation; }
     public Point getDropOffLocation() { return this.dropOffLocation; }
     public Point getChargingLocation() { return this.chargingLocation; }
@@ -112,57 +245,232 @@ public class Warehouse {
 //     return null;
 //    }
 
-    public synchronized ChargingStation requestCharging(Robot robot) {
-        for (ChargingStation station : stations) {
-            if (station.isAvailable()) {
-                station.occupy(robot);
-                return station;
+    /**
+     * A station for a robot that needs charging now, occupied for it, or null. When null the
+     * robot either has a booked slot to leave for later (see {@link #getChargingBooking}) or
+     * was put in the charging queue. Takes no warehouse-wide lock.
+     */
+    public ChargingStation requestCharging(Robot robot) {
+        final long now = System.currentTimeMillis();
+        final String id = robot.getID();
+        final Point from = robot.getLocation();
+
+        ChargingScheduler.Slot booking = chargingScheduler.getBooking(id);
+        if (booking != null) {
+            ChargingStation booked = booking.getStation();
+            long arrive = now + travelMs(robot, from, booked.getLocation());
+            if (chargingScheduler.isFree(booked, now, arrive + robot.estimateServiceMs(booked), id) && stationPool.remove(booked)) {
+                return occupyFor(robot, booked);
             }
+            // not time to leave yet: wait for the slot rather than queue
+            if (booking.getDepartAt() > now) return null;
         }
 
-        if (!chargingQueue.contains(robot))
-            chargingQueue.add(robot);
-
+        // a free station nobody has booked for the time this robot needs it
+        Predicate<ChargingStation> fits = s -> chargingScheduler.isFree(s, now,
+                now + travelMs(robot, from, s.getLocation()) + robot.estimateServiceMs(s), id);
+        List<Point> nearestFirst = locationsByFinish(robot, from, stationDirectory.locationsByDistance(from));
+        ChargingStation station = stationPool.acquire(nearestFirst, fits);
+        if (station != null) return occupyFor(robot, station);
+
+        booking = chargingScheduler.book(id, from, now, s -> robot.estimateServiceMs(s), p -> travelMs(robot, from, p));
+        if (booking != null && booking.getDepartAt() > now) return null;
+
+        // the slot is due but its station is still taken: queue for whichever frees first
+        chargingQueue.add(robot);
+        // a station may have been let go between looking at the pool and joining the queue
+        station = stationPool.acquire(nearestFirst, fits);
+        if (station != null) {
+            if (chargingQueue.remove(robot)) return occupyFor(robot, station);
+            // a releasing robot picked us meanwhile; this one goes back
+            releaseStation(station, null);
+        }
         return null;
     }
 
-    public synchronized void leaveQueue(Robot robot) {
+    /**
+     * A free station at most {@code maxDistance} cells away for an idle robot that wants to top
+     * up, or null. Never queues or books: a top-up only happens when it costs nobody a slot.
+     */
+    public ChargingStation requestTopUp(Robot robot, int maxDistance) {
+        final long now = System.currentTimeMillis();
+        final Point from = robot.getLocation();
+        if (from == null) return null;
+        List<Point> nearby = new ArrayList<>();
+        for (Point p : stationDirectory.locationsByDistance(from)) {
+            if (stationDirectory.pathDistance(from, p) <= maxDistance) nearby.add(p);
+        }
+        ChargingStation station = stationPool.acquire(locationsByFinish(robot, from, nearby), s -> chargingScheduler.isFree(s, now,
+                now + travelMs(robot, from, s.getLocation()) + robot.estimateServiceMs(s), robot.getID()));
+        return station == null ? null : occupyFor(robot, station);
+    }
+
+    /** Use this charging policy for every robot, current and future. */
+    public void setChargingPolicy(ChargingPolicy policy) {
+        this.chargingPolicy = policy != null ? policy : ChargingPolicy.fullCharge();
+        for (Robot r : robots) r.setChargingPolicy(this.chargingPolicy);
+    }
+
+    public ChargingPolicy getChargingPolicy() { return this.chargingPolicy; }
+
+    /** Use this charging curve on every station, current and future. */
+    public void setChargingCurve(ChargingCurve curve) {
+        this.chargingCurve = curve != null ? curve : ChargingCurve.DEFAULT;
+        for (ChargingStation s : stations) s.setCurve(this.chargingCurve);
+    }
+
+    public ChargingCurve getChargingCurve() { return this.chargingCurve; }
+
+    /** Limit the power of all bays together, in percent per tick; 0 for no limit. */
+    public void setSitePowerCap(double cap) {
+        sitePower.setCap(cap);
+    }
+
+    public SitePowerCap getSitePowerCap() { return this.sitePower; }
+
+    /**
+     * Send orders from {@link #submitOrder} through a {@link WavePlanner} (on) or straight
+     * to the task manager (off, the default). Turning it off hands the buffered orders on.
+     */
+    public synchronized void setWavePlanning(boolean on) {
+        if (taskManager == null || on == (wavePlanner != null)) return;
+        if (on) {
+            wavePlanner = new WavePlanner(taskManager);
+            wavePlanner.setRobotCount(robots.size());
+            return;
+        }
+        List<Order> left = wavePlanner.shutdown();
+        wavePlanner = null;
+        try {
+            taskManager.createTasksFromOrders(left);
+        } catch (IOException e) {
+            ExceptionHandler.handle(e, "warehouse.Warehouse.setWavePlanning");
+        }
+    }
+
+    public synchronized WavePlanner getWavePlanner() { return this.wavePlanner; }
+
+    /**
+     * Hand an order to the floor: to the wave planner when wave planning is on, otherwise
+     * straight to the task manager. Returns false if the order was refused.
+     */
+    public boolean submitOrder(Order order) throws IOException {
+        if (order == null || taskManager == null) return false;
+        WavePlanner planner = getWavePlanner();
+        if (planner == null) return taskManager.createTasksFromOrders(order);
+        planner.submit(order);
+        return true;
+    }
+
+    /** Charge the robot gets this tick: what its battery takes, within its share of the site cap. */
+    public double chargeRate(Robot robot, ChargingStation station) {
+        double accept = station.acceptRate(robot);
+        return station.drawsSitePower() ? sitePower.draw(robot.getID(), accept) : accept;
+    }
+
+    private ChargingStation occupyFor(Robot robot, ChargingStation station) {
+        if (!station.occupy(robot)) {
+            stationPool.offer(station);
+            return null;
+        }
+        chargingScheduler.startCharging(robot.getID(), station, robot.estimateServiceMs(station));
+        return station;
+    }
+
+    /**
+     * The locations, soonest done first: driving there plus charging or swapping at the
+     * quickest station of the location. Ties keep the given order.
+     */
+    private List<Point> locationsByFinish(Robot robot, Point from, List<Point> locations) {
+        Map<Point, Long> finish = new HashMap<>();
+        for (Point p : locations) {
+            long service = Long.MAX_VALUE;
+            for (ChargingStation s : stationDirectory.getStationsAt(p)) service = Math.min(service, robot.estimateServiceMs(s));
+            finish.put(p, travelMs(robot, from, p) + service);
+        }
+        List<Point> out = new ArrayList<>(locations);
+        out.sort(Comparator.comparingLong(finish::get));
+        return out;
+    }
+
+    /**
+     * Book a charging slot ahead for a robot that will be down to {@code battery} at
+     * {@code readyAt}, leaving from {@code from}.
+     */
+    public ChargingScheduler.Slot bookCharging(Robot robot, Point from, long readyAt, double battery) {
+        if (robot == null || chargingScheduler == null) return null;
+        return chargingScheduler.book(robot.getID(), from, readyAt, s -> robot.estimateServiceMs(s, battery),
+                p -> travelMs(robot, from, p));
+    }
+
+    /** Driving time by path; a station that cannot be reached is never worth waiting for. */
+    private long travelMs(Robot robot, Point from, Point to) {
+        int cells = stationDirectory.pathDistance(from, to);
+        return cells == StationDirectory.UNREACHABLE ? UNREACHABLE_MS : robot.estimateTravelMs(cells);
+    }
+
+    /** The robot's booked charging slot, or null. */
+    public ChargingScheduler.Slot getChargingBooking(Robot robot) {
+        if (robot == null || chargingScheduler == null) return null;
+        return chargingScheduler.getBooking(robot.getID());
+    }
+
+    public ChargingScheduler getChargingScheduler() { return this.chargingScheduler; }
+
+    public void leaveQueue(Robot robot) {
         chargingQueue.remove(robot);
+        if (robot != null) chargingScheduler.cancel(robot.getID());
         // LOG IN THE FUTURE
     }
 
-    public synchronized void releaseStation(ChargingStation station) {
-        if (!chargingQueue.isEmpty()) {
-            // find the first robot in the queue that is still waiting-for-charge
-            Robot toAssign = null;
-            for (Robot candidate : chargingQueue) {
-                if (candidate == null) continue;
-                try {
-                    if (candidate.getState() == Robot.RobotState.WAITING_FOR_CHARGE) {
-                        candidate.assignStation(station);
-                        toAssign = candidate;
-                        break;
-                    }
-                } catch (Throwable ignore) {
-                    // ignore and continue
+    /** The station's (first) occupant is done with it. */
+    public void releaseStation(ChargingStation station) {
+        releaseStation(station, station.getOccupant());
+    }
+
+    /**
+     * {@code holder} is done with its bay (null: a bay taken from the pool but never
+     * occupied): hand it straight to the waiting robot with the lowest battery that would be
+     * done before the station's next booking, or free it.
+     */
+    public void releaseStation(ChargingStation station, Robot holder) {
+        if (holder != null) {
+            chargingScheduler.finishCharging(station, holder.getID());
+            sitePower.release(holder.getID());
+        }
+        boolean retried = false;
+        while (true) {
+            Robot next;
+            while ((next = pollWaiting(station)) != null) {
+                if (!station.handOver(holder, next)) break;
+                holder = next;
+                if (next.assignStation(station)) {
+                    chargingScheduler.startCharging(next.getID(), station, next.estimateServiceMs(station));
+                    return;
                 }
             }
-            if (toAssign != null) {
-                // remove only the selected robot from the queue and occupy
-                chargingQueue.remove(toAssign);
-                station.occupy(toAssign);
-            } else {
-                // no valid waiting robot found -> release station
-                station.release();
-            }
-        } else {
-            station.release();
+            if (holder != null) station.release(holder);
+            stationPool.offer(station);
+            // a robot may have queued after we looked: take the station back for it, once
+            if (retried || chargingQueue.isEmpty() || !stationPool.remove(station)) return;
+            retried = true;
+            holder = null;
         }
     }
+
+    private Robot pollWaiting(ChargingStation station) {
+        long now = System.currentTimeMillis();
+        return chargingQueue.poll(c -> c.getState() == Robot.RobotState.WAITING_FOR_CHARGE
+                && chargingScheduler.isFree(station, now, now + c.estimateServiceMs(station), c.getID()));
+    }
     
     /** Clear the charging queue (used when flushing data). */
-    public synchronized void clearChargingQueue() {
+    public void clearChargingQueue() {
         chargingQueue.clear();
+        chargingScheduler.clear();
+        sitePower.clear();
+        // stations were released by hand: their bays go back to the pool
+        stationPool.rebuild(stations);
     }
     
     public void startSimulation() {
@@ -208,7 +516,7 @@ public class Warehouse {
 
     /** Return snapshot of the charging queue */
     public List<Robot> getChargingQueueSnapshot() {
-        return new ArrayList<>(this.chargingQueue);
+        return chargingQueue.snapshot();
     }
 
     /**
@@ -220,14 +528,8 @@ public class Warehouse {
 
     public void task1_simulation(){
 
-        ChargingStation station3 = new ChargingStation(new Point(9, 0));
-        ChargingStation station4 = new ChargingStation(new Point(0, 0));
-
-        stations.add(station3);
-        stations.add(station4);
-
-        grid.placeObject(station3, station3.getLocation());
-        grid.placeObject(station4, station3.getLocation());
+        addStation(new ChargingStation(new Point(9, 0)));
+        addStation(new ChargingStation(new Point(0, 0)));
 
     Robot robot3 = new Robot(this, new Point(5, 5), taskManager, pathFinder);
     Robot robot4 = new Robot(this, new Point(0, 5), taskManager, pathFinder);
@@ -0,0 +1,80 @@
+package com.warehouse.simulation.charging;
+
+import org.junit.jupiter.api.Test;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChargingCurveTest {
+
+    @Test
+    void testAcceptRate_TapersAfterCvStart() {
+        ChargingCurve curve = ChargingCurve.ccCv(4.0, 80.0, 1.0);
+
+        assertEquals(4.0, curve.acceptRate(20.0), 1e-9);
+        assertEquals(2.0, curve.acceptRate(90.0), 1e-9);
+        assertEquals(1.0, curve.acceptRate(98.0), 1e-9);   // the floor
+        assertEquals(0.5, curve.acceptRate(99.5), 1e-9);   // never past full
+        assertEquals(0.0, curve.acceptRate(100.0), 1e-9);
+    }
+
+    @Test
+    void testTicksToCharge_FlatMatchesTheOldRate() {
+        assertEquals(13, ChargingCurve.DEFAULT.ticksToCharge(48.0, 100.0));
+        assertTrue(ChargingCurve.ccCv(4.0, 80.0, 1.0).ticksToCharge(48.0, 100.0) > 13);
+    }
+
+    @Test
+    void testAllocate_WaterFillsTheCap() {
+        Map<String, Double> demand = new LinkedHashMap<>();
+        demand.put("a", 1.0);
+        demand.put("b", 4.0);
+        demand.put("c", 4.0);
+
+        Map<String, Double> given = SitePowerCap.allocate(demand, 6.0);
+
+        assertEquals(1.0, given.get("a"), 1e-9);
+        assertEquals(2.5, given.get("b"), 1e-9);
+        assertEquals(2.5, given.get("c"), 1e-9);
+    }
+
+    @Test
+    void testSitePowerCap_SharesAndReleases() {
+        SitePowerCap cap = new SitePowerCap();
+        assertEquals(4.0, cap.draw("R1", 4.0), 1e-9);
+
+        cap.setCap(4.0);
+        cap.draw("R1", 4.0);
+        assertEquals(2.0, cap.draw("R2", 4.0), 1e-9);
+        assertEquals(4.0, cap.getDraw(), 1e-9);
+
+        cap.release("R1");
+        assertEquals(4.0, cap.draw("R2", 4.0), 1e-9);
+        assertEquals(1, cap.getActiveCount());
+    }
+
+    @Test
+    void testCapacityModel_CapNeverRaisesThroughput() {
+        ChargingCapacityModel.Config c = ChargingCapacityModel.Config.standard(12, 2, 2);
+
+        ChargingCapacityModel.Result free = ChargingCapacityModel.run(c);
+        ChargingCapacityModel.Result capped = ChargingCapacityModel.run(c.withSiteCap(3.0));
+
+        assertTrue(free.getCompleted() > 0);
+        assertTrue(capped.getThroughput() <= free.getThroughput());
+        assertTrue(capped.getPeakDraw() <= 3.0 + 1e-9);
+        assertTrue(capped.getMeanWaitTicks() >= free.getMeanWaitTicks());
+    }
+
+    @Test
+    void testCapacityModel_MoreBaysLessWaiting() {
+        ChargingCapacityModel.Config c = ChargingCapacityModel.Config.standard(12, 1, 1);
+
+        ChargingCapacityModel.Result one = ChargingCapacityModel.run(c);
+        ChargingCapacityModel.Result four = ChargingCapacityModel.run(c.withChargers(2, 2));
+
+        assertTrue(four.getMeanWaitTicks() <= one.getMeanWaitTicks());
+        assertTrue(four.getCompleted() >= one.getCompleted());
+    }
+}
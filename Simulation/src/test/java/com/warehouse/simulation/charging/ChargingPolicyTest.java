@@ -0,0 +1,73 @@
+package com.warehouse.simulation.charging;
+
+import org.junit.jupiter.api.Test;
+
+import com.warehouse.simulation.tasks.Tasks;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChargingPolicyTest {
+
+    @Test
+    void testFullCharge_KeepsOriginalBehaviour() {
+        ChargingPolicy p = ChargingPolicy.fullCharge();
+        assertFalse(p.isCharged(99.0));
+        assertTrue(p.isCharged(100.0));
+        assertFalse(p.wantsTopUp(20.0));
+        assertFalse(p.mayPreempt(99.0));
+    }
+
+    @Test
+    void testTargetLevel_IsClampedAndEndsSessionEarly() {
+        ChargingPolicy p = ChargingPolicy.targetLevel(80.0);
+        assertTrue(p.isCharged(80.0));
+        assertFalse(p.isCharged(79.0));
+
+        p.setTargetLevel(150.0);
+        assertEquals(100.0, p.getTargetLevel());
+    }
+
+    @Test
+    void testOpportunistic_OnlyWhenTopUpIsWorthIt() {
+        ChargingPolicy p = ChargingPolicy.opportunistic();
+        assertTrue(p.wantsTopUp(60.0));
+        assertFalse(p.wantsTopUp(75.0));
+
+        // target 75: a robot at 68 would gain too little to be worth the trip
+        p.setTargetLevel(75.0);
+        assertFalse(p.wantsTopUp(68.0));
+        assertTrue(p.wantsTopUp(60.0));
+    }
+
+    @Test
+    void testPreemptive_AboveLevelOnly() {
+        ChargingPolicy p = ChargingPolicy.preemptive();
+        assertEquals(Tasks.Priority.EXPRESS, p.getPreemptPriority());
+        assertTrue(p.mayPreempt(60.0));
+        assertFalse(p.mayPreempt(59.9));
+    }
+
+    @Test
+    void testStats_AvailabilityAndThroughput() {
+        ChargingPolicy.Stats s = new ChargingPolicy("test").getStats();
+        for (int i = 0; i < 8; i++) s.recordTick(false, false);
+        s.recordTick(true, false);
+        s.recordTick(true, true);
+        s.recordSession(true);
+        s.recordSession(false);
+        s.recordCharge(30.0);
+        s.recordCharge(-5.0);
+        s.recordCompleted(3);
+
+        assertEquals(10, s.getRobotTicks());
+        assertEquals(0.8, s.getAvailability(), 1e-9);
+        assertEquals(300.0, s.getThroughput(), 1e-9);
+        assertEquals(15.0, s.getEnergyPerSession(), 1e-9);
+        assertEquals(1, s.getTopUps());
+        assertEquals(1, s.getWaitingTicks());
+
+        s.reset();
+        assertEquals(0, s.getRobotTicks());
+        assertEquals(1.0, s.getAvailability(), 1e-9);
+    }
+}
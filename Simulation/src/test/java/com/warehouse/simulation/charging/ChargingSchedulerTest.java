@@ -0,0 +1,124 @@
+package com.warehouse.simulation.charging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.Point;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChargingSchedulerTest {
+
+    private ChargingStation near;
+    private ChargingStation far;
+    private ChargingScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        near = new ChargingStation(new Point(1, 0));
+        far = new ChargingStation(new Point(9, 0));
+        scheduler = new ChargingScheduler(List.of(near, far));
+    }
+
+    private static long travel(Point from, Point to) {
+        return (Math.abs(from.x - to.x) + Math.abs(from.y - to.y)) * 1000L;
+    }
+
+    @Test
+    void testBook_PicksSoonestStartAndLeavesInTime() {
+        long now = System.currentTimeMillis();
+        Point from = new Point(0, 0);
+        ChargingScheduler.Slot slot = scheduler.book("R1", from, now + 5_000, 20_000, p -> travel(from, p));
+
+        assertSame(near, slot.getStation());
+        assertTrue(slot.getStart() >= now + 6_000);
+        assertEquals(slot.getStart() - 1_000, slot.getDepartAt());
+        assertEquals(slot.getStart() + 20_000, slot.getEnd());
+        assertSame(slot, scheduler.getBooking("R1"));
+    }
+
+    @Test
+    void testBook_BusyStationPushesToTheOtherOrLater() {
+        long now = System.currentTimeMillis();
+        Point from = new Point(0, 0);
+        scheduler.startCharging("R0", near, 60_000);
+
+        // the far station is reachable long before the near one frees up
+        ChargingScheduler.Slot a = scheduler.book("R1", from, now, 10_000, p -> travel(from, p));
+        assertSame(far, a.getStation());
+
+        // with both taken the next slot starts when the first one ends
+        ChargingScheduler.Slot b = scheduler.book("R2", from, now, 10_000, p -> travel(from, p));
+        assertTrue(b.getStart() >= a.getEnd() || b.getStart() >= now + 60_000);
+        assertFalse(scheduler.isFree(b.getStation(), b.getStart(), b.getEnd(), "R3"));
+        assertTrue(scheduler.isFree(b.getStation(), b.getStart(), b.getEnd(), "R2"));
+    }
+
+    @Test
+    void testFinishCharging_FreesTheStationEarly() {
+        long now = System.currentTimeMillis();
+        scheduler.startCharging("R0", near, 60_000);
+        assertFalse(scheduler.isFree(near, now, now + 1_000, null));
+
+        scheduler.finishCharging(near);
+
+        assertTrue(scheduler.isFree(near, now, now + 1_000, null));
+    }
+
+    @Test
+    void testStartCharging_ReplacesBooking() {
+        long now = System.currentTimeMillis();
+        scheduler.book("R1", null, now + 30_000, 10_000, null);
+        assertEquals(1, scheduler.getBookingCount());
+
+        scheduler.startCharging("R1", far, 10_000);
+
+        assertNull(scheduler.getBooking("R1"));
+        assertEquals(0, scheduler.getBookingCount());
+        assertEquals(1, scheduler.getTimeline(far).size());
+    }
+
+    @Test
+    void testNoShow_BookingIsDropped() {
+        scheduler.setNoShowTimeout(0);
+        long past = System.currentTimeMillis() - 5_000;
+        scheduler.book("R1", null, past, 1_000, null);
+
+        // readyAt in the past is moved up to now, so the slot is due immediately
+        try { Thread.sleep(5); } catch (InterruptedException ignore) {}
+        assertNull(scheduler.getBooking("R1"));
+    }
+
+    @Test
+    void testCancel_RemovesBookingOnly() {
+        long now = System.currentTimeMillis();
+        scheduler.startCharging("R0", near, 10_000);
+        scheduler.book("R1", null, now, 10_000, null);
+
+        scheduler.cancel("R0");
+        scheduler.cancel("R1");
+
+        assertNull(scheduler.getBooking("R1"));
+        assertEquals(1, scheduler.getTimeline(near).size());
+    }
+
+    @Test
+    void testBays_OverlapUpToTheBayCount() {
+        ChargingStation twin = new ChargingStation(new Point(1, 0), 2);
+        ChargingScheduler two = new ChargingScheduler(List.of(twin));
+        long now = System.currentTimeMillis();
+        Point from = new Point(1, 0);
+        two.startCharging("R0", twin, 30_000);
+
+        ChargingScheduler.Slot a = two.book("R1", from, now, 10_000, p -> 0L);
+        assertTrue(a.getStart() < now + 1_000);
+        assertFalse(two.isFree(twin, now, now + 10_000, "R2"));
+
+        // both bays are taken until R1 is done
+        ChargingScheduler.Slot b = two.book("R2", from, now, 10_000, p -> 0L);
+        assertEquals(a.getEnd(), b.getStart());
+
+        two.finishCharging(twin, "R0");
+        assertTrue(two.isFree(twin, now, now + 10_000, "R2"));
+    }
+}
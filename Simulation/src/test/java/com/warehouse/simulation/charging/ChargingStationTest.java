@@ -81,6 +81,35 @@ public class ChargingStationTest {
         assertNull(station.getOccupant());
     }
     
+    @Test
+    void testMultiBay_TakesOneRobotPerBay() {
+        ChargingStation twin = new ChargingStation(new Point(2, 2), 2);
+
+        assertTrue(twin.occupy(dummyRobot));
+        assertTrue(twin.isAvailable());
+        assertTrue(twin.occupy(dummyRobot2));
+        assertFalse(twin.isAvailable());
+        assertEquals(2, twin.getOccupants().size());
+
+        assertTrue(twin.release(dummyRobot));
+        assertFalse(twin.release(dummyRobot));
+        assertEquals(1, twin.getFreeBays());
+        assertEquals(dummyRobot2, twin.getOccupant());
+    }
+
+    @Test
+    void testHandOver_PassesTheRobotsOwnBay() throws IOException {
+        ChargingStation twin = new ChargingStation(new Point(2, 2), 2);
+        twin.occupy(dummyRobot);
+        twin.occupy(dummyRobot2);
+        Robot third = new Robot(new MockTaskManager());
+
+        assertTrue(twin.handOver(dummyRobot, third));
+        assertTrue(twin.getOccupants().contains(third));
+        assertFalse(twin.getOccupants().contains(dummyRobot));
+        assertTrue(twin.getOccupants().contains(dummyRobot2));
+    }
+
     @Test
     void testGetID_ShouldBeUnique() {
         ChargingStation station2 = new ChargingStation(new Point(1, 1));
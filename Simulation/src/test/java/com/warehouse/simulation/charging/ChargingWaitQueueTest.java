@@ -0,0 +1,136 @@
+package com.warehouse.simulation.charging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.Point;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import com.warehouse.simulation.robots.Robot;
+import com.warehouse.simulation.tasks.TaskManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChargingWaitQueueTest {
+
+    /** Robot with its own id, so several can wait at once. */
+    static class NamedRobot extends Robot {
+        private final String name;
+        NamedRobot(TaskManager tm, String name, double battery) {
+            super(tm);
+            this.name = name;
+            setBatteryForTest(battery);
+        }
+        @Override public String getID() { return name; }
+    }
+
+    private TaskManager tm;
+    private ChargingWaitQueue queue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tm = new TaskManager("wait-queue-tm");
+        queue = new ChargingWaitQueue();
+    }
+
+    @Test
+    void testPoll_LowestBatteryFirstThenArrival() {
+        Robot a = new NamedRobot(tm, "A", 40.0);
+        Robot b = new NamedRobot(tm, "B", 10.0);
+        Robot c = new NamedRobot(tm, "C", 40.0);
+        queue.add(a);
+        queue.add(b);
+        queue.add(c);
+
+        assertEquals(List.of(b, a, c), queue.snapshot());
+        assertSame(b, queue.poll(null));
+        assertSame(a, queue.poll(null));
+        assertSame(c, queue.poll(null));
+        assertNull(queue.poll(null));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testAdd_TwiceKeepsOneEntry() {
+        Robot a = new NamedRobot(tm, "A", 20.0);
+        assertTrue(queue.add(a));
+        assertFalse(queue.add(a));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void testRemove_LeavesOthersInOrder() {
+        Robot a = new NamedRobot(tm, "A", 30.0);
+        Robot b = new NamedRobot(tm, "B", 20.0);
+        Robot c = new NamedRobot(tm, "C", 10.0);
+        queue.add(a);
+        queue.add(b);
+        queue.add(c);
+
+        assertTrue(queue.remove(b));
+        assertFalse(queue.remove(b));
+        assertFalse(queue.contains(b));
+        assertEquals(List.of(c, a), queue.snapshot());
+    }
+
+    @Test
+    void testPoll_SkipsRobotsNotAccepted() {
+        Robot a = new NamedRobot(tm, "A", 5.0);
+        Robot b = new NamedRobot(tm, "B", 15.0);
+        queue.add(a);
+        queue.add(b);
+
+        assertSame(b, queue.poll(r -> !r.getID().equals("A")));
+        assertEquals(List.of(a), queue.snapshot());
+    }
+
+    @Test
+    void testConcurrentPoll_HandsEveryRobotOutOnce() throws Exception {
+        int robots = 500;
+        for (int i = 0; i < robots; i++) queue.add(new NamedRobot(tm, "R" + i, i % 100));
+        Set<String> served = ConcurrentHashMap.newKeySet();
+        List<String> duplicates = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread th = new Thread(() -> {
+                try { start.await(); } catch (InterruptedException ignore) {}
+                Robot r;
+                while ((r = queue.poll(null)) != null) {
+                    if (!served.add(r.getID())) duplicates.add(r.getID());
+                }
+            });
+            threads.add(th);
+            th.start();
+        }
+        start.countDown();
+        for (Thread th : threads) th.join();
+
+        assertEquals(robots, served.size());
+        assertTrue(duplicates.isEmpty());
+    }
+
+    @Test
+    void testStationPool_NearestLocationFirstAndTakenOnce() {
+        StationPool pool = new StationPool();
+        ChargingStation far = new ChargingStation(new Point(9, 9));
+        ChargingStation near = new ChargingStation(new Point(1, 1));
+        pool.add(far);
+        pool.add(near);
+
+        assertSame(near, pool.acquire(new Point(0, 0), null));
+        assertFalse(pool.remove(near));
+        assertSame(far, pool.acquire(new Point(0, 0), null));
+        assertNull(pool.acquire(new Point(0, 0), null));
+
+        pool.offer(near);
+        assertEquals(1, pool.getFreeCount());
+        assertNull(pool.acquire(new Point(0, 0), s -> false));
+        assertTrue(pool.remove(near));
+    }
+}
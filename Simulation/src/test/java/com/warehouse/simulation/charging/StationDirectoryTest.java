@@ -0,0 +1,90 @@
+package com.warehouse.simulation.charging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.Point;
+import java.util.List;
+
+import com.warehouse.simulation.utils.PathFinder;
+import com.warehouse.simulation.utils.WarehouseGrid;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StationDirectoryTest {
+
+    private WarehouseGrid grid;
+    private StationDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        grid = new WarehouseGrid(10, 10);
+        directory = new StationDirectory(grid, new PathFinder(grid));
+    }
+
+    private ChargingStation place(Point p) {
+        ChargingStation s = new ChargingStation(p);
+        grid.placeObject(s, p);
+        directory.add(s);
+        return s;
+    }
+
+    @Test
+    void testPathDistance_OpenFloorIsManhattan() {
+        place(new Point(5, 5));
+        assertEquals(0, directory.pathDistance(new Point(5, 5), new Point(5, 5)));
+        assertEquals(7, directory.pathDistance(new Point(1, 2), new Point(5, 5)));
+    }
+
+    @Test
+    void testLocationsByDistance_WallMakesManhattanNearestFarther() {
+        // a wall in column 3 from row 0 to row 8: (0,4) is 2 cells away as the crow flies
+        // but the robot at (0,2) has to go round the end of the wall
+        grid.blockRegion(0, 3, 8, 3);
+        place(new Point(0, 4));
+        place(new Point(6, 0));
+
+        List<Point> order = directory.locationsByDistance(new Point(0, 2));
+
+        assertEquals(new Point(6, 0), order.get(0));
+        assertEquals(new Point(0, 4), order.get(1));
+        assertEquals(8, directory.pathDistance(new Point(0, 2), new Point(6, 0)));
+        assertEquals(20, directory.pathDistance(new Point(0, 2), new Point(0, 4)));
+    }
+
+    @Test
+    void testPathDistance_StartCellTakenStillMeasured() {
+        place(new Point(0, 0));
+        grid.placeObject("robot", new Point(0, 3));
+        assertEquals(3, directory.pathDistance(new Point(0, 3), new Point(0, 0)));
+    }
+
+    @Test
+    void testUnreachableStation_IsLeftOut() {
+        grid.blockRegion(0, 5, 9, 5);
+        place(new Point(0, 9));
+        assertEquals(StationDirectory.UNREACHABLE, directory.pathDistance(new Point(0, 0), new Point(0, 9)));
+        assertTrue(directory.locationsByDistance(new Point(0, 0)).isEmpty());
+    }
+
+    @Test
+    void testInvalidate_PicksUpNewWalls() {
+        place(new Point(0, 9));
+        assertEquals(9, directory.pathDistance(new Point(0, 0), new Point(0, 9)));
+
+        grid.blockRegion(0, 5, 8, 5);
+        directory.invalidate();
+
+        assertEquals(27, directory.pathDistance(new Point(0, 0), new Point(0, 9)));
+    }
+
+    @Test
+    void testStationsGroupedByLocation() {
+        ChargingStation a = place(new Point(2, 1));
+        ChargingStation b = place(new Point(2, 1));
+        place(new Point(7, 7));
+
+        assertEquals(3, directory.size());
+        assertEquals(2, directory.getLocations().size());
+        assertEquals(List.of(a, b), directory.getStationsAt(new Point(2, 1)));
+    }
+}
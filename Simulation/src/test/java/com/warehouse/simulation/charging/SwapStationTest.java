@@ -0,0 +1,116 @@
+package com.warehouse.simulation.charging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.awt.Point;
+import java.io.IOException;
+import java.util.List;
+
+import com.warehouse.simulation.robots.Robot;
+import com.warehouse.simulation.tasks.TaskManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SwapStationTest {
+
+    /** A task manager that never hands out work; the robots here only visit the station. */
+    private static class StubTaskManager extends TaskManager {
+        StubTaskManager() throws IOException { super("swap-test-tm"); }
+    }
+
+    private Robot robot;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        robot = new Robot(new StubTaskManager());
+        robot.setBatteryForTest(40.0);
+    }
+
+    /** A station whose packs only recharge when the test says so. */
+    private static SwapStation station(int packs, int swapTicks, double rate) {
+        return new SwapStation(new Point(3, 3), 1, packs, swapTicks, rate, Long.MAX_VALUE / 4);
+    }
+
+    @Test
+    void testSwap_GivesAFullPackAfterTheSwapTime() {
+        SwapStation s = station(2, 3, 1.0);
+        assertTrue(s.occupy(robot));
+
+        assertEquals(0.0, s.acceptRate(robot), 1e-9);
+        assertEquals(0.0, s.acceptRate(robot), 1e-9);
+        assertEquals(60.0, s.acceptRate(robot), 1e-9);
+
+        assertEquals(1, s.getSwapCount());
+        assertEquals(1, s.getReadyPacks(100.0));
+        assertFalse(s.drawsSitePower());
+    }
+
+    @Test
+    void testSwap_WaitsOnTheLaneWithoutAChargedPack() throws IOException {
+        SwapStation s = station(1, 1, 10.0);
+        Robot other = new Robot(new StubTaskManager());
+        other.setBatteryForTest(30.0);
+        s.occupy(other);
+        s.acceptRate(other);                      // takes the only full pack, leaves a 30% one
+        s.release(other);
+
+        s.occupy(robot);
+        assertEquals(0.0, s.acceptRate(robot), 1e-9);
+        assertEquals(1, s.getStockoutCount());
+        assertEquals(1 + 7, s.ticksToService(40.0, 100.0));
+
+        s.advance(7);
+        assertEquals(60.0, s.acceptRate(robot), 1e-9);
+        assertEquals(40.0, s.getPacks()[0], 1e-9);
+    }
+
+    @Test
+    void testRelease_ForgetsAHalfDoneSwap() {
+        SwapStation s = station(1, 3, 1.0);
+        s.occupy(robot);
+        s.acceptRate(robot);
+        s.acceptRate(robot);
+        s.release(robot);
+
+        s.occupy(robot);
+        assertEquals(0.0, s.acceptRate(robot), 1e-9);
+        assertEquals(0, s.getSwapCount());
+    }
+
+    @Test
+    void testSwapStation_IsAStationForThePoolAndScheduler() {
+        SwapStation s = station(2, 2, 1.0);
+        StationPool pool = new StationPool();
+        pool.add(s);
+        ChargingScheduler scheduler = new ChargingScheduler(List.of(s));
+
+        assertSame(s, pool.acquire(new Point(0, 0), null));
+        assertNotNull(scheduler.book("R1", new Point(0, 0), System.currentTimeMillis(), st -> 2_000L, p -> 0L));
+    }
+
+    @Test
+    void testBook_PrefersTheStationThatIsDoneFirst() {
+        ChargingStation plug = new ChargingStation(new Point(1, 0));
+        SwapStation swap = station(2, 2, 1.0);
+        ChargingScheduler scheduler = new ChargingScheduler(List.of(plug, swap));
+        long now = System.currentTimeMillis();
+
+        // the swap station is further away but done long before a full charge
+        ChargingScheduler.Slot slot = scheduler.book("R1", new Point(0, 0), now,
+                st -> st instanceof SwapStation ? 2_000L : 15_000L,
+                p -> p.equals(plug.getLocation()) ? 1_000L : 5_000L);
+
+        assertSame(swap, slot.getStation());
+    }
+
+    @Test
+    void testCapacityModel_ComparesSwapAndPlugOnOneWorkload() {
+        ChargingCapacityModel.Config c = ChargingCapacityModel.Config.standard(20, 1, 2);
+
+        List<ChargingCapacityModel.Result> both = ChargingCapacityModel.compareSwap(c, 12, 2, 3.0);
+
+        assertFalse(both.get(0).getConfig().isSwap());
+        assertTrue(both.get(1).getConfig().isSwap());
+        assertTrue(both.get(1).getThroughput() >= both.get(0).getThroughput());
+    }
+}
@@ -0,0 +1,74 @@
+package com.warehouse.simulation.logging;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncLogWriterTest {
+
+    @Test
+    void testFlush_WritesLinesInOrderAndCreatesDirectories() throws IOException {
+        Path dir = Files.createTempDirectory("async-log");
+        AsyncLogWriter w = new AsyncLogWriter(dir);
+        for (int i = 0; i < 100; i++) w.append("RobotLogs/R1.log", "line " + i);
+
+        assertTrue(w.flush(5_000));
+
+        List<String> lines = Files.readAllLines(dir.resolve("RobotLogs/R1.log"));
+        assertEquals(100, lines.size());
+        assertEquals("line 0", lines.get(0));
+        assertEquals("line 99", lines.get(99));
+        assertTrue(w.getBatchCount() < 100);
+        w.shutdown();
+    }
+
+    @Test
+    void testShutdown_DrainsEveryThreadsLines() throws Exception {
+        Path dir = Files.createTempDirectory("async-log");
+        // long interval and large batches: nothing is written before the shutdown
+        AsyncLogWriter w = new AsyncLogWriter(dir, 4, 1 << 20, 60_000);
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int id = t;
+            Thread p = new Thread(() -> {
+                for (int i = 0; i < 500; i++) w.append("f" + id + ".log", "p" + id + " " + i);
+            });
+            producers.add(p);
+            p.start();
+        }
+        for (Thread p : producers) p.join();
+
+        w.shutdown();
+
+        for (int t = 0; t < 4; t++) assertEquals(500, Files.readAllLines(dir.resolve("f" + t + ".log")).size());
+        assertEquals(2000, w.getWrittenCount());
+        assertEquals(0, w.getOpenFileCount());
+
+        // after the shutdown lines are still written, in place
+        w.append("f0.log", "late");
+        List<String> f0 = Files.readAllLines(dir.resolve("f0.log"));
+        assertEquals("late", f0.get(f0.size() - 1));
+    }
+
+    @Test
+    void testOpenChannels_StayWithinTheLru() throws IOException {
+        Path dir = Files.createTempDirectory("async-log");
+        AsyncLogWriter w = new AsyncLogWriter(dir, 3, 64, 1);
+        for (int i = 0; i < 10; i++) {
+            w.append("file" + i + ".log", "x");
+            w.flush(5_000);
+        }
+
+        assertTrue(w.getOpenFileCount() <= 3);
+        for (int i = 0; i < 10; i++) assertTrue(Files.exists(dir.resolve("file" + i + ".log")));
+
+        w.close("file9.log");
+        assertTrue(Files.deleteIfExists(dir.resolve("file9.log")));
+        w.shutdown();
+    }
+}
@@ -9,6 +9,7 @@ import java.io.IOException;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.List;
+import com.warehouse.simulation.charging.ChargingPolicy;
 import com.warehouse.simulation.charging.ChargingStation;
 import com.warehouse.simulation.tasks.TaskManager;
 import com.warehouse.simulation.tasks.Tasks;
@@ -74,6 +75,11 @@ class MockWarehouse extends Warehouse {
     public synchronized void releaseStation(ChargingStation station) { 
     	stationWasReleased = true;
     	}
+
+    @Override 
+    public synchronized void releaseStation(ChargingStation station, Robot holder) { 
+    	stationWasReleased = true;
+    	}
     
     @Override 
     public synchronized void leaveQueue(Robot robot) {
@@ -378,4 +384,65 @@ public class RobotTest {
    
 
 
+    @Test
+    void testUpdateState_WhenChargingReachesTargetLevel_LeavesStation() {
+        robot.setChargingPolicy(ChargingPolicy.targetLevel(80.0));
+        robot.setStateForTest(RobotState.CHARGING);
+        robot.setStationForTest(new ChargingStation(new Point(9,9)));
+        robot.setBatteryForTest(82.0);
+
+        robot.updateState();
+
+        assertEquals(RobotState.MOVING_TO_IDLE_POINT, robot.getState());
+        assertTrue(mockWH.stationWasReleased);
+        assertEquals(82.0, robot.getBattery());
+    }
+
+    @Test
+    void testUpdateState_WhenChargingAndExpressTaskWaits_StopsCharging() {
+        ChargingPolicy policy = ChargingPolicy.preemptive();
+        robot.setChargingPolicy(policy);
+        robot.setStateForTest(RobotState.CHARGING);
+        robot.setStationForTest(new ChargingStation(new Point(9,9)));
+        robot.setBatteryForTest(70.0);
+        Tasks express = new Tasks();
+        express.setPriority(Tasks.Priority.EXPRESS);
+        mockTM.addTask(express);
+
+        robot.updateState();
+
+        assertEquals(RobotState.IDLE, robot.getState());
+        assertTrue(mockWH.stationWasReleased);
+        assertEquals(1, policy.getStats().getPreemptions());
+    }
+
+    @Test
+    void testUpdateState_WhenChargingBelowPreemptLevel_KeepsCharging() {
+        robot.setChargingPolicy(ChargingPolicy.preemptive());
+        robot.setStateForTest(RobotState.CHARGING);
+        robot.setBatteryForTest(55.0);
+        Tasks express = new Tasks();
+        express.setPriority(Tasks.Priority.EXPRESS);
+        mockTM.addTask(express);
+
+        robot.updateState();
+
+        assertEquals(RobotState.CHARGING, robot.getState());
+    }
+
+    @Test
+    void testPerformAction_RecordsChargingStats() {
+        ChargingPolicy policy = ChargingPolicy.fullCharge();
+        robot.setChargingPolicy(policy);
+        robot.setStateForTest(RobotState.CHARGING);
+        robot.setBatteryForTest(50.0);
+
+        robot.performAction();
+        robot.performAction();
+
+        assertEquals(8.0, policy.getStats().getEnergyCharged(), 1e-9);
+        assertEquals(2, policy.getStats().getChargingTicks());
+        assertEquals(2, policy.getStats().getRobotTicks());
+    }
+
 }
@@ -6,9 +6,11 @@ import com.warehouse.simulation.app.model.OrdersStore;
 import com.warehouse.simulation.app.model.StorageUnitsStore;
 import com.warehouse.simulation.storage.Item;
 import com.warehouse.simulation.storage.Order;
+import com.warehouse.simulation.storage.StorageUnit;
 import com.warehouse.simulation.tasks.TaskManager;
 import com.warehouse.simulation.tasks.Tasks;
 import org.junit.jupiter.api.AfterEach;
+import java.awt.Point;
 import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -186,4 +188,52 @@ class TaskManagerTest {
         assertEquals(0, taskManager.getPendingTasks().size(), "No tasks should be pending");
         assertEquals(0, taskManager.getActiveTaskCount(), "No tasks should be active");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testOrderCompletion_RemovesItemsFromTheirUnitOnlyOnce() throws IOException {
+        StorageUnit su = new StorageUnit("SU-T", 10.0, new Point(2, 2));
+        Item item1 = new Item("I1", "Item 1", 1.0);
+        Item item2 = new Item("I2", "Item 2", 1.0);
+        su.addItems(item1);
+        su.addItems(item2);
+        StorageUnitsStore.getInstance().getUnits().add(su);
+        // item1 knows its unit, item2 has to be found through the item index
+        item1.setStorageUnitId("SU-T");
+
+        Order order = new Order("O-IDX");
+        order.addItem(item1);
+        order.addItem(item2);
+        OrdersStore.getInstance().getOrders().add(order);
+        taskManager.createTasksFromOrders(order);
+
+        Tasks t1 = taskManager.robotGetTask();
+        taskManager.completeTask(t1);
+        // completing the same task twice must not count down the order again
+        taskManager.completeTask(t1);
+        assertEquals(Order.Status.PENDING, order.getStatus());
+        assertEquals(2, su.getCurrentItemCount());
+
+        taskManager.completeTask(taskManager.robotGetTask());
+
+        assertEquals(Order.Status.SHIPPED, order.getStatus());
+        assertEquals(0, su.getCurrentItemCount());
+        assertNull(StorageUnitsStore.getInstance().findUnitForItem("I2"));
+    }
+
+    @Test
+    void testStorageUnitsStore_RemoveItemDropsOnlyItsIndexEntry() {
+        StorageUnitsStore sus = StorageUnitsStore.getInstance();
+        StorageUnit su = new StorageUnit("SU-R", 10.0, new Point(3, 3));
+        su.addItems(new Item("R1", "Item 1", 1.0));
+        su.addItems(new Item("R2", "Item 2", 1.0));
+        sus.getUnits().add(su);
+        assertSame(su, sus.findUnitForItem("R1"));
+
+        assertTrue(sus.removeItem(null, "R1"));
+        assertFalse(sus.removeItem("SU-R", "R1"));
+
+        assertNull(sus.findUnitForItem("R1"));
+        assertSame(su, sus.findUnitForItem("R2"));
+        assertEquals(1, su.getCurrentItemCount());
+    }
+}
@@ -0,0 +1,103 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.io.IOException;
+import java.util.Random;
+
+import com.warehouse.simulation.storage.Item;
+
+public class AssignmentSolverTest {
+
+    private static final double INF = Double.POSITIVE_INFINITY;
+
+    private static double total(double[][] cost, int[] match) {
+        double sum = 0;
+        for (int i = 0; i < match.length; i++) {
+            if (match[i] >= 0) sum += cost[i][match[i]];
+        }
+        return sum;
+    }
+
+    private static int assignedCount(int[] match) {
+        int n = 0;
+        for (int m : match) if (m >= 0) n++;
+        return n;
+    }
+
+    @Test
+    public void testHungarian_FindsOptimumWhereGreedyFails() {
+        // greedy row-by-row would give row 0 -> col 0 (1) and row 1 -> col 1 (100)
+        double[][] cost = {
+                {1, 2},
+                {2, 100}
+        };
+
+        int[] match = AssignmentSolver.hungarian(cost);
+
+        assertEquals(1, match[0]);
+        assertEquals(0, match[1]);
+        assertEquals(4.0, total(cost, match));
+    }
+
+    @Test
+    public void testHungarian_SkipsInfeasiblePairsAndRectangularShapes() {
+        double[][] cost = {
+                {INF, INF, INF},
+                {5, INF, 1},
+        };
+
+        int[] match = AssignmentSolver.hungarian(cost);
+
+        assertEquals(-1, match[0]);
+        assertEquals(2, match[1]);
+
+        // more robots than tasks
+        double[][] tall = {{3}, {1}, {2}};
+        int[] m2 = AssignmentSolver.hungarian(tall);
+        assertEquals(1, assignedCount(m2));
+        assertEquals(0, m2[1]);
+    }
+
+    @Test
+    public void testAuction_MatchesHungarianOnIntegerCosts() {
+        Random rnd = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            int n = 2 + rnd.nextInt(15);
+            int m = n + rnd.nextInt(10);
+            double[][] cost = new double[n][m];
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < m; j++) {
+                    cost[i][j] = rnd.nextInt(10) == 0 ? INF : rnd.nextInt(50);
+                }
+            }
+
+            int[] h = AssignmentSolver.hungarian(cost);
+            int[] a = AssignmentSolver.auction(cost);
+
+            assertEquals(assignedCount(h), assignedCount(a), "same number of assignments");
+            assertEquals(total(cost, h), total(cost, a), 1e-9);
+        }
+    }
+
+    @Test
+    public void testDispatchWindow_AssignsGloballyCheapestPairs() throws IOException {
+        TaskManager tm = new TaskManager("TM-window");
+        tm.setDispatchWindow(60_000);
+        tm.addTask(new Tasks("near-both", new Point(5, 0), new Item("I1", "A", 1.0)));
+        tm.addTask(new Tasks("only-r2", new Point(9, 0), new Item("I2", "B", 1.0)));
+
+        // R1 at (0,0) and R2 at (10,0). Greedy R1 would take "near-both" but so
+        // does the optimum; R2 must then get the task right next to it.
+        assertNull(tm.robotGetTask("R1", new Point(0, 0), 100.0));
+        assertNull(tm.robotGetTask("R2", new Point(10, 0), 100.0));
+
+        assertEquals(2, tm.runDispatchWindow());
+        assertEquals("near-both", tm.robotGetTask("R1", new Point(0, 0), 100.0).getId());
+        assertEquals("only-r2", tm.robotGetTask("R2", new Point(10, 0), 100.0).getId());
+        assertEquals(2, tm.getActiveTaskCount());
+        assertEquals(0, tm.getPendingTasks().size());
+    }
+}
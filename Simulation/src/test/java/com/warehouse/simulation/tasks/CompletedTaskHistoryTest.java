@@ -0,0 +1,58 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.warehouse.simulation.storage.Item;
+
+public class CompletedTaskHistoryTest {
+
+    private static Tasks finished(String id, Tasks.TaskStatus status) {
+        Tasks t = new Tasks(id, new Point(2, 3), new Item("I-" + id, "Thing", 2.0));
+        t.setStatus(status);
+        return t;
+    }
+
+    @Test
+    public void testRing_KeepsNewestAndCountsEverything() {
+        CompletedTaskHistory h = new CompletedTaskHistory(3, null);
+        for (int i = 0; i < 5; i++) h.record(finished("t" + i, Tasks.TaskStatus.COMPLETED));
+        h.record(finished("bad", Tasks.TaskStatus.FAILED));
+
+        assertEquals(3, h.size());
+        assertEquals(6, h.getTotalCount());
+        List<Tasks> kept = h.snapshot();
+        assertEquals("t3", kept.get(0).getId());
+        assertEquals("bad", kept.get(2).getId());
+        assertEquals("t4", h.recent(2).get(0).getId());
+
+        CompletedTaskHistory.Summary s = h.getSummary();
+        assertEquals(5, s.getCompleted());
+        assertEquals(1, s.getFailed());
+        assertEquals(3, s.getArchived());
+        assertEquals(12.0, s.getTotalWeight(), 1e-9);
+    }
+
+    @Test
+    public void testArchive_HoldsEvictedTasksInOrder() throws Exception {
+        Path dir = Files.createTempDirectory("history");
+        Path archive = dir.resolve("sub/completed.archive");
+        CompletedTaskHistory h = new CompletedTaskHistory(2, archive);
+        for (int i = 0; i < 5; i++) h.record(finished("t" + i, Tasks.TaskStatus.COMPLETED));
+
+        List<String> lines = h.readArchive();
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains(";t0;COMPLETED;"));
+        assertTrue(lines.get(2).contains(";t2;"));
+
+        h.clear();
+        assertEquals(0, h.size());
+        assertEquals(0, h.getTotalCount());
+        assertEquals(3, h.readArchive().size(), "archive survives clear");
+    }
+}
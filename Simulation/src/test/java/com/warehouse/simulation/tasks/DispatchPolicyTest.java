@@ -0,0 +1,78 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.List;
+
+import com.warehouse.simulation.storage.Item;
+
+public class DispatchPolicyTest {
+
+    private static Tasks task(String id, int x, int y) {
+        return new Tasks(id, new Point(x, y), new Item("I-" + id, "Thing", 1.0));
+    }
+
+    private static ZonedTaskPool pool(Tasks... tasks) {
+        ZonedTaskPool pool = new ZonedTaskPool();
+        for (Tasks t : tasks) pool.add(t);
+        return pool;
+    }
+
+    private static DispatchPolicy.Request at(int x, int y, double reach) {
+        return new DispatchPolicy.Request("R1", new Point(x, y), 100.0, null, reach);
+    }
+
+    @Test
+    public void testBuiltInPolicies_PickAsNamed() {
+        Tasks far = task("far", 9, 9);
+        Tasks near = task("near", 1, 1);
+
+        assertSame(far, new FifoDispatchPolicy().select(pool(far, near), at(0, 0, 100)));
+        assertSame(near, new NearestDispatchPolicy().select(pool(far, near), at(0, 0, 100)));
+        assertSame(near, new CostMatrixDispatchPolicy().select(pool(far, near), at(0, 0, 100)));
+        assertNull(new BatteryAwareDispatchPolicy().select(pool(far), at(0, 0, 5)), "out of reach");
+    }
+
+    @Test
+    public void testFifoCost_ExcludesUnreachableAndPrefersNearerRobot() {
+        Tasks t = task("t", 9, 9);
+        ZonedTaskPool pool = pool(t);   // fixes the task's schedule rank
+        FifoDispatchPolicy fifo = new FifoDispatchPolicy();
+
+        assertEquals(Double.POSITIVE_INFINITY, fifo.cost(at(0, 0, 5), t));
+        assertTrue(fifo.cost(at(8, 8, 100), t) < fifo.cost(at(0, 0, 100), t), "same rank: the nearer robot is cheaper");
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testTaskManager_UsesConfiguredPolicy() throws Exception {
+        TaskManager tm = new TaskManager("TM-policy");
+        Tasks far = task("far", 9, 9);
+        tm.addTask(far);
+        tm.addTask(task("near", 1, 1));
+
+        tm.setDispatchPolicy(new FifoDispatchPolicy());
+        assertSame(far, tm.robotGetTask("R1", new Point(0, 0), 100.0));
+        assertEquals("fifo", tm.getDispatchPolicy().getName());
+    }
+
+    @Test
+    public void testComparison_ReplaysSameWorkloadForEveryPolicy() {
+        DispatchPolicyComparison.Workload w = DispatchPolicyComparison.Workload.random(7L, 300, 5, 20, 2.0);
+        List<DispatchPolicyComparison.Result> results =
+                DispatchPolicyComparison.compare(w, DispatchPolicyComparison.builtInPolicies());
+
+        assertEquals(4, results.size());
+        for (DispatchPolicyComparison.Result r : results) {
+            assertEquals(300, r.getCompleted(), r.getPolicy());
+            assertTrue(r.getThroughput() > 0);
+        }
+        assertTrue(results.get(1).getEmptyTravel() <= results.get(0).getEmptyTravel(), "nearest drives less empty than fifo");
+        // the clock is the tick, so a replay gives the same outcome
+        DispatchPolicyComparison.Result again = DispatchPolicyComparison.run(new BatteryAwareDispatchPolicy(), w);
+        assertEquals(results.get(2).getTicks(), again.getTicks());
+        assertEquals(results.get(2).getMeanCycleTicks(), again.getMeanCycleTicks());
+    }
+}
@@ -0,0 +1,75 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.io.IOException;
+
+import com.warehouse.simulation.storage.Item;
+
+public class EnergyModelTest {
+
+    @Test
+    void testObserve_FirstReportReplacesThePrior() {
+        EnergyModel m = new EnergyModel(0.5);
+        assertEquals(0.5, m.moveCost(0.0), 1e-9);
+
+        m.observe(10, 30.0, 0.0);
+
+        assertEquals(3.0, m.getCostPerMove(), 1e-9);
+        assertEquals(1, m.getSamples());
+    }
+
+    @Test
+    void testObserve_FollowsChangesGradually() {
+        EnergyModel m = new EnergyModel(0.5);
+        m.setAlpha(0.5);
+        m.observe(10, 30.0, 0.0);
+        m.observe(10, 50.0, 0.0);
+
+        assertEquals(4.0, m.getCostPerMove(), 1e-9);
+    }
+
+    @Test
+    void testObserve_LearnsTheLoadShare() {
+        EnergyModel m = new EnergyModel(0.5);
+        m.observe(5, 10.0, 4.0);          // no empty cost yet: ignored
+        assertEquals(0.0, m.getCostPerKgMove(), 1e-9);
+
+        m.observe(10, 20.0, 0.0);
+        m.observe(10, 28.0, 4.0);         // 2.8 per move, 0.8 over empty, 0.2 per kg
+
+        assertEquals(0.2, m.getCostPerKgMove(), 1e-9);
+        assertEquals(2.0 + 0.2 * 10, m.moveCost(10.0), 1e-9);
+        assertEquals(3 * 2.0 + 2 * 2.8, m.tripCost(3, 2, 4.0), 1e-9);
+    }
+
+    @Test
+    void testTaskManager_CalibratedCostKeepsFarTasksFromLowRobots() throws IOException {
+        TaskManager tm = new TaskManager("TM-energy");
+        tm.addTask(new Tasks("TE1", new Point(8, 8), new Item("IE1", "Box", 1.0)));
+
+        // 16 moves at the 0.5 prior fit 30% battery; at the observed 3 per move they do not
+        tm.recordEnergy(10, 30.0, 0.0);
+        assertNull(tm.robotGetTask("R1", new Point(0, 0), 30.0));
+        assertEquals(1, tm.getPendingCount());
+
+        assertNotNull(tm.robotGetTask("R2", new Point(0, 0), 100.0));
+    }
+
+    @Test
+    void testTaskManager_UsesRealPathLengths() throws IOException {
+        TaskManager tm = new TaskManager("TM-paths");
+        tm.setEnergyEstimate(3.0, 8.0);
+        tm.addTask(new Tasks("TP1", new Point(0, 4), new Item("IP1", "Box", 1.0)));
+
+        // 4 cells as the crow flies, but a wall makes it 20 moves
+        tm.setPathLengths((a, b) -> 20);
+        assertNull(tm.robotGetTask("R1", new Point(0, 0), 40.0));
+        assertTrue(tm.getEnergyRejectedCount() > 0);
+
+        tm.setPathLengths(null);
+        assertNotNull(tm.robotGetTask("R1", new Point(0, 0), 40.0));
+    }
+}
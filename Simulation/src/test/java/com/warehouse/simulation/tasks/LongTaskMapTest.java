@@ -0,0 +1,63 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.warehouse.simulation.storage.Item;
+
+public class LongTaskMapTest {
+
+    @Test
+    public void testTaskKeys_AreUniqueAndIncreasing() {
+        Tasks a = new Tasks();
+        Tasks b = new Tasks((java.awt.Point) null, new Item("I", "Thing", 1.0));
+        assertTrue(b.getKey() > a.getKey());
+        assertEquals("T" + b.getKey(), b.getId());
+    }
+
+    @Test
+    public void testPutGetRemove_MatchesReferenceSet() {
+        LongTaskMap map = new LongTaskMap();
+        List<Tasks> tasks = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) tasks.add(new Tasks());
+        Set<Long> expected = new HashSet<>();
+        Random rnd = new Random(42);
+
+        for (int round = 0; round < 20_000; round++) {
+            Tasks t = tasks.get(rnd.nextInt(tasks.size()));
+            if (rnd.nextBoolean()) {
+                boolean inserted = map.putIfAbsent(t.getKey(), t) == null;
+                assertEquals(expected.add(t.getKey()), inserted);
+            } else {
+                boolean removed = map.remove(t.getKey()) != null;
+                assertEquals(expected.remove(t.getKey()), removed);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (Tasks t : tasks) {
+            assertEquals(expected.contains(t.getKey()), map.get(t.getKey()) == t);
+        }
+    }
+
+    @Test
+    public void testRegistry_DedupesAndFindsByKey() throws Exception {
+        TaskManager tm = new TaskManager("TM-registry");
+        Tasks t = new Tasks((java.awt.Point) null, new Item("I", "Thing", 1.0));
+
+        assertTrue(tm.addTask(t));
+        assertFalse(tm.addTask(t), "already pending");
+        assertSame(t, tm.findTask(t.getKey()));
+
+        tm.robotGetTask();
+        assertFalse(tm.addTask(t), "already active");
+        tm.completeTask(t);
+        assertNull(tm.findTask(t.getKey()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+
+import com.warehouse.simulation.storage.Item;
+
+public class PendingTaskPoolTest {
+
+    private static Tasks task(String id, int x, int y) {
+        return new Tasks(id, new Point(x, y), new Item("I-" + id, "Thing", 1.0));
+    }
+
+    @Test
+    public void testPollNearest_PicksClosestDestination() {
+        PendingTaskPool pool = new PendingTaskPool(4);
+        pool.add(task("far", 40, 40));
+        pool.add(task("near", 2, 3));
+        pool.add(task("mid", 10, 10));
+
+        Tasks t = pool.pollNearest(new Point(0, 0), 1000, null);
+
+        assertEquals("near", t.getId());
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    public void testPollNearest_KeepsFifoWithinSameCell() {
+        PendingTaskPool pool = new PendingTaskPool();
+        pool.add(task("first", 5, 5));
+        pool.add(task("second", 5, 5));
+
+        assertEquals("first", pool.pollNearest(new Point(0, 0), 100, null).getId());
+        assertEquals("second", pool.pollNearest(new Point(0, 0), 100, null).getId());
+        assertTrue(pool.isEmpty());
+    }
+
+    @Test
+    public void testPollNearest_RespectsMaxDistance() {
+        PendingTaskPool pool = new PendingTaskPool(4);
+        pool.add(task("far", 50, 50));
+
+        assertNull(pool.pollNearest(new Point(0, 0), 20, null));
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testPollNearest_RingSearchOnManyBuckets() {
+        PendingTaskPool pool = new PendingTaskPool(2);
+        for (int x = 0; x < 60; x += 3) {
+            for (int y = 0; y < 60; y += 3) {
+                pool.add(task("t" + x + "-" + y, x, y));
+            }
+        }
+
+        Tasks t = pool.pollNearest(new Point(31, 31), 5, null);
+
+        assertEquals("t30-30", t.getId());
+    }
+
+    @Test
+    public void testPollNearest_LongReachFindsSameTaskAsScan() {
+        PendingTaskPool pool = new PendingTaskPool(2);
+        pool.add(task("corner", 90, 2));
+        for (int x = 0; x < 40; x += 5) {
+            for (int y = 0; y < 40; y += 5) {
+                pool.add(task("t" + x + "-" + y, x, y));
+            }
+        }
+
+        // reach far beyond the populated area: the rings give way to the bucket walk
+        assertEquals("t35-0", pool.pollNearest(new Point(60, 0), 10_000, null).getId());
+        assertEquals("corner", pool.pollNearest(new Point(88, 0), 10_000, null).getId());
+        assertEquals("t0-0", pool.pollNearest(new Point(1, 1), 10_000, null).getId());
+    }
+
+    @Test
+    public void testRequeuedTask_KeepsOriginalPlace() {
+        PendingTaskPool pool = new PendingTaskPool();
+        Tasks a = task("A", 1, 1);
+        Tasks b = task("B", 9, 9);
+        pool.add(a);
+        pool.add(b);
+
+        assertSame(a, pool.pollFirst());
+        pool.add(a);
+
+        assertEquals("A", pool.snapshot().get(0).getId());
+        assertFalse(pool.add(a), "duplicates are rejected");
+    }
+
+    @Test
+    public void testRemoveByKey_CleansIndexes() {
+        PendingTaskPool pool = new PendingTaskPool();
+        Tasks a = task("A", 1, 1);
+        pool.add(a);
+
+        assertNotNull(pool.remove(a.getKey()));
+        assertNull(pool.pollNearest(new Point(1, 1), 10, null));
+        assertFalse(pool.contains(a.getKey()));
+    }
+
+    @Test
+    public void testScheduleOrder_ExpressBeforeBulkAndEarliestDeadlineFirst() {
+        PendingTaskPool pool = new PendingTaskPool();
+        Tasks bulk = task("bulk", 1, 1);
+        bulk.setPriority(Tasks.Priority.BULK);
+        Tasks express = task("express", 1, 1);
+        express.setPriority(Tasks.Priority.EXPRESS);
+        Tasks due = task("due", 1, 1);
+        due.setPriority(Tasks.Priority.BULK);
+        due.setDeadline(System.currentTimeMillis() + 1_000);
+        pool.add(bulk);
+        pool.add(express);
+        pool.add(due);
+
+        assertEquals("due", pool.pollFirst().getId());
+        assertEquals("express", pool.pollFirst().getId());
+        assertEquals("bulk", pool.pollFirst().getId());
+    }
+
+    @Test
+    public void testPollUrgent_OnlyReturnsTasksDueBeforeLimit() {
+        PendingTaskPool pool = new PendingTaskPool();
+        long now = System.currentTimeMillis();
+        Tasks later = task("later", 1, 1);
+        Tasks soon = task("soon", 30, 30);
+        soon.setDeadline(now + 5_000);
+        pool.add(later);
+        pool.add(soon);
+
+        assertNull(pool.pollUrgent(now, new Point(0, 0), 1000, null, 10));
+        assertNull(pool.pollUrgent(now + 10_000, new Point(0, 0), 20, null, 10), "out of battery range");
+        assertEquals("soon", pool.pollUrgent(now + 10_000, new Point(0, 0), 1000, null, 10).getId());
+    }
+
+    @Test
+    public void testRobotGetTask_ServesDueTaskBeforeNearerOne() throws Exception {
+        TaskManager tm = new TaskManager("TM-edf");
+        Tasks near = task("near", 1, 0);
+        Tasks urgent = task("urgent", 20, 0);
+        urgent.setPriority(Tasks.Priority.EXPRESS);
+        urgent.setDeadline(System.currentTimeMillis() + 2_000);
+        tm.addTask(near);
+        tm.addTask(urgent);
+
+        assertEquals("urgent", tm.robotGetTask("R1", new Point(0, 0), 100.0).getId());
+        assertEquals("near", tm.robotGetTask("R2", new Point(0, 0), 100.0).getId());
+    }
+}
@@ -0,0 +1,126 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.warehouse.simulation.storage.Item;
+import com.warehouse.simulation.storage.Order;
+
+public class TaskIntakeTest {
+
+    private TaskManager tm;
+
+    private static Tasks task(String id, Tasks.Priority priority) {
+        Tasks t = new Tasks(id, new Point(1, 1), new Item("I-" + id, "Thing", 1.0));
+        t.setPriority(priority);
+        return t;
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tm = new TaskManager("TM-intake");
+    }
+
+    @Test
+    public void testReject_RefusesWorkBeyondCapacity() {
+        tm.setIntakeCapacity(2, TaskManager.AdmissionPolicy.REJECT);
+
+        assertTrue(tm.addTask(task("a", Tasks.Priority.STANDARD)));
+        assertTrue(tm.addTask(task("b", Tasks.Priority.STANDARD)));
+        assertFalse(tm.addTask(task("c", Tasks.Priority.EXPRESS)));
+
+        assertEquals(2, tm.getPendingCount());
+        assertEquals(1, tm.getRejectedCount());
+    }
+
+    @Test
+    public void testReject_RefusesWholeOrderThatDoesNotFit() throws Exception {
+        tm.setIntakeCapacity(2, TaskManager.AdmissionPolicy.REJECT);
+        Order o = new Order("O-big");
+        for (int i = 0; i < 3; i++) o.addItem(new Item("big-" + i, "Thing", 1.0));
+
+        assertFalse(tm.createTasksFromOrders(o));
+        assertEquals(0, tm.getPendingCount());
+    }
+
+    @Test
+    public void testShed_DropsLowerPriorityWorkOnly() {
+        tm.setIntakeCapacity(2, TaskManager.AdmissionPolicy.SHED_LOWEST_PRIORITY);
+        Tasks bulk = task("bulk", Tasks.Priority.BULK);
+        tm.addTask(task("std", Tasks.Priority.STANDARD));
+        tm.addTask(bulk);
+
+        assertTrue(tm.addTask(task("express", Tasks.Priority.EXPRESS)));
+        assertEquals(Tasks.TaskStatus.FAILED, bulk.getStatus());
+        assertEquals(1, tm.getShedCount());
+        assertFalse(tm.addTask(task("std2", Tasks.Priority.STANDARD)), "nothing of lower priority left");
+    }
+
+    @Test
+    public void testBlock_WaitsForRoom() throws Exception {
+        tm.setIntakeCapacity(1, TaskManager.AdmissionPolicy.BLOCK);
+        tm.setBlockTimeout(5_000);
+        tm.addTask(task("a", Tasks.Priority.STANDARD));
+
+        Thread consumer = new Thread(() -> {
+            try { Thread.sleep(100); } catch (InterruptedException ignore) {}
+            tm.robotGetTask("R1", new Point(0, 0), 100.0);
+        });
+        consumer.start();
+
+        assertTrue(tm.addTask(task("b", Tasks.Priority.STANDARD)));
+        consumer.join();
+        assertEquals(1, tm.getPendingCount());
+    }
+
+    @Test
+    public void testBlock_RejectsAfterTimeout() {
+        tm.setIntakeCapacity(1, TaskManager.AdmissionPolicy.BLOCK);
+        tm.setBlockTimeout(50);
+        tm.addTask(task("a", Tasks.Priority.STANDARD));
+
+        assertFalse(tm.addTask(task("b", Tasks.Priority.STANDARD)));
+    }
+
+    @Test
+    public void testBlock_BulkImportWaitsOnceForAnOrderThatDoesNotFit() throws Exception {
+        tm.setIntakeCapacity(4, TaskManager.AdmissionPolicy.BLOCK);
+        tm.setBlockTimeout(300);
+        tm.addTask(task("a", Tasks.Priority.STANDARD));
+        List<Order> orders = new ArrayList<>();
+        for (String id : new String[] { "O-1", "O-2" }) {
+            Order o = new Order(id);
+            for (int i = 0; i < 2; i++) o.addItem(new Item(id + "-" + i, "Thing", 1.0));
+            orders.add(o);
+        }
+
+        long start = System.currentTimeMillis();
+        assertEquals(1, tm.createTasksFromOrders(orders));
+        long took = System.currentTimeMillis() - start;
+
+        assertEquals(3, tm.getPendingCount());
+        assertTrue(took < 550, "waited " + took + " ms, more than one timeout");
+    }
+
+    @Test
+    public void testWatermarks_FireOncePerCrossing() {
+        List<String> events = new ArrayList<>();
+        tm.setWatermarks(3, 1);
+        tm.addIntakeListener(new TaskManager.IntakeListener() {
+            @Override public void onHighWatermark(int pending) { events.add("high@" + pending); }
+            @Override public void onLowWatermark(int pending) { events.add("low@" + pending); }
+        });
+
+        for (int i = 0; i < 4; i++) tm.addTask(task("t" + i, Tasks.Priority.STANDARD));
+        assertTrue(tm.isAboveHighWatermark());
+        for (int i = 0; i < 3; i++) tm.robotGetTask("R" + i, new Point(0, 0), 100.0);
+
+        assertFalse(tm.isAboveHighWatermark());
+        assertEquals(List.of("high@3", "low@1"), events);
+    }
+}
@@ -0,0 +1,71 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+
+import com.warehouse.simulation.storage.Item;
+
+public class TaskLeaseTest {
+
+    private TaskManager tm;
+
+    private static Tasks task(String id) {
+        return new Tasks(id, new Point(1, 1), new Item("I-" + id, "Thing", 1.0));
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tm = new TaskManager("TM-lease");
+    }
+
+    @Test
+    public void testExpiredLease_ReturnsTaskAndFreesRobot() throws Exception {
+        tm.setLeaseTimeout(50);
+        Tasks t = task("a");
+        tm.addTask(t);
+        assertSame(t, tm.robotGetTask("R1", new Point(0, 0), 100.0));
+        assertEquals(1, tm.getLeaseCount());
+
+        Thread.sleep(120);
+        assertEquals(1, tm.reclaimExpiredLeases());
+
+        assertEquals(Tasks.TaskStatus.PENDING, t.getStatus());
+        assertNull(t.getRobotId());
+        assertEquals(1, tm.getPendingCount());
+        assertEquals(0, tm.getActiveTaskCount());
+        assertFalse(tm.renewLease("R1"), "robot is told once that it lost the task");
+        assertTrue(tm.renewLease("R1"));
+        assertSame(t, tm.robotGetTask("R2", new Point(0, 0), 100.0));
+    }
+
+    @Test
+    public void testRenewedLease_IsKept() throws Exception {
+        tm.setLeaseTimeout(100);
+        tm.addTask(task("a"));
+        tm.robotGetTask("R1", new Point(0, 0), 100.0);
+
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(40);
+            assertTrue(tm.renewLease("R1"));
+        }
+        assertEquals(0, tm.reclaimExpiredLeases());
+        assertEquals(1, tm.getActiveTaskCount());
+    }
+
+    @Test
+    public void testCompletedTask_EndsLease() throws Exception {
+        tm.setLeaseTimeout(50);
+        Tasks t = task("a");
+        tm.addTask(t);
+        tm.robotGetTask("R1", new Point(0, 0), 100.0);
+        tm.completeTask(t);
+
+        assertEquals(0, tm.getLeaseCount());
+        Thread.sleep(100);
+        assertEquals(0, tm.reclaimExpiredLeases());
+        assertEquals(Tasks.TaskStatus.COMPLETED, t.getStatus());
+    }
+}
@@ -106,4 +106,116 @@ public class TaskManagerTest {
             fail("TaskManager constructor threw IOException: " + e.getMessage());
         }
     }
+
+    @Test
+    public void testAddTasks_BulkFiresOneListenerEvent() throws IOException {
+        TaskManager tm = new TaskManager("TM-bulk");
+        java.util.List<Integer> events = new java.util.ArrayList<>();
+        tm.addListener(new TaskManager.TaskListener() {
+            @Override public void onPendingCountChanged(int newPending) { events.add(newPending); }
+            @Override public void onCompletedCountChanged(int newCompleted) { }
+        });
+        java.util.List<Tasks> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 50; i++) batch.add(new Tasks("B" + i, new Point(i, 1), new Item("BI" + i, "Thing", 1.0)));
+        batch.add(batch.get(0));
+
+        assertEquals(50, tm.addTasks(batch));
+        assertEquals(java.util.List.of(50), events);
+    }
+
+    @Test
+    public void testCreateTasksFromOrders_BulkQueuesEveryItemOnce() throws IOException {
+        TaskManager tm = new TaskManager("TM-bulk-orders");
+        java.util.List<Order> orders = new java.util.ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Order o = new Order("BULK-" + i);
+            o.addItem(new Item("BO" + i + "a", "Thing", 1.0));
+            o.addItem(new Item("BO" + i + "b", "Thing", 1.0));
+            orders.add(o);
+        }
+
+        assertEquals(20, tm.createTasksFromOrders(orders));
+        assertEquals(40, tm.getPendingCount());
+        assertEquals(40, tm.getPendingTasks().stream().map(Tasks::getId).distinct().count());
+    }
+
+    @Test
+    public void testReserveNextTrip_HeldForRobotUntilClaimed() throws IOException {
+        TaskManager tm = new TaskManager("TM-reserve");
+        Tasks t = new Tasks("RV1", new Point(3, 3), new Item("RVI1", "Thing", 1.0));
+        tm.addTask(t);
+
+        Trip trip = tm.reserveNextTrip("R1", new Point(0, 0), 100.0, new Point(0, 0));
+        assertNotNull(trip);
+        assertSame(t, trip.getStops().get(0));
+        assertEquals(0, tm.getPendingCount());
+        assertNull(tm.robotGetTask("R2", new Point(3, 3), 100.0), "reserved task is not handed out again");
+        assertSame(trip, tm.reserveNextTrip("R1", new Point(0, 0), 100.0, new Point(0, 0)));
+
+        Trip claimed = tm.claimReservedTrip("R1");
+        assertSame(trip, claimed);
+        assertFalse(tm.hasReservation("R1"));
+        assertEquals("R1", t.getRobotId());
+    }
+
+    @Test
+    public void testCancelReservation_ReturnsTasksToPending() throws IOException {
+        TaskManager tm = new TaskManager("TM-reserve-cancel");
+        Tasks t = new Tasks("RV2", new Point(3, 3), new Item("RVI2", "Thing", 1.0));
+        tm.addTask(t);
+        tm.reserveNextTrip("R1", new Point(0, 0), 100.0, new Point(0, 0));
+
+        tm.cancelReservation("R1");
+
+        assertEquals(1, tm.getPendingCount());
+        assertEquals(Tasks.TaskStatus.PENDING, t.getStatus());
+        assertNull(tm.claimReservedTrip("R1"));
+    }
+
+    @Test
+    public void testPollTrip_IdleRobotGetsWorkPushedOnArrival() throws IOException {
+        TaskManager tm = new TaskManager("TM-push");
+        assertNull(tm.pollTrip("R1", new Point(0, 0), 100.0, new Point(0, 0)));
+        assertEquals(1, tm.getIdleRobotCount());
+
+        Tasks t = new Tasks("EV1", new Point(2, 2), new Item("EVI1", "Thing", 1.0));
+        tm.addTask(t);
+
+        assertEquals(0, tm.getIdleRobotCount(), "robot left the registry when work was mailed");
+        assertEquals("R1", t.getRobotId());
+        Trip trip = tm.pollTrip("R1", new Point(0, 0), 100.0, new Point(0, 0));
+        assertNotNull(trip);
+        assertSame(t, trip.getStops().get(0));
+    }
+
+    @Test
+    public void testWithdrawIdle_RequeuesUnclaimedMail() throws IOException {
+        TaskManager tm = new TaskManager("TM-push-withdraw");
+        tm.pollTrip("R1", new Point(0, 0), 100.0, new Point(0, 0));
+        Tasks t = new Tasks("EV2", new Point(2, 2), new Item("EVI2", "Thing", 1.0));
+        tm.addTask(t);
+
+        tm.withdrawIdle("R1");
+
+        assertEquals(1, tm.getPendingCount());
+        assertEquals(Tasks.TaskStatus.PENDING, t.getStatus());
+        assertNotNull(tm.pollTrip("R2", new Point(5, 5), 100.0, new Point(0, 0)),
+                "robot registering later is served immediately");
+    }
+
+    @Test
+    public void testClaimUnservedWork_OneChargingRobotPerUrgentTask() throws IOException {
+        TaskManager tm = new TaskManager("TM-preempt");
+        Tasks express = new Tasks("EX1", new Point(3, 3), new Item("IT-EX1", "Thing", 1.0));
+        express.setPriority(Tasks.Priority.EXPRESS);
+        tm.addTask(express);
+
+        assertTrue(tm.claimUnservedWork("R1", Tasks.Priority.EXPRESS));
+        assertFalse(tm.claimUnservedWork("R2", Tasks.Priority.EXPRESS), "the one task is already claimed");
+        assertTrue(tm.hasUnservedWork(Tasks.Priority.EXPRESS));
+
+        // R1 asks for its work: the claim is used up with the task
+        assertSame(express, tm.robotGetTask("R1", new Point(0, 0), 100.0));
+        assertFalse(tm.claimUnservedWork("R2", Tasks.Priority.EXPRESS));
+    }
 }
@@ -0,0 +1,82 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.warehouse.simulation.storage.Item;
+
+public class TripPlannerTest {
+
+    private static Tasks task(String id, int x, int y, double weight) {
+        return new Tasks(id, new Point(x, y), new Item("I-" + id, "Thing", weight));
+    }
+
+    @Test
+    public void testOrderStops_VisitsPickupsWithoutBacktracking() {
+        List<Tasks> stops = new ArrayList<>();
+        stops.add(task("c", 0, 9, 1));
+        stops.add(task("a", 0, 3, 1));
+        stops.add(task("b", 0, 6, 1));
+
+        List<Tasks> route = TripPlanner.orderStops(new Point(0, 0), stops, new Point(0, 10));
+
+        assertEquals("a", route.get(0).getId());
+        assertEquals("b", route.get(1).getId());
+        assertEquals("c", route.get(2).getId());
+        assertEquals(10, TripPlanner.routeLength(new Point(0, 0), route, new Point(0, 10)));
+    }
+
+    @Test
+    public void testOrderStops_TwoOptRemovesCrossing() {
+        // nearest neighbour from (0,0) goes (0,1) -> (5,1) -> (5,0)... and then back to the drop-off
+        List<Tasks> stops = new ArrayList<>();
+        stops.add(task("a", 0, 1, 1));
+        stops.add(task("b", 5, 1, 1));
+        stops.add(task("c", 5, 0, 1));
+        stops.add(task("d", 1, 0, 1));
+
+        List<Tasks> route = TripPlanner.orderStops(new Point(0, 0), stops, new Point(0, 0));
+
+        assertEquals(12, TripPlanner.routeLength(new Point(0, 0), route, new Point(0, 0)));
+    }
+
+    @Test
+    public void testRobotGetTrip_BatchesSameOrderWithinCapacity() throws Exception {
+        TaskManager tm = new TaskManager("TM-trip");
+        tm.setTripCapacity(10.0);
+        Tasks a = task("a", 2, 2, 4.0);
+        Tasks b = task("b", 3, 2, 4.0);
+        Tasks heavy = task("heavy", 2, 3, 5.0);
+        Tasks far = task("far", 9, 9, 1.0);
+        tm.addTask(a);
+        tm.addTask(b);
+        tm.addTask(heavy);
+        tm.addTask(far);
+
+        Trip trip = tm.robotGetTrip("R1", new Point(0, 0), 100.0, new Point(0, 0));
+
+        assertEquals(2, trip.size());
+        assertEquals(8.0, trip.getLoad());
+        assertTrue(trip.getStops().contains(a));
+        assertTrue(trip.getStops().contains(b));
+        assertEquals(Tasks.TaskStatus.IN_PROGRESS, b.getStatus());
+        assertEquals(2, tm.getPendingTasks().size());
+    }
+
+    @Test
+    public void testRobotGetTrip_SingleStopWhenBatchingDisabled() throws Exception {
+        TaskManager tm = new TaskManager("TM-trip-off");
+        tm.setTripCapacity(0);
+        tm.addTask(task("a", 2, 2, 1.0));
+        tm.addTask(task("b", 2, 3, 1.0));
+
+        Trip trip = tm.robotGetTrip("R1", new Point(0, 0), 100.0, new Point(0, 0));
+
+        assertEquals(1, trip.size());
+        assertEquals(1, tm.getPendingTasks().size());
+    }
+}
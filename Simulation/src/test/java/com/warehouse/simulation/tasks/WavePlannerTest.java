@@ -0,0 +1,108 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+
+import com.warehouse.simulation.storage.Item;
+import com.warehouse.simulation.storage.Order;
+
+public class WavePlannerTest {
+
+    private TaskManager tm;
+    private WavePlanner planner;
+
+    private static Order order(String id, int items) {
+        Order o = new Order(id);
+        for (int i = 0; i < items; i++) o.addItem(new Item(id + "-I" + i, "Thing", 1.0));
+        return o;
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        tm = new TaskManager("TM-wave");
+        tm.setMaxTripStops(2);
+        planner = new WavePlanner(tm);
+        planner.setRobotCount(1);   // wave of 2 tasks, next wave at 1 pending
+    }
+
+    @AfterEach
+    public void tearDown() {
+        planner.shutdown();
+        tm.clearAllTasks();
+    }
+
+    @Test
+    public void testSubmit_BuffersOnceTheWaveIsFull() {
+        planner.submit(order("O1", 1));
+        planner.submit(order("O2", 1));
+        planner.submit(order("O3", 1));
+
+        assertEquals(2, tm.getPendingCount());
+        assertEquals(1, planner.getBufferedCount());
+    }
+
+    @Test
+    public void testNextWave_IsReleasedWhenPendingDrainsToLowWatermark() {
+        planner.submit(order("O1", 1));
+        planner.submit(order("O2", 1));
+        planner.submit(order("O3", 1));
+
+        assertNotNull(tm.robotGetTask("R1", new Point(0, 0), 100.0));
+
+        assertEquals(0, planner.getBufferedCount());
+        assertEquals(2, tm.getPendingCount());
+    }
+
+    @Test
+    public void testOrderNearItsDeadline_IsReleasedDespiteFullWave() {
+        planner.submit(order("O1", 2));
+        Order urgent = order("O2", 1);
+        urgent.setDeadline(System.currentTimeMillis() + 5_000);
+        planner.submit(urgent);
+
+        assertEquals(0, planner.getBufferedCount());
+        assertEquals(3, tm.getPendingCount());
+    }
+
+    @Test
+    public void testTick_ReleasesAnOrderComingDueWithoutNewOrders() throws Exception {
+        planner.submit(order("O1", 2));
+        Order soon = order("O2", 1);
+        soon.setDeadline(System.currentTimeMillis() + WavePlanner.FORCE_HORIZON_MS + 200);
+        planner.submit(soon);
+        assertEquals(1, planner.getBufferedCount());
+
+        Thread.sleep(300);
+        planner.tick();
+
+        assertEquals(0, planner.getBufferedCount());
+        assertEquals(3, tm.getPendingCount());
+    }
+
+    @Test
+    public void testReleaseWave_KeepsOnlyRefusedOrdersBuffered() {
+        tm.setIntakeCapacity(2, TaskManager.AdmissionPolicy.REJECT);
+        planner.setRobotCount(2);   // wave of 4 tasks, more than the intake takes
+
+        planner.submit(order("O1", 1));
+        planner.submit(order("O2", 1));
+        planner.submit(order("O3", 1));
+
+        assertEquals(2, tm.getPendingCount());
+        assertEquals(1, planner.getBufferedCount());
+        assertEquals(1, tm.getRejectedCount());
+    }
+
+    @Test
+    public void testShutdown_HandsBackBufferedOrders() {
+        planner.submit(order("O1", 2));
+        planner.submit(order("O2", 1));
+
+        assertEquals(1, planner.shutdown().size());
+        assertEquals(0, planner.getBufferedCount());
+    }
+}
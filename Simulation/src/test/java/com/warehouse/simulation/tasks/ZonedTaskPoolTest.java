@@ -0,0 +1,125 @@
+package com.warehouse.simulation.tasks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.List;
+
+import com.warehouse.simulation.storage.Item;
+import com.warehouse.simulation.utils.GridZone;
+import com.warehouse.simulation.utils.WarehouseGrid;
+
+public class ZonedTaskPoolTest {
+
+    private ZonedTaskPool pool;
+
+    private static Tasks task(String id, int x, int y) {
+        return new Tasks(id, new Point(x, y), new Item("I-" + id, "Thing", 1.0));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        // 1 x 3 strip of zones: Z0-0 (cols 0-9), Z0-1 (cols 10-19), Z0-2 (cols 20-29)
+        WarehouseGrid grid = new WarehouseGrid(10, 30);
+        grid.divideIntoZones(1, 3);
+        pool = new ZonedTaskPool();
+        pool.setZones(grid.getZones());
+    }
+
+    @Test
+    public void testPollNearest_PrefersHomeZoneOverCloserTaskNextDoor() {
+        pool.add(task("home", 0, 2));
+        pool.add(task("next-door", 5, 10));
+
+        // robot at (5, 8) is in zone Z0-0; the task across the border is nearer
+        assertEquals("home", pool.pollNearest(new Point(5, 8), 1000, null).getId());
+    }
+
+    @Test
+    public void testPollNearest_StealsFromNeighbourBeforeFarZone() {
+        pool.add(task("far", 5, 21));
+        pool.add(task("neighbour", 5, 19));
+
+        assertEquals("neighbour", pool.pollNearest(new Point(5, 0), 1000, null).getId());
+        assertEquals("far", pool.pollNearest(new Point(5, 0), 1000, null).getId());
+        assertTrue(pool.isEmpty());
+    }
+
+    @Test
+    public void testPinnedHomeZone_WinsOverCurrentPosition() {
+        pool.add(task("left", 5, 1));
+        pool.add(task("right", 5, 25));
+
+        assertEquals("right", pool.pollNearest(new Point(5, 1), "Z0-2", 1000, null).getId());
+    }
+
+    @Test
+    public void testScheduleOrderAndRemovalAcrossZones() {
+        pool.add(task("A", 1, 25));
+        pool.add(task("B", 1, 1));
+        Tasks c = task("C", 1, 15);
+        pool.add(c);
+
+        assertEquals("A", pool.snapshot().get(0).getId());
+        assertNotNull(pool.remove(c));
+        assertFalse(pool.contains(c));
+        assertEquals("A", pool.pollFirst().getId());
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.sizeByZone().get("Z0-0").intValue());
+    }
+
+    @Test
+    public void testSetZones_MovesPendingTasks() {
+        ZonedTaskPool single = new ZonedTaskPool();
+        Tasks b = task("B", 1, 1);
+        single.add(task("A", 1, 25));
+        single.add(b);
+
+        WarehouseGrid grid = new WarehouseGrid(10, 30);
+        grid.divideIntoZones(1, 3);
+        single.setZones(grid.getZones());
+
+        assertEquals(1, single.sizeByZone().get("Z0-2").intValue());
+        assertEquals("A", single.pollFirst().getId(), "original order is kept");
+        assertFalse(single.add(b), "duplicates are still rejected");
+    }
+
+    @Test
+    public void testZoneLookup_GapsAndOutsidePointsGoToClosestZone() {
+        ZonedTaskPool uneven = new ZonedTaskPool();
+        uneven.setZones(List.of(
+                new GridZone("A", 0, 0, 4, 9),
+                new GridZone("B", 0, 15, 9, 29),
+                new GridZone("C", 8, 0, 9, 9)));
+
+        assertEquals("A", uneven.zoneIdOf(new Point(2, 3)));
+        assertEquals("B", uneven.zoneIdOf(new Point(9, 15)));
+        assertEquals("C", uneven.zoneIdOf(new Point(8, 0)));
+        // in the gap between the zones
+        assertEquals("A", uneven.zoneIdOf(new Point(5, 5)));
+        assertEquals("B", uneven.zoneIdOf(new Point(3, 13)));
+        // outside all of them
+        assertEquals("B", uneven.zoneIdOf(new Point(-5, 40)));
+        assertEquals("C", uneven.zoneIdOf(new Point(50, 2)));
+    }
+
+    @Test
+    public void testSetZones_ConcurrentAddsAreNotLost() throws Exception {
+        WarehouseGrid grid = new WarehouseGrid(10, 30);
+        List<GridZone> three = grid.divideIntoZones(1, 3);
+        List<GridZone> two = grid.divideIntoZones(2, 1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 2000; i++) pool.add(task("t" + i, i % 10, i % 30));
+        });
+        producer.start();
+        for (int i = 0; producer.isAlive() || i < 10; i++) {
+            pool.setZones(i % 2 == 0 ? two : three);
+        }
+        producer.join();
+
+        assertEquals(2000, pool.size());
+        assertEquals(2000, pool.snapshot().size());
+    }
+}
@@ -0,0 +1,51 @@
+package com.warehouse.simulation.utils;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.Queue;
+
+public class DistanceFieldsTest {
+
+    @Test
+    public void testDistance_MatchesPathFinderAroundWalls() {
+        WarehouseGrid grid = new WarehouseGrid(12, 12);
+        grid.blockRegion(0, 5, 9, 5);
+        DistanceFields fields = new DistanceFields(grid, 8);
+        PathFinder finder = new PathFinder(grid);
+
+        Point to = new Point(0, 9);
+        for (Point from : new Point[] { new Point(0, 0), new Point(11, 2), new Point(6, 7) }) {
+            Queue<Point> path = finder.findPath(from, to);
+            assertEquals(path.size() - 1, fields.distance(from, to), "from " + from);
+        }
+        assertEquals(1, fields.size(), "one field per target");
+    }
+
+    @Test
+    public void testDistance_FollowsLayoutChanges() {
+        WarehouseGrid grid = new WarehouseGrid(5, 5);
+        DistanceFields fields = new DistanceFields(grid, 8);
+        Point from = new Point(0, 0);
+        Point to = new Point(0, 4);
+        assertEquals(4, fields.distance(from, to));
+
+        grid.blockRegion(0, 2, 3, 2);
+        assertEquals(12, fields.distance(from, to));
+
+        grid.blockRegion(4, 2, 4, 2);
+        assertEquals(DistanceFields.UNREACHABLE, fields.distance(from, to));
+    }
+
+    @Test
+    public void testFields_KeptWithinLimit() {
+        WarehouseGrid grid = new WarehouseGrid(6, 6);
+        DistanceFields fields = new DistanceFields(grid, 2);
+        for (int c = 0; c < 5; c++) fields.distance(new Point(5, 5), new Point(0, c));
+
+        assertEquals(2, fields.size());
+        assertEquals(DistanceFields.UNKNOWN, new DistanceFields(new SparseWarehouseGrid(4000, 4000), 2)
+                .distance(new Point(0, 0), new Point(1, 1)), "too large for a field");
+    }
+}
@@ -0,0 +1,89 @@
+package com.warehouse.simulation.utils;
+
+import org.junit.jupiter.api.Test;
+import java.awt.Point;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseWarehouseGridTest {
+
+    @Test
+    void testEmptyGrid_HasNoMaterializedTiles() {
+        SparseWarehouseGrid grid = new SparseWarehouseGrid(10000, 10000);
+
+        assertEquals(0, grid.getMaterializedTileCount());
+        assertTrue(grid.isLocationFree(9999, 9999));
+        assertFalse(grid.isLocationFree(10000, 0));
+    }
+
+    @Test
+    void testPlaceAndClearObject_CollapsesTileAgain() {
+        SparseWarehouseGrid grid = new SparseWarehouseGrid(100, 100, 8);
+        Object rack = new Object();
+
+        grid.placeObject(rack, new Point(17, 33));
+        assertSame(rack, grid.getObjectAt(17, 33));
+        assertFalse(grid.isLocationFree(17, 33));
+        assertEquals(1, grid.getMaterializedTileCount());
+
+        grid.placeObject(null, 17, 33);
+        assertTrue(grid.isLocationFree(17, 33));
+        assertEquals(0, grid.getMaterializedTileCount());
+    }
+
+    @Test
+    void testBlockRegion_StoresFullTilesImplicitly() {
+        SparseWarehouseGrid grid = new SparseWarehouseGrid(64, 64, 8);
+
+        // rows 0..15 are two full tile rows, column 0..20 covers two full tiles and a partial one
+        grid.blockRegion(0, 0, 15, 20);
+
+        assertSame(WarehouseGrid.OBSTACLE, grid.getObjectAt(15, 20));
+        assertTrue(grid.isLocationFree(15, 21));
+        // only the two tiles cut by column 20 are materialized
+        assertEquals(2, grid.getMaterializedTileCount());
+
+        grid.clearRegion(0, 0, 63, 63);
+        assertEquals(0, grid.getMaterializedTileCount());
+        assertTrue(grid.isLocationFree(0, 0));
+    }
+
+    @Test
+    void testWriteIntoBlockedTile_ExpandsAndKeepsOtherObstacles() {
+        SparseWarehouseGrid grid = new SparseWarehouseGrid(16, 16, 8);
+        grid.blockRegion(0, 0, 7, 7);
+        assertEquals(0, grid.getMaterializedTileCount());
+
+        grid.placeObject(null, 3, 3);
+
+        assertTrue(grid.isLocationFree(3, 3));
+        assertFalse(grid.isLocationFree(3, 4));
+        assertEquals(1, grid.getMaterializedTileCount());
+
+        grid.placeObject(WarehouseGrid.OBSTACLE, 3, 3);
+        assertEquals(0, grid.getMaterializedTileCount());
+    }
+
+    @Test
+    void testPartialEdgeTile_CollapsesToBlocked() {
+        // 10 x 10 with tile 8 -> edge tiles only cover 2 rows/columns
+        SparseWarehouseGrid grid = new SparseWarehouseGrid(10, 10, 8);
+        grid.blockRegion(8, 8, 9, 9);
+
+        assertEquals(0, grid.getMaterializedTileCount());
+        assertFalse(grid.isLocationFree(9, 9));
+    }
+
+    @Test
+    void testPathFinder_RoutesAroundBlockedRegion() {
+        SparseWarehouseGrid grid = new SparseWarehouseGrid(50, 50, 8);
+        // wall at row 10 with a gap at column 49
+        grid.blockRegion(10, 0, 10, 48);
+
+        Queue<Point> path = new PathFinder(grid).findPath(new Point(0, 0), new Point(20, 0));
+
+        assertNotNull(path);
+        assertTrue(path.contains(new Point(10, 49)), "path must go through the gap");
+    }
+}
@@ -0,0 +1,56 @@
+package com.warehouse.simulation.warehouse;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.Point;
+import java.util.List;
+
+import com.warehouse.simulation.storage.Item;
+import com.warehouse.simulation.tasks.TaskManager;
+import com.warehouse.simulation.tasks.Tasks;
+
+public class ParkingPlannerTest {
+
+    private static final Point WEST = new Point(1, 1);
+    private static final Point EAST = new Point(8, 8);
+
+    @Test
+    public void testNoCells_ReturnsNull() throws Exception {
+        ParkingPlanner planner = new ParkingPlanner(new TaskManager("TM-park0"), null);
+        assertNull(planner.assign("R1", new Point(0, 0)));
+    }
+
+    @Test
+    public void testShares_FollowRecentPickups() throws Exception {
+        TaskManager tm = new TaskManager("TM-park1");
+        for (int i = 0; i < 9; i++) {
+            Tasks t = new Tasks("P" + i, new Point(7, 8), new Item("PI" + i, "Thing", 1.0));
+            tm.addTask(t);
+            tm.completeTask(tm.robotGetTask());
+        }
+        ParkingPlanner planner = new ParkingPlanner(tm, null);
+        planner.setParkingCells(List.of(WEST, EAST));
+        planner.setFleetSize(4);
+
+        assertEquals(0, planner.getQuotas().get(WEST).intValue());
+        assertEquals(4, planner.getQuotas().get(EAST).intValue());
+        assertEquals(EAST, planner.assign("R1", WEST));
+    }
+
+    @Test
+    public void testAssign_SpreadsRobotsAndKeepsTheirCell() throws Exception {
+        ParkingPlanner planner = new ParkingPlanner(new TaskManager("TM-park2"), null);
+        planner.setParkingCells(List.of(WEST, EAST));
+        planner.setFleetSize(2);
+
+        Point a = planner.assign("R1", new Point(0, 0));
+        Point b = planner.assign("R2", new Point(0, 0));
+        assertEquals(WEST, a, "nearest cell first");
+        assertEquals(EAST, b, "west already has its share");
+        assertEquals(a, planner.assign("R1", new Point(5, 5)));
+
+        planner.release("R1");
+        assertEquals(WEST, planner.assign("R3", new Point(9, 9)));
+    }
+}